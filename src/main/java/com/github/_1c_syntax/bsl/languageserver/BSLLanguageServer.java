@@ -23,24 +23,34 @@ package com.github._1c_syntax.bsl.languageserver;
 
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DuplicateCodeDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.TypoDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.utils.WorkspaceFiles;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.lsp4j.ClientCapabilities;
 import org.eclipse.lsp4j.CodeLensOptions;
 import org.eclipse.lsp4j.DocumentLinkOptions;
+import org.eclipse.lsp4j.DocumentOnTypeFormattingOptions;
 import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.InitializeResult;
 import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.TextDocumentSyncKind;
+import org.eclipse.lsp4j.WindowClientCapabilities;
 import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.lsp4j.services.LanguageClientAware;
 import org.eclipse.lsp4j.services.LanguageServer;
 import org.eclipse.lsp4j.services.TextDocumentService;
 import org.eclipse.lsp4j.services.WorkspaceService;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -67,13 +77,18 @@ public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
   @Override
   public CompletableFuture<InitializeResult> initialize(InitializeParams params) {
 
-    setConfigurationRoot(params);
-    CompletableFuture.runAsync(context::populateContext);
+    var workspaceFiles = setConfigurationRoot(params);
+    enableDuplicateCodeIndex();
+    boolean workDoneProgressSupported = isWorkDoneProgressSupported(params);
+    CompletableFuture.runAsync(() -> populateContext(workspaceFiles))
+      .thenCompose(ignored -> textDocumentService.computeWorkspaceDiagnostics(workDoneProgressSupported));
+    warmUpDiagnostics();
 
     ServerCapabilities capabilities = new ServerCapabilities();
     capabilities.setTextDocumentSync(TextDocumentSyncKind.Full);
     capabilities.setDocumentRangeFormattingProvider(Boolean.TRUE);
     capabilities.setDocumentFormattingProvider(Boolean.TRUE);
+    capabilities.setDocumentOnTypeFormattingProvider(new DocumentOnTypeFormattingOptions("\n", List.of(";")));
     capabilities.setFoldingRangeProvider(Boolean.TRUE);
     capabilities.setDocumentSymbolProvider(Boolean.TRUE);
     capabilities.setCodeActionProvider(Boolean.TRUE);
@@ -85,9 +100,38 @@ public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
     return CompletableFuture.completedFuture(result);
   }
 
-  private void setConfigurationRoot(InitializeParams params) {
+  private static boolean isWorkDoneProgressSupported(InitializeParams params) {
+    return Optional.ofNullable(params.getCapabilities())
+      .map(ClientCapabilities::getWindow)
+      .map(WindowClientCapabilities::getWorkDoneProgress)
+      .orElse(Boolean.FALSE);
+  }
+
+  /**
+   * Индекс дублирования кода включается до заполнения контекста, чтобы документы попадали в него,
+   * пока их содержимое еще в памяти.
+   */
+  private void enableDuplicateCodeIndex() {
+    if (new DiagnosticSupplier(configuration).isEnabled(DuplicateCodeDiagnostic.class)) {
+      context.enableDuplicateCodeIndex();
+    }
+  }
+
+  private void warmUpDiagnostics() {
+    if (new DiagnosticSupplier(configuration).isEnabled(TypoDiagnostic.class)) {
+      TypoDiagnostic.warmUp(configuration.getLanguage());
+    }
+  }
+
+  /**
+   * Определяет корень конфигурации по корню рабочей области.
+   *
+   * @return результат обхода рабочей области для повторного использования при заполнении контекста
+   */
+  @CheckForNull
+  private WorkspaceFiles setConfigurationRoot(InitializeParams params) {
     if (params.getRootUri() == null) {
-      return;
+      return null;
     }
 
     Path rootPath;
@@ -95,13 +139,24 @@ public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
       rootPath = new File(new URI(params.getRootUri()).getPath()).getCanonicalFile().toPath();
     } catch (URISyntaxException | IOException e) {
       LOGGER.error("Can't read root URI from initialization params.", e);
-      return;
+      return null;
     }
 
+    var workspaceFiles = WorkspaceFiles.scan(rootPath, configuration.getFilesOptions());
     Path configurationRoot = LanguageServerConfiguration.getCustomConfigurationRoot(
       configuration,
-      rootPath);
+      rootPath,
+      workspaceFiles);
     context.setConfigurationRoot(configurationRoot);
+    return workspaceFiles;
+  }
+
+  private void populateContext(@CheckForNull WorkspaceFiles workspaceFiles) {
+    if (workspaceFiles == null) {
+      context.populateContext();
+    } else {
+      context.populateContext(workspaceFiles);
+    }
   }
 
   @Override
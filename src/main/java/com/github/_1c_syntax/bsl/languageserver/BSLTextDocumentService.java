@@ -24,9 +24,12 @@ package com.github._1c_syntax.bsl.languageserver;
 import com.github._1c_syntax.bsl.languageserver.codeactions.QuickFixSupplier;
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.configuration.diagnostics.ComputeTrigger;
+import com.github._1c_syntax.bsl.languageserver.context.ComputationCoalescer;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTree;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
+import com.github._1c_syntax.bsl.languageserver.jfr.TextDocumentRequestEvent;
 import com.github._1c_syntax.bsl.languageserver.providers.CodeActionProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.CodeLensProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
@@ -35,6 +38,8 @@ import com.github._1c_syntax.bsl.languageserver.providers.DocumentSymbolProvider
 import com.github._1c_syntax.bsl.languageserver.providers.FoldingRangeProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.FormatProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.HoverProvider;
+import com.github._1c_syntax.bsl.languageserver.providers.WorkspaceDiagnosticsProvider;
+import com.github._1c_syntax.bsl.parser.BSLParser;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionParams;
 import org.eclipse.lsp4j.CodeLens;
@@ -80,6 +85,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 public class BSLTextDocumentService implements TextDocumentService, LanguageClientAware {
 
@@ -89,6 +96,13 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
   private final CodeActionProvider codeActionProvider;
   private final CodeLensProvider codeLensProvider;
   private final DocumentLinkProvider documentLinkProvider;
+  private final ComputationCoalescer computations = new ComputationCoalescer();
+  private final WorkspaceDiagnosticsProvider workspaceDiagnosticsProvider;
+  /**
+   * Количество обрабатываемых запросов редактора и расчетов диагностик открытых документов.
+   * Пока оно больше нуля, фоновый расчет диагностик рабочей области уступает им ресурсы.
+   */
+  private final AtomicInteger activeRequests = new AtomicInteger();
 
   @CheckForNull
   private LanguageClient client;
@@ -104,6 +118,11 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
     codeActionProvider = new CodeActionProvider(this.diagnosticProvider, quickFixSupplier);
     codeLensProvider = new CodeLensProvider(this.configuration);
     documentLinkProvider = new DocumentLinkProvider(this.configuration, this.diagnosticProvider);
+    workspaceDiagnosticsProvider = new WorkspaceDiagnosticsProvider(
+      this.context,
+      this.diagnosticProvider,
+      () -> activeRequests.get() > 0
+    );
   }
 
   @Override
@@ -124,7 +143,11 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
     if (documentContext == null) {
       return CompletableFuture.completedFuture(null);
     }
-    Optional<Hover> hover = HoverProvider.getHover(params, documentContext);
+    Optional<Hover> hover = TextDocumentRequestEvent.measure(
+      "textDocument/hover",
+      params.getTextDocument().getUri(),
+      () -> trackRequest(() -> HoverProvider.getHover(params, documentContext))
+    );
     return CompletableFuture.completedFuture(hover.orElse(null));
   }
 
@@ -159,7 +182,16 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> DocumentSymbolProvider.getDocumentSymbols(documentContext));
+    return trackRequest(computations.submit(
+      documentContext,
+      "textDocument/documentSymbol",
+      List.of(computeSymbolTree(documentContext)),
+      () -> TextDocumentRequestEvent.measure(
+        "textDocument/documentSymbol",
+        params.getTextDocument().getUri(),
+        () -> DocumentSymbolProvider.getDocumentSymbols(documentContext)
+      )
+    ));
   }
 
   @Override
@@ -169,7 +201,15 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> codeActionProvider.getCodeActions(params, documentContext));
+    // действия зависят от параметров запроса, поэтому не объединяются, а только ждут общие данные документа
+    return trackRequest(computations.after(
+      List.of(computeAst(documentContext)),
+      () -> TextDocumentRequestEvent.measure(
+        "textDocument/codeAction",
+        params.getTextDocument().getUri(),
+        () -> codeActionProvider.getCodeActions(params, documentContext)
+      )
+    ));
   }
 
   @Override
@@ -179,7 +219,16 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> codeLensProvider.getCodeLens(documentContext));
+    return trackRequest(computations.submit(
+      documentContext,
+      "textDocument/codeLens",
+      List.of(computeComplexity(documentContext)),
+      () -> TextDocumentRequestEvent.measure(
+        "textDocument/codeLens",
+        params.getTextDocument().getUri(),
+        () -> codeLensProvider.getCodeLens(documentContext)
+      )
+    ));
   }
 
   @Override
@@ -194,7 +243,11 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    List<TextEdit> edits = FormatProvider.getFormatting(params, documentContext);
+    List<TextEdit> edits = TextDocumentRequestEvent.measure(
+      "textDocument/formatting",
+      params.getTextDocument().getUri(),
+      () -> trackRequest(() -> FormatProvider.getFormatting(params, documentContext))
+    );
     return CompletableFuture.completedFuture(edits);
   }
 
@@ -205,13 +258,27 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    List<TextEdit> edits = FormatProvider.getRangeFormatting(params, documentContext);
+    List<TextEdit> edits = TextDocumentRequestEvent.measure(
+      "textDocument/rangeFormatting",
+      params.getTextDocument().getUri(),
+      () -> trackRequest(() -> FormatProvider.getRangeFormatting(params, documentContext))
+    );
     return CompletableFuture.completedFuture(edits);
   }
 
   @Override
   public CompletableFuture<List<? extends TextEdit>> onTypeFormatting(DocumentOnTypeFormattingParams params) {
-    throw new UnsupportedOperationException();
+    DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
+    if (documentContext == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    List<TextEdit> edits = TextDocumentRequestEvent.measure(
+      "textDocument/onTypeFormatting",
+      params.getTextDocument().getUri(),
+      () -> trackRequest(() -> FormatProvider.getOnTypeFormatting(params, documentContext))
+    );
+    return CompletableFuture.completedFuture(edits);
   }
 
   @Override
@@ -221,7 +288,16 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> FoldingRangeProvider.getFoldingRange(documentContext));
+    return trackRequest(computations.submit(
+      documentContext,
+      "textDocument/foldingRange",
+      List.of(computeSymbolTree(documentContext)),
+      () -> TextDocumentRequestEvent.measure(
+        "textDocument/foldingRange",
+        params.getTextDocument().getUri(),
+        () -> FoldingRangeProvider.getFoldingRange(documentContext)
+      )
+    ));
   }
 
   @Override
@@ -231,54 +307,72 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
 
   @Override
   public void didOpen(DidOpenTextDocumentParams params) {
-    DocumentContext documentContext = context.addDocument(params.getTextDocument());
-    if (configuration.getDiagnosticsOptions().getComputeTrigger() != ComputeTrigger.NEVER) {
-      validate(documentContext);
-    }
+    TextDocumentRequestEvent.measureNotification("textDocument/didOpen", params.getTextDocument().getUri(), () -> {
+      DocumentContext documentContext = context.addDocument(params.getTextDocument());
+      if (configuration.getDiagnosticsOptions().getComputeTrigger() != ComputeTrigger.NEVER) {
+        validate(documentContext);
+      }
+    });
   }
 
   @Override
   public void didChange(DidChangeTextDocumentParams params) {
-
-    // TODO: Place to optimize -> migrate to #TextDocumentSyncKind.INCREMENTAL and build changed parse tree
-    DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
-    if (documentContext == null) {
-      return;
-    }
-
-    diagnosticProvider.clearComputedDiagnostics(documentContext);
-    documentContext.rebuild(params.getContentChanges().get(0).getText());
-
-    if (configuration.getDiagnosticsOptions().getComputeTrigger() == ComputeTrigger.ONTYPE) {
-      validate(documentContext);
-    }
+    TextDocumentRequestEvent.measureNotification("textDocument/didChange", params.getTextDocument().getUri(), () -> {
+
+      // TODO: Place to optimize -> migrate to #TextDocumentSyncKind.INCREMENTAL and build changed parse tree
+      DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
+      if (documentContext == null) {
+        return;
+      }
+
+      diagnosticProvider.clearComputedDiagnostics(documentContext);
+      // запросы, начатые по предыдущей версии, продолжают работать с ее снимком
+      documentContext = context.addDocument(
+        documentContext.getUri(),
+        params.getContentChanges().get(0).getText()
+      );
+
+      if (configuration.getDiagnosticsOptions().getComputeTrigger() == ComputeTrigger.ONTYPE) {
+        validate(documentContext);
+      }
+    });
   }
 
   @Override
   public void didClose(DidCloseTextDocumentParams params) {
-    DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
-    if (documentContext == null) {
-      return;
-    }
-
-    documentContext.clearSecondaryData();
-    diagnosticProvider.clearComputedDiagnostics(documentContext);
-
-    if (client != null) {
-      diagnosticProvider.publishEmptyDiagnosticList(client, documentContext);
-    }
+    TextDocumentRequestEvent.measureNotification("textDocument/didClose", params.getTextDocument().getUri(), () -> {
+      DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
+      if (documentContext == null) {
+        return;
+      }
+
+      context.releaseContent(documentContext);
+      diagnosticProvider.clearComputedDiagnostics(documentContext);
+
+      if (client == null) {
+        return;
+      }
+      if (isWorkspaceDiagnosticsEnabled()) {
+        // проблемы закрытого документа остаются в списке проблем рабочей области
+        workspaceDiagnosticsProvider.computeAndPublishDiagnostics(client, documentContext.getUri());
+      } else {
+        diagnosticProvider.publishEmptyDiagnosticList(client, documentContext);
+      }
+    });
   }
 
   @Override
   public void didSave(DidSaveTextDocumentParams params) {
-    DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
-    if (documentContext == null) {
-      return;
-    }
-
-    if (configuration.getDiagnosticsOptions().getComputeTrigger() != ComputeTrigger.NEVER) {
-      validate(documentContext);
-    }
+    TextDocumentRequestEvent.measureNotification("textDocument/didSave", params.getTextDocument().getUri(), () -> {
+      DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
+      if (documentContext == null) {
+        return;
+      }
+
+      if (configuration.getDiagnosticsOptions().getComputeTrigger() != ComputeTrigger.NEVER) {
+        validate(documentContext);
+      }
+    });
   }
 
   @Override
@@ -293,7 +387,29 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> documentLinkProvider.getDocumentLinks(documentContext));
+    return trackRequest(computations.submit(
+      documentContext,
+      "textDocument/documentLink",
+      () -> TextDocumentRequestEvent.measure(
+        "textDocument/documentLink",
+        params.getTextDocument().getUri(),
+        () -> documentLinkProvider.getDocumentLinks(documentContext)
+      )
+    ));
+  }
+
+  /**
+   * Запустить фоновый расчет диагностик всех документов рабочей области, если он включен в настройках.
+   *
+   * @param workDoneProgressSupported клиент поддерживает индикатор хода выполнения
+   * @return завершение расчета
+   */
+  public CompletableFuture<Void> computeWorkspaceDiagnostics(boolean workDoneProgressSupported) {
+    if (client == null || !isWorkspaceDiagnosticsEnabled()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return workspaceDiagnosticsProvider.computeAndPublishDiagnostics(client, workDoneProgressSupported);
   }
 
   public void reset() {
@@ -301,11 +417,68 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
     context.clear();
   }
 
+  private CompletableFuture<BSLParser.FileContext> computeAst(DocumentContext documentContext) {
+    return computations.submit(documentContext, "ast", documentContext::getAst);
+  }
+
+  private CompletableFuture<SymbolTree> computeSymbolTree(DocumentContext documentContext) {
+    return computations.submit(
+      documentContext,
+      "symbolTree",
+      List.of(computeAst(documentContext)),
+      documentContext::getSymbolTree
+    );
+  }
+
+  private CompletableFuture<Void> computeComplexity(DocumentContext documentContext) {
+    List<CompletableFuture<?>> symbolTree = List.of(computeSymbolTree(documentContext));
+    return CompletableFuture.allOf(
+      computations.submit(
+        documentContext,
+        "cognitiveComplexity",
+        symbolTree,
+        documentContext::getCognitiveComplexityData
+      ),
+      computations.submit(
+        documentContext,
+        "cyclomaticComplexity",
+        symbolTree,
+        documentContext::getCyclomaticComplexityData
+      )
+    );
+  }
+
+  private boolean isWorkspaceDiagnosticsEnabled() {
+    var diagnosticsOptions = configuration.getDiagnosticsOptions();
+    return diagnosticsOptions.isComputeWorkspace()
+      && diagnosticsOptions.getComputeTrigger() != ComputeTrigger.NEVER;
+  }
+
   private void validate(DocumentContext documentContext) {
     if (client == null) {
       return;
     }
-    diagnosticProvider.computeAndPublishDiagnostics(client, documentContext);
+    activeRequests.incrementAndGet();
+    try {
+      diagnosticProvider.computeAndPublishDiagnostics(client, documentContext);
+    } finally {
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private <T> T trackRequest(Supplier<T> request) {
+    activeRequests.incrementAndGet();
+    try {
+      return request.get();
+    } finally {
+      activeRequests.decrementAndGet();
+    }
+  }
+
+  private <T> CompletableFuture<T> trackRequest(CompletableFuture<T> request) {
+    activeRequests.incrementAndGet();
+    request.whenComplete((T result, Throwable exception) -> activeRequests.decrementAndGet());
+    return request;
   }
 
 }
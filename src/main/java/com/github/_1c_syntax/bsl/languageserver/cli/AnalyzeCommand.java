@@ -26,10 +26,14 @@ import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.MetricStorage;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DuplicateCodeDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DuplicationInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.TypoDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.reporter.AnalysisInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.reporter.ReportersAggregator;
 import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import com.github._1c_syntax.bsl.languageserver.utils.WorkspaceFiles;
 import com.github._1c_syntax.mdclasses.mdo.MDObjectBase;
 import com.github._1c_syntax.utils.Absolute;
 import lombok.extern.slf4j.Slf4j;
@@ -45,8 +49,8 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
@@ -159,14 +163,25 @@ public class AnalyzeCommand implements Callable<Integer> {
     File configurationFile = new File(configurationOption);
     LanguageServerConfiguration configuration = LanguageServerConfiguration.create(configurationFile);
 
-    Path configurationPath = LanguageServerConfiguration.getCustomConfigurationRoot(configuration, srcDir);
+    WorkspaceFiles workspaceFiles = WorkspaceFiles.scan(srcDir, configuration.getFilesOptions());
+    Path configurationPath = LanguageServerConfiguration.getCustomConfigurationRoot(
+      configuration,
+      srcDir,
+      workspaceFiles
+    );
     context = new ServerContext(configurationPath);
     DiagnosticSupplier diagnosticSupplier = new DiagnosticSupplier(configuration);
     diagnosticProvider = new DiagnosticProvider(diagnosticSupplier);
+    if (diagnosticSupplier.isEnabled(TypoDiagnostic.class)) {
+      TypoDiagnostic.warmUp(configuration.getLanguage());
+    }
+    if (diagnosticSupplier.isEnabled(DuplicateCodeDiagnostic.class)) {
+      context.enableDuplicateCodeIndex();
+    }
 
-    Collection<File> files = FileUtils.listFiles(srcDir.toFile(), new String[]{"bsl", "os"}, true);
+    List<File> files = workspaceFiles.getFiles();
     
-    context.populateContext(files);
+    context.populateContext(workspaceFiles.getFilesLargestFirst(workspaceFiles.getRoot()));
 
     List<FileInfo> fileInfos;
     if (silentMode) {
@@ -185,6 +200,11 @@ public class AnalyzeCommand implements Callable<Integer> {
     }
 
     AnalysisInfo analysisInfo = new AnalysisInfo(LocalDateTime.now(), fileInfos, srcDir.toString());
+    if (diagnosticSupplier.isEnabled(DuplicateCodeDiagnostic.class)) {
+      var duplicateCodeDiagnostic =
+        (DuplicateCodeDiagnostic) diagnosticSupplier.getDiagnosticInstance(DuplicateCodeDiagnostic.class);
+      analysisInfo.setDuplications(getDuplications(workspaceDir, duplicateCodeDiagnostic.getThreshold()));
+    }
     Path outputDir = Absolute.path(outputDirOption);
     var reporters = Optional.ofNullable(reportersOptions).orElse(new String[0]);
     ReportersAggregator aggregator = new ReportersAggregator(outputDir, reporters);
@@ -192,6 +212,14 @@ public class AnalyzeCommand implements Callable<Integer> {
     return 0;
   }
 
+  private List<DuplicationInfo> getDuplications(Path srcDir, int minTokens) {
+    return context.enableDuplicateCodeIndex().join().getDuplicates(minTokens).entrySet().stream()
+      .sorted(Map.Entry.comparingByKey())
+      .flatMap(entry -> entry.getValue().stream()
+        .map(duplicate -> new DuplicationInfo(srcDir.toString(), entry.getKey(), duplicate)))
+      .collect(Collectors.toList());
+  }
+
   private FileInfo getFileInfoFromFile(Path srcDir, File file) {
     String textDocumentContent;
     try {
@@ -214,7 +242,7 @@ public class AnalyzeCommand implements Callable<Integer> {
     FileInfo fileInfo = new FileInfo(filePath, mdoRef, diagnostics, metrics);
 
     // clean up AST after diagnostic computing to free up RAM.
-    documentContext.clearSecondaryData();
+    context.releaseContent(documentContext);
     diagnosticProvider.clearComputedDiagnostics(documentContext);
 
     return fileInfo;
@@ -24,23 +24,38 @@ package com.github._1c_syntax.bsl.languageserver.cli;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
 import com.github._1c_syntax.bsl.languageserver.providers.FormatProvider;
+import com.github._1c_syntax.bsl.languageserver.utils.TextEdits;
 import com.github._1c_syntax.utils.Absolute;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import me.tongfei.progressbar.ProgressBar;
 import me.tongfei.progressbar.ProgressBarStyle;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
 import org.eclipse.lsp4j.DocumentFormattingParams;
 import org.eclipse.lsp4j.FormattingOptions;
 import org.eclipse.lsp4j.TextEdit;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static picocli.CommandLine.Command;
 import static picocli.CommandLine.Option;
@@ -53,10 +68,16 @@ import static picocli.CommandLine.Option;
  *  -s, (--srcDir) &lt;arg&gt; -  Путь к каталогу исходных файлов.
  *                                Возможно указывать как в абсолютном, так и относительном виде. Если параметр опущен,
  *                                то анализ выполняется в текущем каталоге запуска.
+ *  --check                    -  Режим проверки. Файлы не изменяются, список неотформатированных файлов выводится
+ *                                в лог, при их наличии команда завершается с ненулевым кодом.
+ *  --changed-since &lt;rev&gt; -  Форматировать только файлы, измененные относительно указанной ревизии git,
+ *                                а также новые файлы, еще не добавленные в git (кроме игнорируемых).
+ *  -t, (--threads) &lt;count&gt; - Количество потоков форматирования. По умолчанию - количество процессоров.
  *  -q, (--silent)             -  Флаг для отключения вывода прогресс-бара и дополнительных сообщений в консоль
  * Выводимая информация:
  *  Выполняет форматирование исходного кода в файлах каталога. Для форматирования используются правила и настройки
  *  "форматтера" FormatProvider, т.е. пользователь никак не может овлиять на результат.
+ *  Перезаписываются только файлы, текст которых после форматирования изменился.
  */
 @Slf4j
 @Command(
@@ -82,6 +103,25 @@ public class FormatCommand implements Callable<Integer> {
     defaultValue = "")
   private String srcDirOption;
 
+  @Option(
+    names = {"--check"},
+    description = "Check formatting without writing files")
+  private boolean checkMode;
+
+  @Option(
+    names = {"--changed-since"},
+    description = "Format only files changed since git revision",
+    paramLabel = "<rev>",
+    defaultValue = "")
+  private String changedSinceOption;
+
+  @Option(
+    names = {"-t", "--threads"},
+    description = "Number of formatting threads (default: number of processors)",
+    paramLabel = "<count>",
+    defaultValue = "0")
+  private int threadsOption;
+
   @Option(
     names = {"-q", "--silent"},
     description = "Silent mode")
@@ -100,29 +140,167 @@ public class FormatCommand implements Callable<Integer> {
       return 1;
     }
 
-    Collection<File> files = FileUtils.listFiles(srcDir.toFile(), new String[]{"bsl", "os"}, true);
+    Optional<Collection<File>> foundFiles = findFiles(srcDir);
+    if (foundFiles.isEmpty()) {
+      return 1;
+    }
+    Collection<File> files = foundFiles.get();
 
+    List<File> unformattedFiles;
     if (silentMode) {
-      files.parallelStream().forEach(this::formatFile);
+      unformattedFiles = formatFiles(files, (File file) -> {
+        // no-op
+      });
     } else {
       try (ProgressBar pb = new ProgressBar("Formatting files...", files.size(), ProgressBarStyle.ASCII)) {
-        files.parallelStream()
-          .forEach((File file) -> {
-            pb.step();
-            formatFile(file);
-          });
+        unformattedFiles = formatFiles(files, file -> pb.step());
       }
     }
 
+    if (checkMode && !unformattedFiles.isEmpty()) {
+      unformattedFiles.stream()
+        .map(file -> srcDir.relativize(Absolute.path(file)).toString())
+        .sorted()
+        .forEach(path -> LOGGER.error("File `{}` is not formatted", path));
+      return 1;
+    }
+
     return 0;
   }
 
+  private Optional<Collection<File>> findFiles(Path srcDir) {
+    Collection<File> files = FileUtils.listFiles(srcDir.toFile(), new String[]{"bsl", "os"}, true);
+    if (changedSinceOption.isEmpty()) {
+      return Optional.of(files);
+    }
+
+    List<String> changedPaths = getChangedPaths(srcDir);
+    if (changedPaths == null) {
+      return Optional.empty();
+    }
+
+    var changedFiles = changedPaths.stream()
+      .map(path -> Absolute.path(srcDir.resolve(path).toFile()))
+      .collect(Collectors.toSet());
+
+    return Optional.of(files.stream()
+      .filter(file -> changedFiles.contains(Absolute.path(file)))
+      .collect(Collectors.toList()));
+  }
+
+  /**
+   * Получает список файлов, измененных относительно ревизии git.
+   * <p>
+   * Кроме файлов, измененных относительно ревизии, в список попадают неотслеживаемые файлы, не исключенные
+   * через .gitignore: новый модуль, еще не добавленный в индекс git, тоже считается измененным.
+   * Пути запрашиваются в формате с разделителем NUL ({@code -z}), поэтому имена с кириллицей и другими
+   * не-ASCII символами не экранируются git.
+   *
+   * @param srcDir каталог исходников внутри рабочей копии git
+   * @return пути файлов относительно каталога исходников или null при ошибке вызова git
+   */
+  @CheckForNull
+  private List<String> getChangedPaths(Path srcDir) {
+    List<String> changedPaths = runGit(
+      srcDir,
+      "git", "diff", "--name-only", "--relative", "--diff-filter=ACMR", "-z", changedSinceOption, "--"
+    );
+    List<String> untrackedPaths = runGit(srcDir, "git", "ls-files", "--others", "--exclude-standard", "-z");
+    if (changedPaths == null || untrackedPaths == null) {
+      return null;
+    }
+
+    return Stream.concat(changedPaths.stream(), untrackedPaths.stream())
+      .filter(path -> FilenameUtils.isExtension(path, new String[]{"bsl", "os"}))
+      .distinct()
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Запускает команду git и разбирает ее вывод в формате {@code -z}.
+   *
+   * @return пути из вывода команды или null при ошибке вызова git
+   */
+  @CheckForNull
+  private List<String> runGit(Path srcDir, String... command) {
+    var processBuilder = new ProcessBuilder(command);
+    processBuilder.directory(srcDir.toFile());
+    processBuilder.redirectErrorStream(true);
+
+    try {
+      Process process = processBuilder.start();
+      String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+      if (process.waitFor() != 0) {
+        LOGGER.error("Can't get files changed since `{}`: {}", changedSinceOption, output);
+        return null;
+      }
+      return Arrays.stream(output.split("\0"))
+        .filter(path -> !path.isEmpty())
+        .collect(Collectors.toList());
+    } catch (IOException e) {
+      LOGGER.error("Can't run git", e);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Форматирует файлы в ограниченном пуле потоков.
+   *
+   * @param files  файлы для форматирования
+   * @param onFile обработчик завершения форматирования файла
+   * @return файлы, текст которых изменился (или изменился бы в режиме проверки)
+   */
+  @SneakyThrows
+  private List<File> formatFiles(Collection<File> files, Consumer<File> onFile) {
+    int threads = threadsOption > 0 ? threadsOption : Runtime.getRuntime().availableProcessors();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>(files.size());
+      List<File> submittedFiles = new ArrayList<>(files);
+      submittedFiles.forEach(file -> futures.add(executorService.submit(() -> {
+        boolean changed = formatFile(file);
+        onFile.accept(file);
+        return changed;
+      })));
+
+      List<File> changedFiles = new ArrayList<>();
+      for (var i = 0; i < futures.size(); i++) {
+        if (Boolean.TRUE.equals(getResult(futures.get(i)))) {
+          changedFiles.add(submittedFiles.get(i));
+        }
+      }
+      return changedFiles;
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
   @SneakyThrows
-  private void formatFile(File file) {
+  private static Boolean getResult(Future<Boolean> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Форматирует файл.
+   *
+   * @param file форматируемый файл
+   * @return признак изменения текста файла
+   */
+  @SneakyThrows
+  private boolean formatFile(File file) {
     String textDocumentContent = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
     final URI uri = file.toURI();
 
-    DocumentContext documentContext = serverContext.addDocument(uri, textDocumentContent);
+    // для форматирования нужны только токены, поэтому документ не регистрируется в контексте
+    DocumentContext documentContext = new DocumentContext(Absolute.uri(uri), textDocumentContent, serverContext);
 
     DocumentFormattingParams params = new DocumentFormattingParams();
     FormattingOptions options = new FormattingOptions();
@@ -131,15 +309,19 @@ public class FormatCommand implements Callable<Integer> {
     params.setOptions(options);
     final List<TextEdit> formatting = FormatProvider.getFormatting(params, documentContext);
 
-    serverContext.removeDocument(uri);
-
     if (formatting.isEmpty()) {
-      return;
+      return false;
     }
 
-    final TextEdit textEdit = formatting.get(0);
-    final String newText = textEdit.getNewText();
-    FileUtils.writeStringToFile(file, newText, StandardCharsets.UTF_8);
+    final String newText = TextEdits.apply(textDocumentContent, formatting);
+    if (newText.equals(textDocumentContent)) {
+      return false;
+    }
+
+    if (!checkMode) {
+      FileUtils.writeStringToFile(file, newText, StandardCharsets.UTF_8);
+    }
+    return true;
   }
 
 }
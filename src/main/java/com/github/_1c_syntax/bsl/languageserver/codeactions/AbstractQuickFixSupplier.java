@@ -23,12 +23,14 @@ package com.github._1c_syntax.bsl.languageserver.codeactions;
 
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import com.github._1c_syntax.bsl.languageserver.providers.DocumentDiagnostics;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionKind;
 import org.eclipse.lsp4j.CodeActionParams;
 import org.eclipse.lsp4j.Diagnostic;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -56,10 +58,11 @@ public abstract class AbstractQuickFixSupplier implements CodeActionSupplier {
       return Collections.emptyList();
     }
 
-    Set<Diagnostic> computedDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext);
+    DocumentDiagnostics computedDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext);
+    Set<Diagnostic> diagnosticsInRange = new HashSet<>(computedDiagnostics.getDiagnostics(params.getRange()));
 
     Stream<Diagnostic> diagnosticStream = incomingDiagnostics.stream()
-      .filter(computedDiagnostics::contains);
+      .filter(diagnosticsInRange::contains);
 
     return processDiagnosticStream(diagnosticStream, params, documentContext)
       .collect(Collectors.toList());
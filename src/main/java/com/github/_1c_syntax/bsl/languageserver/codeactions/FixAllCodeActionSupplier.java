@@ -34,7 +34,6 @@ import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class FixAllCodeActionSupplier extends AbstractQuickFixSupplier {
@@ -69,9 +68,8 @@ public class FixAllCodeActionSupplier extends AbstractQuickFixSupplier {
       return Collections.emptyList();
     }
 
-    List<Diagnostic> suitableDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext).stream()
-      .filter(diagnostic -> diagnosticCode.equals(diagnostic.getCode()))
-      .collect(Collectors.toList());
+    List<Diagnostic> suitableDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext)
+      .getDiagnostics(diagnosticCode);
 
     // if incomingDiagnostics list is empty - nothing to fix
     // if incomingDiagnostics list has size = 1 - it will be displayed as regular quick fix
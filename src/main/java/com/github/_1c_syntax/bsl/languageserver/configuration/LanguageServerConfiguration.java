@@ -28,6 +28,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github._1c_syntax.bsl.languageserver.configuration.codelens.CodeLensOptions;
 import com.github._1c_syntax.bsl.languageserver.configuration.diagnostics.DiagnosticsOptions;
 import com.github._1c_syntax.bsl.languageserver.configuration.documentlink.DocumentLinkOptions;
+import com.github._1c_syntax.bsl.languageserver.configuration.files.FilesOptions;
+import com.github._1c_syntax.bsl.languageserver.utils.WorkspaceFiles;
 import com.github._1c_syntax.utils.Absolute;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -36,14 +38,9 @@ import lombok.extern.slf4j.Slf4j;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static com.fasterxml.jackson.databind.MapperFeature.ACCEPT_CASE_INSENSITIVE_ENUMS;
 
@@ -59,8 +56,6 @@ import static com.fasterxml.jackson.databind.MapperFeature.ACCEPT_CASE_INSENSITI
 @JsonIgnoreProperties(ignoreUnknown = true)
 public final class LanguageServerConfiguration {
 
-  private static final Pattern searchConfiguration = Pattern.compile("Configuration\\.(xml|mdo)$");
-
   private Language language;
 
   @JsonProperty("diagnostics")
@@ -72,6 +67,9 @@ public final class LanguageServerConfiguration {
   @JsonProperty("documentLink")
   private final DocumentLinkOptions documentLinkOptions;
 
+  @JsonProperty("files")
+  private final FilesOptions filesOptions;
+
   @Nullable
   private File traceLog;
 
@@ -84,6 +82,7 @@ public final class LanguageServerConfiguration {
       new DiagnosticsOptions(),
       new CodeLensOptions(),
       new DocumentLinkOptions(),
+      new FilesOptions(),
       null,
       null
     );
@@ -113,6 +112,26 @@ public final class LanguageServerConfiguration {
   }
 
   public static Path getCustomConfigurationRoot(LanguageServerConfiguration configuration, Path srcDir) {
+    return getCustomConfigurationRoot(
+      configuration,
+      srcDir,
+      WorkspaceFiles.scan(srcDir, configuration.getFilesOptions())
+    );
+  }
+
+  /**
+   * Определение корня конфигурации по уже выполненному обходу каталога исходных файлов.
+   *
+   * @param configuration  конфигурация BSL Language Server
+   * @param srcDir         каталог исходных файлов
+   * @param workspaceFiles результат обхода каталога исходных файлов
+   * @return корень конфигурации или {@code null}, если путь из конфигурации находится вне каталога исходных файлов
+   */
+  public static Path getCustomConfigurationRoot(
+    LanguageServerConfiguration configuration,
+    Path srcDir,
+    WorkspaceFiles workspaceFiles
+  ) {
 
     Path rootPath = null;
     Path pathFromConfiguration = configuration.getConfigurationRoot();
@@ -129,7 +148,7 @@ public final class LanguageServerConfiguration {
     }
 
     if (rootPath != null) {
-      File fileConfiguration = getConfigurationFile(rootPath);
+      File fileConfiguration = getConfigurationFile(rootPath, configuration, workspaceFiles);
       if (fileConfiguration != null) {
         if (fileConfiguration.getAbsolutePath().endsWith(".mdo")) {
           rootPath = Optional.of(fileConfiguration.toPath())
@@ -149,15 +168,18 @@ public final class LanguageServerConfiguration {
 
   }
 
-  private static File getConfigurationFile(Path rootPath) {
+  @Nullable
+  private static File getConfigurationFile(
+    Path rootPath,
+    LanguageServerConfiguration configuration,
+    WorkspaceFiles workspaceFiles
+  ) {
+    var scannedFiles = workspaceFiles.covers(rootPath)
+      ? workspaceFiles
+      : WorkspaceFiles.scan(rootPath, configuration.getFilesOptions());
+
     File configurationFile = null;
-    List<Path> listPath = new ArrayList<>();
-    try (Stream<Path> stream = Files.find(rootPath, 50, (path, basicFileAttributes) ->
-      basicFileAttributes.isRegularFile() && searchConfiguration.matcher(path.getFileName().toString()).find())) {
-      listPath = stream.collect(Collectors.toList());
-    } catch (IOException e) {
-      LOGGER.error("Error on read configuration file", e);
-    }
+    List<Path> listPath = scannedFiles.getConfigurationFiles(rootPath);
     if (!listPath.isEmpty()) {
       configurationFile = listPath.get(0).toFile();
     }
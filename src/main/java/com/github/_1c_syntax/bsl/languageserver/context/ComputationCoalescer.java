@@ -0,0 +1,156 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых вычислений по одному снимку документа.
+ * <p>
+ * При открытии файла клиент почти одновременно запрашивает символы, области сворачивания, линзы, ссылки
+ * и действия. Вычисление с одним и тем же именем для одного и того же снимка документа, уже находящееся
+ * в работе, не запускается повторно: все запросившие получают результат общего {@link CompletableFuture}.
+ * <p>
+ * Снимки сравниваются по ссылке, а не по адресу и номеру версии: номера версий начинаются заново у каждого
+ * нового снимка, созданного после закрытия и повторного открытия документа, и не отличают его от старого.
+ * <p>
+ * Вычисление может зависеть от других вычислений. Оно ставится в очередь только после их завершения,
+ * поэтому потоки не блокируются в ожидании общих данных документа (AST, дерева символов и т.д.),
+ * а выстраиваются в небольшой граф зависимостей.
+ */
+public class ComputationCoalescer {
+
+  private final Map<ComputationKey, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+  private final Executor executor;
+
+  public ComputationCoalescer() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public ComputationCoalescer(Executor executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * Запустить вычисление или присоединиться к уже запущенному.
+   *
+   * @param documentContext контекст документа
+   * @param name            имя вычисления, уникальное в пределах документа
+   * @param dependencies    вычисления, которые должны завершиться до начала текущего
+   * @param supplier        функция вычисления
+   * @param <T>             тип результата
+   * @return результат вычисления. Отмена возвращенного {@link CompletableFuture} не влияет
+   * на других ожидающих того же вычисления.
+   */
+  public <T> CompletableFuture<T> submit(
+    DocumentContext documentContext,
+    String name,
+    List<CompletableFuture<?>> dependencies,
+    Supplier<T> supplier
+  ) {
+    var key = new ComputationKey(documentContext, name);
+    var created = new CompletableFuture<T>();
+
+    @SuppressWarnings("unchecked")
+    var existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, created);
+    if (existing != null) {
+      return existing.copy();
+    }
+
+    after(dependencies, supplier).whenComplete((T result, Throwable exception) -> {
+      inFlight.remove(key, created);
+      if (exception == null) {
+        created.complete(result);
+      } else {
+        created.completeExceptionally(exception);
+      }
+    });
+
+    return created.copy();
+  }
+
+  public <T> CompletableFuture<T> submit(DocumentContext documentContext, String name, Supplier<T> supplier) {
+    return submit(documentContext, name, List.of(), supplier);
+  }
+
+  /**
+   * Запустить вычисление без объединения с другими после завершения зависимостей.
+   * <p>
+   * Используется для вычислений, зависящих от параметров запроса.
+   *
+   * @param dependencies вычисления, которые должны завершиться до начала текущего
+   * @param supplier     функция вычисления
+   * @param <T>          тип результата
+   * @return результат вычисления
+   */
+  public <T> CompletableFuture<T> after(List<CompletableFuture<?>> dependencies, Supplier<T> supplier) {
+    if (dependencies.isEmpty()) {
+      return CompletableFuture.supplyAsync(supplier, executor);
+    }
+
+    return CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+      .thenApplyAsync(ignored -> supplier.get(), executor);
+  }
+
+  /**
+   * @return количество вычислений, находящихся в работе
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  /**
+   * Ключ вычисления: снимок документа (по ссылке) и имя вычисления.
+   */
+  private static final class ComputationKey {
+    private final DocumentContext documentContext;
+    private final String name;
+
+    private ComputationKey(DocumentContext documentContext, String name) {
+      this.documentContext = documentContext;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof ComputationKey)) {
+        return false;
+      }
+      var other = (ComputationKey) obj;
+      return documentContext == other.documentContext && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(documentContext) + name.hashCode();
+    }
+  }
+}
@@ -26,10 +26,18 @@ import com.github._1c_syntax.bsl.languageserver.context.computer.ComplexityData;
 import com.github._1c_syntax.bsl.languageserver.context.computer.Computer;
 import com.github._1c_syntax.bsl.languageserver.context.computer.CyclomaticComplexityComputer;
 import com.github._1c_syntax.bsl.languageserver.context.computer.DiagnosticIgnoranceComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.MethodCallIndex;
+import com.github._1c_syntax.bsl.languageserver.context.computer.MethodCallIndexComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.ParseTreeIndex;
+import com.github._1c_syntax.bsl.languageserver.context.computer.ParseTreeIndexComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.StructuralHashComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.StructuralHashes;
 import com.github._1c_syntax.bsl.languageserver.context.computer.SymbolTreeComputer;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTree;
-import com.github._1c_syntax.bsl.languageserver.utils.Trees;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.VariableSymbol;
+import com.github._1c_syntax.bsl.languageserver.jfr.ComputerEvent;
+import com.github._1c_syntax.bsl.languageserver.jfr.DocumentParseEvent;
 import com.github._1c_syntax.bsl.parser.BSLLexer;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
@@ -47,47 +55,108 @@ import org.apache.commons.io.FilenameUtils;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
 
+import javax.annotation.CheckForNull;
 import java.net.URI;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Objects.requireNonNull;
 import static org.antlr.v4.runtime.Token.DEFAULT_CHANNEL;
 
+/**
+ * Снимок документа определенной версии.
+ * <p>
+ * Содержимое снимка не меняется: при изменении документа {@link ServerContext} создает новый снимок
+ * и атомарно заменяет им текущий. Запросы, начатые по предыдущему снимку, завершаются по нему же.
+ * Производные данные (токены, AST, дерево символов, метрики и т.д.) вычисляются лениво и независимо друг
+ * от друга, поэтому долгое вычисление одних данных не блокирует получение других.
+ * <p>
+ * Для документов, не открытых в редакторе, контекст сервера хранит снимок без содержимого
+ * ({@link #withoutContent()}), в котором сохраняются только дерево символов и данные метаданных.
+ */
 public class DocumentContext {
 
   private final URI uri;
   private final FileType fileType;
-  private String content;
+  @CheckForNull
+  private final String content;
   private final ServerContext context;
-  private Tokenizer tokenizer;
-
-  private final ReentrantLock computeLock = new ReentrantLock();
-
-  private final Lazy<String[]> contentList = new Lazy<>(this::computeContentList, computeLock);
-  private final Lazy<ModuleType> moduleType = new Lazy<>(this::computeModuleType, computeLock);
+  @CheckForNull
+  private final Tokenizer tokenizer;
+  private final int version;
+
+  private final Lazy<List<Token>> tokens = new Lazy<>(this::computeTokens);
+  private final Lazy<BSLParser.FileContext> ast = new Lazy<>(this::computeAst);
+  private final Lazy<String[]> contentList = new Lazy<>(this::computeContentList);
+  private final Lazy<ModuleType> moduleType = new Lazy<>(this::computeModuleType);
   private final Lazy<Map<SupportConfiguration, SupportVariant>> supportVariants
-    = new Lazy<>(this::computeSupportVariants, computeLock);
-  private final Lazy<SymbolTree> symbolTree = new Lazy<>(this::computeSymbolTree, computeLock);
+    = new Lazy<>(this::computeSupportVariants);
+  private final Lazy<SymbolTree> symbolTree;
   private final Lazy<ComplexityData> cognitiveComplexityData
-    = new Lazy<>(this::computeCognitiveComplexity, computeLock);
+    = new Lazy<>(this::computeCognitiveComplexity);
   private final Lazy<ComplexityData> cyclomaticComplexityData
-    = new Lazy<>(this::computeCyclomaticComplexity, computeLock);
+    = new Lazy<>(this::computeCyclomaticComplexity);
   private final Lazy<DiagnosticIgnoranceComputer.Data> diagnosticIgnoranceData
-    = new Lazy<>(this::computeDiagnosticIgnorance, computeLock);
-  private final Lazy<MetricStorage> metrics = new Lazy<>(this::computeMetrics, computeLock);
+    = new Lazy<>(this::computeDiagnosticIgnorance);
+  private final Lazy<ParseTreeIndex> parseTreeIndex = new Lazy<>(this::computeParseTreeIndex);
+  private final Lazy<StructuralHashes> structuralHashes
+    = new Lazy<>(this::computeStructuralHashes);
+  private final Lazy<MethodCallIndex> methodCallIndex = new Lazy<>(this::computeMethodCallIndex);
+  private final Lazy<MetricStorage> metrics = new Lazy<>(this::computeMetrics);
+  private final ProviderResultCache providerResultCache = new ProviderResultCache(this::getVersion);
 
   public DocumentContext(URI uri, String content, ServerContext context) {
+    this(uri, content, context, 0);
+  }
+
+  DocumentContext(URI uri, String content, ServerContext context, int version) {
     this.uri = Absolute.uri(uri);
     this.content = content;
     this.context = context;
     this.tokenizer = new Tokenizer(content);
     this.fileType = computeFileType(this.uri);
+    this.version = version;
+    this.symbolTree = new Lazy<>(this::computeSymbolTree);
+  }
+
+  private DocumentContext(DocumentContext documentContext, SymbolTree symbolTree) {
+    this.uri = documentContext.uri;
+    this.content = null;
+    this.context = documentContext.context;
+    this.tokenizer = null;
+    this.fileType = documentContext.fileType;
+    this.version = documentContext.version + 1;
+    this.symbolTree = new Lazy<>(() -> symbolTree);
+  }
+
+  /**
+   * Создать снимок следующей версии документа.
+   * <p>
+   * Текущий снимок не изменяется.
+   *
+   * @param content новое содержимое документа
+   * @return новый снимок документа
+   */
+  public DocumentContext withContent(String content) {
+    return new DocumentContext(uri, content, context, getVersion() + 1);
+  }
+
+  /**
+   * Создать снимок следующей версии документа без содержимого.
+   * <p>
+   * Новый снимок хранит только дерево символов текущего снимка, содержимое и остальные производные
+   * данные в нем недоступны. Текущий снимок не изменяется, поэтому запросы, начатые по нему,
+   * завершаются без ошибок.
+   *
+   * @return новый снимок документа без содержимого
+   */
+  public DocumentContext withoutContent() {
+    return new DocumentContext(this, getSymbolTree());
   }
 
   public ServerContext getServerContext() {
@@ -99,13 +168,20 @@ public class DocumentContext {
     return content;
   }
 
+  /**
+   * @return {@code true}, если снимок хранит содержимое документа, т.е. не создан через {@link #withoutContent()}
+   */
+  public boolean hasContent() {
+    return content != null;
+  }
+
   public String[] getContentList() {
     return contentList.getOrCompute();
   }
 
   public BSLParser.FileContext getAst() {
     requireNonNull(content);
-    return tokenizer.getAst();
+    return ast.getOrCompute();
   }
 
   public SymbolTree getSymbolTree() {
@@ -114,7 +190,7 @@ public class DocumentContext {
 
   public List<Token> getTokens() {
     requireNonNull(content);
-    return tokenizer.getTokens();
+    return tokens.getOrCompute();
   }
 
   public List<Token> getTokensFromDefaultChannel() {
@@ -165,6 +241,19 @@ public class DocumentContext {
     return uri;
   }
 
+  /**
+   * Номер версии вычисленных данных документа.
+   * <p>
+   * Каждый следующий снимок документа, в том числе снимок без содержимого, получает больший номер,
+   * поэтому номер может использоваться как ключ кэширования результатов, вычисленных по содержимому
+   * документа.
+   *
+   * @return номер версии
+   */
+  public int getVersion() {
+    return version;
+  }
+
   public FileType getFileType() {
     return fileType;
   }
@@ -181,6 +270,22 @@ public class DocumentContext {
     return diagnosticIgnoranceData.getOrCompute();
   }
 
+  public ParseTreeIndex getParseTreeIndex() {
+    return parseTreeIndex.getOrCompute();
+  }
+
+  public StructuralHashes getStructuralHashes() {
+    return structuralHashes.getOrCompute();
+  }
+
+  public MethodCallIndex getMethodCallIndex() {
+    return methodCallIndex.getOrCompute();
+  }
+
+  public ProviderResultCache getProviderResultCache() {
+    return providerResultCache;
+  }
+
   public ModuleType getModuleType() {
     return moduleType.getOrCompute();
   }
@@ -193,28 +298,6 @@ public class DocumentContext {
     return Optional.ofNullable(getServerContext().getConfiguration().getModulesByObject().get(getUri()));
   }
 
-  public void rebuild(String content) {
-    computeLock.lock();
-    clearSecondaryData();
-    symbolTree.clear();
-    this.content = content;
-    tokenizer = new Tokenizer(content);
-    computeLock.unlock();
-  }
-
-  public void clearSecondaryData() {
-    computeLock.lock();
-    content = null;
-    contentList.clear();
-    tokenizer = null;
-
-    cognitiveComplexityData.clear();
-    cyclomaticComplexityData.clear();
-    metrics.clear();
-    diagnosticIgnoranceData.clear();
-    computeLock.unlock();
-  }
-
   private static FileType computeFileType(URI uri) {
     String uriPath = uri.getPath();
     if (uriPath == null) {
@@ -233,12 +316,43 @@ public class DocumentContext {
     return fileTypeFromUri;
   }
 
+  private List<Token> computeTokens() {
+    var event = new DocumentParseEvent(uri, content.length(), "tokens");
+    event.begin();
+    try {
+      return tokenizer.getTokens();
+    } finally {
+      event.commit();
+    }
+  }
+
+  private BSLParser.FileContext computeAst() {
+    var event = new DocumentParseEvent(uri, content.length(), "ast");
+    event.begin();
+    try {
+      return tokenizer.getAst();
+    } finally {
+      event.commit();
+    }
+  }
+
   private String[] computeContentList() {
     return getContent().split("\n", -1);
   }
 
   private SymbolTree computeSymbolTree() {
-    return new SymbolTreeComputer(this).compute();
+    SymbolTree computedSymbolTree = ComputerEvent.compute(uri, new SymbolTreeComputer(this));
+
+    // коды имен удерживаются в таблице идентификаторов только для актуального снимка документа
+    if (context.getDocument(uri) == this) {
+      int[] nameIds = IntStream.concat(
+        computedSymbolTree.getMethods().stream().mapToInt(MethodSymbol::getNameId),
+        computedSymbolTree.getVariables().stream().mapToInt(VariableSymbol::getNameId)
+      ).toArray();
+      context.getIdentifierTable().retain(uri, nameIds);
+    }
+
+    return computedSymbolTree;
   }
 
 
@@ -252,12 +366,12 @@ public class DocumentContext {
 
   private ComplexityData computeCognitiveComplexity() {
     Computer<ComplexityData> cognitiveComplexityComputer = new CognitiveComplexityComputer(this);
-    return cognitiveComplexityComputer.compute();
+    return ComputerEvent.compute(uri, cognitiveComplexityComputer);
   }
 
   private ComplexityData computeCyclomaticComplexity() {
     Computer<ComplexityData> cyclomaticComplexityComputer = new CyclomaticComplexityComputer(this);
-    return cyclomaticComplexityComputer.compute();
+    return ComputerEvent.compute(uri, cyclomaticComplexityComputer);
   }
 
   private MetricStorage computeMetrics() {
@@ -291,7 +405,7 @@ public class DocumentContext {
       .count();
     metricsTemp.setComments(comments);
 
-    int statements = Trees.findAllRuleNodes(getAst(), BSLParser.RULE_statement).size();
+    int statements = getParseTreeIndex().findAllRuleNodes(BSLParser.RULE_statement).size();
     metricsTemp.setStatements(statements);
 
     metricsTemp.setCognitiveComplexity(getCognitiveComplexityData().getFileComplexity());
@@ -302,7 +416,7 @@ public class DocumentContext {
 
   private int[] computeCovlocData() {
 
-    return Trees.getDescendants(getAst()).stream()
+    return getParseTreeIndex().getDescendants().stream()
       .filter(Predicate.not(TerminalNodeImpl.class::isInstance))
       .filter(DocumentContext::mustCovered)
       .mapToInt(node -> ((BSLParserRuleContext) node).getStart().getLine())
@@ -318,7 +432,22 @@ public class DocumentContext {
 
   private DiagnosticIgnoranceComputer.Data computeDiagnosticIgnorance() {
     Computer<DiagnosticIgnoranceComputer.Data> diagnosticIgnoranceComputer = new DiagnosticIgnoranceComputer(this);
-    return diagnosticIgnoranceComputer.compute();
+    return ComputerEvent.compute(uri, diagnosticIgnoranceComputer);
+  }
+
+  private ParseTreeIndex computeParseTreeIndex() {
+    Computer<ParseTreeIndex> parseTreeIndexComputer = new ParseTreeIndexComputer(this);
+    return ComputerEvent.compute(uri, parseTreeIndexComputer);
+  }
+
+  private StructuralHashes computeStructuralHashes() {
+    Computer<StructuralHashes> structuralHashComputer = new StructuralHashComputer(this);
+    return ComputerEvent.compute(uri, structuralHashComputer);
+  }
+
+  private MethodCallIndex computeMethodCallIndex() {
+    Computer<MethodCallIndex> methodCallIndexComputer = new MethodCallIndexComputer(this);
+    return ComputerEvent.compute(uri, methodCallIndexComputer);
   }
 
 }
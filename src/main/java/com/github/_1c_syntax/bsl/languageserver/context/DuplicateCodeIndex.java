@@ -0,0 +1,543 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import lombok.Value;
+import org.antlr.v4.runtime.Token;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Range;
+
+import javax.annotation.CheckForNull;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Индекс дублирования кода рабочей области.
+ * <p>
+ * Документ представляется последовательностью хешей n-грамм из {@link #NGRAM_SIZE} лексем основного канала,
+ * посчитанных скользящим полиномиальным хешем. Регистр лексем не учитывается, за исключением строковых литералов.
+ * Для экономии памяти в индекс попадают только отпечатки, отобранные просеиванием (winnowing): минимальный
+ * хеш в каждом окне из {@link #WINDOW_SIZE} n-грамм. Это гарантирует обнаружение любого совпадения длиной
+ * не менее {@link #GUARANTEED_TOKENS} лексем.
+ * <p>
+ * Совпавшие отпечатки, лежащие на одной диагонали (с одинаковым смещением во втором документе), склеиваются
+ * в блоки. Индекс обновляется инкрементально при добавлении, изменении и удалении документов
+ * и потокобезопасен.
+ * <p>
+ * Отпечаток, встретившийся более чем в {@link #MAX_OCCURRENCES} документах, считается шаблонным кодом
+ * и становится стоп-отпечатком: список его документов больше не хранится и не участвует в поиске ни для
+ * одного документа. Для стоп-отпечатка ведется только счетчик документов, поэтому удаление документов
+ * остается корректным; обычным отпечатком он снова становится только после удаления всех его документов.
+ */
+public class DuplicateCodeIndex {
+
+  /**
+   * Длина n-граммы в лексемах.
+   */
+  public static final int NGRAM_SIZE = 25;
+  /**
+   * Размер окна просеивания в n-граммах.
+   */
+  public static final int WINDOW_SIZE = 25;
+  /**
+   * Минимальная длина совпадения в лексемах, которое гарантированно будет найдено.
+   */
+  public static final int GUARANTEED_TOKENS = NGRAM_SIZE + WINDOW_SIZE - 1;
+  /**
+   * Минимальная длина дубля в лексемах по умолчанию.
+   */
+  public static final int DEFAULT_MIN_TOKENS = 100;
+
+  // отпечатки, встречающиеся чаще, считаются шаблонным кодом и не участвуют в поиске
+  private static final int MAX_OCCURRENCES = 256;
+  private static final long BASE = 1_000_003L;
+  private static final long BASE_POWER = power(BASE, NGRAM_SIZE - 1);
+  private static final long SEED = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private final Map<URI, Fingerprints> fingerprintsByUri = new ConcurrentHashMap<>();
+  private final Map<Long, Posting> postings = new ConcurrentHashMap<>();
+
+  /**
+   * Добавляет документ в индекс или обновляет его отпечатки.
+   *
+   * @param documentContext документ с загруженным содержимым
+   */
+  public void addDocument(DocumentContext documentContext) {
+    addDocument(documentContext, () -> true);
+  }
+
+  /**
+   * Добавляет документ в индекс или обновляет его отпечатки, если документ все еще актуален.
+   * <p>
+   * Актуальность проверяется под блокировкой адреса документа в индексе, поэтому регистрация устаревшего
+   * снимка, завершившаяся после регистрации или удаления более нового, игнорируется.
+   *
+   * @param documentContext документ с загруженным содержимым
+   * @param isCurrent       проверка актуальности документа
+   */
+  public void addDocument(DocumentContext documentContext, BooleanSupplier isCurrent) {
+    URI uri = documentContext.getUri();
+    var fingerprints = Fingerprints.create(uri, documentContext.getTokensFromDefaultChannel());
+    fingerprintsByUri.compute(uri, (URI key, Fingerprints previous) -> {
+      if (!isCurrent.getAsBoolean()) {
+        return previous;
+      }
+      if (previous != null) {
+        unregister(previous);
+      }
+      register(fingerprints);
+      return fingerprints;
+    });
+  }
+
+  /**
+   * Удаляет документ из индекса.
+   *
+   * @param uri адрес документа
+   */
+  public void removeDocument(URI uri) {
+    fingerprintsByUri.computeIfPresent(uri, (URI key, Fingerprints previous) -> {
+      unregister(previous);
+      return null;
+    });
+  }
+
+  public boolean contains(URI uri) {
+    return fingerprintsByUri.containsKey(uri);
+  }
+
+  public void clear() {
+    fingerprintsByUri.clear();
+    postings.clear();
+  }
+
+  /**
+   * Ищет продублированные блоки документа.
+   *
+   * @param uri       адрес документа
+   * @param minTokens минимальная длина блока в лексемах
+   * @return блоки документа в порядке следования с расположением остальных копий
+   */
+  public List<CodeDuplicate> getDuplicates(URI uri, int minTokens) {
+    var own = fingerprintsByUri.get(uri);
+    if (own == null || own.size() == 0) {
+      return Collections.emptyList();
+    }
+
+    List<Block> blocks = findBlocks(own, minTokens);
+    if (blocks.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    return groupBlocks(own, blocks);
+  }
+
+  /**
+   * Ищет продублированные блоки во всех документах индекса.
+   *
+   * @param minTokens минимальная длина блока в лексемах
+   * @return продублированные блоки по адресам документов
+   */
+  public Map<URI, List<CodeDuplicate>> getDuplicates(int minTokens) {
+    return fingerprintsByUri.keySet().parallelStream()
+      .map(uri -> Map.entry(uri, getDuplicates(uri, minTokens)))
+      .filter(entry -> !entry.getValue().isEmpty())
+      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+  }
+
+  private void register(Fingerprints fingerprints) {
+    URI uri = fingerprints.getUri();
+    fingerprints.distinctHashes().forEach(hash -> postings.compute(hash, (Long key, Posting posting) -> {
+      if (posting == null) {
+        return new Posting(1, new URI[]{uri});
+      }
+      var uris = posting.getUris();
+      if (uris == null || uris.length >= MAX_OCCURRENCES) {
+        return new Posting(posting.getCount() + 1, null);
+      }
+      if (Arrays.asList(uris).contains(uri)) {
+        return posting;
+      }
+      var newUris = Arrays.copyOf(uris, uris.length + 1);
+      newUris[uris.length] = uri;
+      return new Posting(newUris.length, newUris);
+    }));
+  }
+
+  private void unregister(Fingerprints fingerprints) {
+    URI uri = fingerprints.getUri();
+    fingerprints.distinctHashes().forEach(hash -> postings.computeIfPresent(hash, (Long key, Posting posting) -> {
+      var uris = posting.getUris();
+      if (uris == null) {
+        return posting.getCount() == 1 ? null : new Posting(posting.getCount() - 1, null);
+      }
+      var newUris = Arrays.stream(uris)
+        .filter(other -> !other.equals(uri))
+        .toArray(URI[]::new);
+      return newUris.length == 0 ? null : new Posting(newUris.length, newUris);
+    }));
+  }
+
+  private List<Block> findBlocks(Fingerprints own, int minTokens) {
+    List<Block> blocks = new ArrayList<>();
+    Map<Diagonal, Block> openBlocks = new HashMap<>();
+
+    for (var ownIndex = 0; ownIndex < own.size(); ownIndex++) {
+      long hash = own.getHash(ownIndex);
+      var posting = postings.get(hash);
+      if (posting == null || posting.getUris() == null) {
+        continue;
+      }
+      URI[] uris = posting.getUris();
+
+      for (URI otherUri : uris) {
+        var other = fingerprintsByUri.get(otherUri);
+        if (other == null) {
+          continue;
+        }
+
+        int[] positions = other.positionsOf(hash);
+        if (positions.length > MAX_OCCURRENCES) {
+          continue;
+        }
+
+        for (int otherIndex : positions) {
+          if (other == own && otherIndex == ownIndex) {
+            continue;
+          }
+
+          var diagonal = new Diagonal(other, other.getTokenIndex(otherIndex) - own.getTokenIndex(ownIndex));
+          var block = openBlocks.get(diagonal);
+          if (block != null && own.getTokenIndex(ownIndex) - own.getTokenIndex(block.getOwnLast()) <= WINDOW_SIZE) {
+            block.extend(ownIndex, otherIndex);
+          } else {
+            if (block != null) {
+              addBlock(blocks, own, block, minTokens);
+            }
+            openBlocks.put(diagonal, new Block(diagonal, ownIndex, otherIndex));
+          }
+        }
+      }
+    }
+
+    openBlocks.values().forEach(block -> addBlock(blocks, own, block, minTokens));
+    return blocks;
+  }
+
+  private static void addBlock(List<Block> blocks, Fingerprints own, Block block, int minTokens) {
+    int tokenCount = own.getTokenIndex(block.getOwnLast()) - own.getTokenIndex(block.getOwnFirst()) + NGRAM_SIZE;
+    if (tokenCount < minTokens) {
+      return;
+    }
+
+    // повторы внутри документа, перекрывающие сами себя, дублированием не считаются
+    var diagonal = block.getDiagonal();
+    if (diagonal.getOther() == own && Math.abs(diagonal.getOffset()) < tokenCount) {
+      return;
+    }
+
+    blocks.add(block);
+  }
+
+  private static List<CodeDuplicate> groupBlocks(Fingerprints own, List<Block> blocks) {
+    blocks.sort(Comparator.comparingInt(block -> own.getTokenIndex(block.getOwnFirst())));
+
+    List<CodeDuplicate> duplicates = new ArrayList<>();
+    var first = blocks.get(0).getOwnFirst();
+    var last = blocks.get(0).getOwnLast();
+    Set<Location> copies = new LinkedHashSet<>();
+
+    for (Block block : blocks) {
+      if (own.getTokenIndex(block.getOwnFirst()) > own.getTokenIndex(last) + NGRAM_SIZE - 1) {
+        duplicates.add(createDuplicate(own, first, last, copies));
+        first = block.getOwnFirst();
+        last = block.getOwnLast();
+        copies = new LinkedHashSet<>();
+      } else if (block.getOwnLast() > last) {
+        last = block.getOwnLast();
+      }
+      var other = block.getDiagonal().getOther();
+      copies.add(new Location(
+        other.getUri().toString(),
+        other.getRange(block.getOtherFirst(), block.getOtherLast())
+      ));
+    }
+    duplicates.add(createDuplicate(own, first, last, copies));
+
+    return duplicates;
+  }
+
+  private static CodeDuplicate createDuplicate(Fingerprints own, int first, int last, Set<Location> copies) {
+    int tokenCount = own.getTokenIndex(last) - own.getTokenIndex(first) + NGRAM_SIZE;
+    return new CodeDuplicate(own.getRange(first, last), tokenCount, new ArrayList<>(copies));
+  }
+
+  private static long power(long base, int exponent) {
+    long result = 1;
+    for (var i = 0; i < exponent; i++) {
+      result *= base;
+    }
+    return result;
+  }
+
+  private static long tokenHash(Token token) {
+    int type = token.getType();
+    long hash = (SEED ^ type) * PRIME;
+    String text = token.getText();
+    boolean caseSensitive = type == BSLLexer.STRING
+      || type == BSLLexer.STRINGSTART
+      || type == BSLLexer.STRINGPART
+      || type == BSLLexer.STRINGTAIL;
+    for (var i = 0; i < text.length(); i++) {
+      char character = text.charAt(i);
+      if (!caseSensitive) {
+        character = Character.toLowerCase(Character.toUpperCase(character));
+      }
+      hash = (hash ^ character) * PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Отпечатки документа.
+   */
+  private static final class Fingerprints {
+    private static final int RANGE_SIZE = 4;
+
+    private final URI uri;
+    private final long[] hashes;
+    private final int[] tokenIndexes;
+    private final int[] ranges;
+    private final long[] sortedHashes;
+    private final int[] sortedPositions;
+
+    private Fingerprints(URI uri, long[] hashes, int[] tokenIndexes, int[] ranges) {
+      this.uri = uri;
+      this.hashes = hashes;
+      this.tokenIndexes = tokenIndexes;
+      this.ranges = ranges;
+      this.sortedPositions = IntStream.range(0, hashes.length).boxed()
+        .sorted(Comparator.comparingLong((Integer position) -> hashes[position]))
+        .mapToInt(Integer::intValue)
+        .toArray();
+      this.sortedHashes = Arrays.stream(sortedPositions)
+        .mapToLong(position -> hashes[position])
+        .toArray();
+    }
+
+    static Fingerprints create(URI uri, List<Token> defaultChannelTokens) {
+      List<Token> tokens = defaultChannelTokens.stream()
+        .filter(token -> token.getType() != Token.EOF)
+        .collect(Collectors.toList());
+
+      int ngramCount = tokens.size() - NGRAM_SIZE + 1;
+      if (ngramCount <= 0) {
+        return new Fingerprints(uri, new long[0], new int[0], new int[0]);
+      }
+
+      long[] ngrams = new long[ngramCount];
+      long[] tokenHashes = new long[tokens.size()];
+      long hash = 0;
+      for (var i = 0; i < tokens.size(); i++) {
+        tokenHashes[i] = tokenHash(tokens.get(i));
+        if (i >= NGRAM_SIZE) {
+          hash -= tokenHashes[i - NGRAM_SIZE] * BASE_POWER;
+        }
+        hash = hash * BASE + tokenHashes[i];
+        if (i >= NGRAM_SIZE - 1) {
+          ngrams[i - NGRAM_SIZE + 1] = hash;
+        }
+      }
+
+      int[] selected = winnow(ngrams);
+      long[] hashes = new long[selected.length];
+      int[] ranges = new int[selected.length * RANGE_SIZE];
+      for (var i = 0; i < selected.length; i++) {
+        int position = selected[i];
+        hashes[i] = ngrams[position];
+        Range range = Ranges.create(tokens.get(position), tokens.get(position + NGRAM_SIZE - 1));
+        ranges[i * RANGE_SIZE] = range.getStart().getLine();
+        ranges[i * RANGE_SIZE + 1] = range.getStart().getCharacter();
+        ranges[i * RANGE_SIZE + 2] = range.getEnd().getLine();
+        ranges[i * RANGE_SIZE + 3] = range.getEnd().getCharacter();
+      }
+
+      return new Fingerprints(uri, hashes, selected, ranges);
+    }
+
+    /**
+     * Отбирает позиции минимальных хешей в каждом окне. При равенстве выбирается самая правая позиция,
+     * повторно одна и та же позиция не отбирается.
+     */
+    private static int[] winnow(long[] ngrams) {
+      int windowSize = Math.min(WINDOW_SIZE, ngrams.length);
+      int[] selected = new int[ngrams.length];
+      var count = 0;
+      int minPosition = -1;
+
+      for (int end = windowSize - 1; end < ngrams.length; end++) {
+        int start = end - windowSize + 1;
+        if (minPosition < start) {
+          minPosition = start;
+          for (int i = start + 1; i <= end; i++) {
+            if (ngrams[i] <= ngrams[minPosition]) {
+              minPosition = i;
+            }
+          }
+        } else if (ngrams[end] <= ngrams[minPosition]) {
+          minPosition = end;
+        }
+
+        if (count == 0 || selected[count - 1] != minPosition) {
+          selected[count] = minPosition;
+          count++;
+        }
+      }
+
+      return Arrays.copyOf(selected, count);
+    }
+
+    URI getUri() {
+      return uri;
+    }
+
+    int size() {
+      return hashes.length;
+    }
+
+    long getHash(int index) {
+      return hashes[index];
+    }
+
+    int getTokenIndex(int index) {
+      return tokenIndexes[index];
+    }
+
+    Range getRange(int first, int last) {
+      return Ranges.create(
+        ranges[first * RANGE_SIZE],
+        ranges[first * RANGE_SIZE + 1],
+        ranges[last * RANGE_SIZE + 2],
+        ranges[last * RANGE_SIZE + 3]
+      );
+    }
+
+    Iterable<Long> distinctHashes() {
+      return () -> Arrays.stream(sortedHashes).distinct().iterator();
+    }
+
+    int[] positionsOf(long hash) {
+      int found = Arrays.binarySearch(sortedHashes, hash);
+      if (found < 0) {
+        return new int[0];
+      }
+
+      int from = found;
+      while (from > 0 && sortedHashes[from - 1] == hash) {
+        from--;
+      }
+      int to = found + 1;
+      while (to < sortedHashes.length && sortedHashes[to] == hash) {
+        to++;
+      }
+      return Arrays.copyOfRange(sortedPositions, from, to);
+    }
+  }
+
+  /**
+   * Документы, содержащие отпечаток. У стоп-отпечатка список документов не хранится ({@code null}).
+   */
+  @Value
+  private static class Posting {
+    int count;
+    @CheckForNull
+    URI[] uris;
+  }
+
+  /**
+   * Диагональ совпадений: документ с копией и смещение копии в лексемах.
+   */
+  @Value
+  private static class Diagonal {
+    Fingerprints other;
+    int offset;
+  }
+
+  /**
+   * Цепочка совпавших отпечатков на одной диагонали.
+   */
+  private static final class Block {
+    private final Diagonal diagonal;
+    private final int ownFirst;
+    private final int otherFirst;
+    private int ownLast;
+    private int otherLast;
+
+    Block(Diagonal diagonal, int ownIndex, int otherIndex) {
+      this.diagonal = diagonal;
+      this.ownFirst = ownIndex;
+      this.otherFirst = otherIndex;
+      this.ownLast = ownIndex;
+      this.otherLast = otherIndex;
+    }
+
+    void extend(int ownIndex, int otherIndex) {
+      ownLast = ownIndex;
+      otherLast = otherIndex;
+    }
+
+    Diagonal getDiagonal() {
+      return diagonal;
+    }
+
+    int getOwnFirst() {
+      return ownFirst;
+    }
+
+    int getOwnLast() {
+      return ownLast;
+    }
+
+    int getOtherFirst() {
+      return otherFirst;
+    }
+
+    int getOtherLast() {
+      return otherLast;
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Таблица идентификаторов рабочей области.
+ * <p>
+ * Язык 1С нечувствителен к регистру, поэтому каждому идентификатору без учета регистра сопоставляется
+ * целочисленный код. Приведение к общему регистру выполняется один раз для каждого варианта написания,
+ * после чего идентификаторы сравниваются по кодам.
+ * <p>
+ * Таблица потокобезопасна, коды не переиспользуются в течение жизни контекста сервера.
+ * Регистрируют идентификаторы только вычислители символов, остальные потребители ищут коды
+ * через {@link #findId(String)}, чтобы таблица не росла от произвольных имен.
+ * <p>
+ * При редактировании документа в таблицу попадают и промежуточные варианты имен. Чтобы таблица не росла
+ * в течение всей сессии, она периодически уплотняется: удаляются идентификаторы, на которые не ссылаются
+ * деревья символов документов контекста (см. {@link #retain(URI, int[])}) и к которым не обращались
+ * с момента предыдущего уплотнения. Уплотнение запускается в фоне, когда размер таблицы вдвое превышает
+ * размер после предыдущего уплотнения.
+ */
+public class IdentifierTable {
+
+  /**
+   * Код, означающий отсутствие идентификатора в таблице.
+   */
+  public static final int UNKNOWN_ID = 0;
+
+  private static final int MIN_COMPACTION_SIZE = 10_000;
+
+  private final Map<String, Entry> entriesBySpelling = new ConcurrentHashMap<>();
+  private final Map<String, Entry> entriesByFoldedName = new ConcurrentHashMap<>();
+  /**
+   * Коды имен символов из актуальных деревьев символов документов.
+   */
+  private final Map<URI, int[]> retainedIds = new ConcurrentHashMap<>();
+  private final AtomicInteger lastId = new AtomicInteger(UNKNOWN_ID);
+  private final AtomicBoolean compacting = new AtomicBoolean();
+  private final int minCompactionSize;
+  private volatile int generation;
+  private volatile int compactionThreshold;
+
+  public IdentifierTable() {
+    this(MIN_COMPACTION_SIZE);
+  }
+
+  IdentifierTable(int minCompactionSize) {
+    this.minCompactionSize = minCompactionSize;
+    this.compactionThreshold = minCompactionSize;
+  }
+
+  /**
+   * Приводит идентификатор к каноническому регистру.
+   *
+   * @param identifier идентификатор в произвольном регистре
+   * @return идентификатор в каноническом регистре
+   */
+  public static String fold(String identifier) {
+    return identifier.toUpperCase(Locale.ENGLISH);
+  }
+
+  /**
+   * Получает код идентификатора, регистрируя его в таблице при необходимости.
+   *
+   * @param identifier идентификатор в произвольном регистре
+   * @return код идентификатора, одинаковый для всех вариантов написания
+   */
+  public int getId(String identifier) {
+    Entry entry = entriesBySpelling.get(identifier);
+    if (entry != null && entry.touch(generation)) {
+      return entry.getId();
+    }
+
+    var created = new AtomicBoolean();
+    entry = entriesByFoldedName.compute(fold(identifier), (String key, Entry existing) -> {
+      var current = existing;
+      if (current == null) {
+        current = new Entry(lastId.incrementAndGet());
+        created.set(true);
+      }
+      current.touch(generation);
+      return current;
+    });
+    entriesBySpelling.put(identifier, entry);
+
+    if (created.get()) {
+      compactIfNeeded();
+    }
+    return entry.getId();
+  }
+
+  /**
+   * Получает код идентификатора без регистрации в таблице.
+   *
+   * @param identifier идентификатор в произвольном регистре
+   * @return код идентификатора или {@link #UNKNOWN_ID}, если идентификатор не встречался
+   */
+  public int findId(String identifier) {
+    Entry entry = entriesBySpelling.get(identifier);
+    if (entry == null || entry.isEvicted()) {
+      entry = entriesByFoldedName.get(fold(identifier));
+    }
+    return entry == null ? UNKNOWN_ID : entry.getId();
+  }
+
+  /**
+   * Проверяет, что идентификатор имеет указанный код.
+   *
+   * @param id         код идентификатора
+   * @param identifier идентификатор в произвольном регистре
+   * @return true - если идентификатор совпадает с идентификатором кода без учета регистра
+   */
+  public boolean matches(int id, String identifier) {
+    return id != UNKNOWN_ID && findId(identifier) == id;
+  }
+
+  /**
+   * Запоминает коды, на которые ссылается актуальное дерево символов документа. Коды, запомненные
+   * для документа ранее, заменяются.
+   *
+   * @param uri URI документа
+   * @param ids коды имен символов документа
+   */
+  public void retain(URI uri, int[] ids) {
+    retainedIds.put(uri, ids);
+  }
+
+  /**
+   * Забывает коды, запомненные для документа.
+   *
+   * @param uri URI документа
+   */
+  public void release(URI uri) {
+    retainedIds.remove(uri);
+  }
+
+  /**
+   * Очищает таблицу. Счетчик кодов не сбрасывается, чтобы коды из ранее вычисленных символов
+   * не совпали с кодами новых идентификаторов.
+   */
+  public void clear() {
+    entriesBySpelling.clear();
+    entriesByFoldedName.clear();
+    retainedIds.clear();
+  }
+
+  /**
+   * @return количество различных (без учета регистра) идентификаторов в таблице
+   */
+  public int size() {
+    return entriesByFoldedName.size();
+  }
+
+  /**
+   * Удаляет идентификаторы, которые не запомнены ни для одного документа и к которым не обращались
+   * с момента предыдущего уплотнения.
+   */
+  void compact() {
+    int previousGeneration = generation;
+    generation = previousGeneration + 1;
+
+    Set<Integer> liveIds = new HashSet<>();
+    retainedIds.values().forEach((int[] ids) -> {
+      for (int id : ids) {
+        liveIds.add(id);
+      }
+    });
+
+    entriesByFoldedName.keySet().forEach(key -> entriesByFoldedName.computeIfPresent(key,
+      (String foldedName, Entry entry) -> entry.evictIfUnused(previousGeneration, liveIds) ? null : entry
+    ));
+    entriesBySpelling.values().removeIf(Entry::isEvicted);
+
+    compactionThreshold = Math.max(minCompactionSize, 2 * size());
+  }
+
+  private void compactIfNeeded() {
+    if (size() <= compactionThreshold || !compacting.compareAndSet(false, true)) {
+      return;
+    }
+
+    CompletableFuture.runAsync(() -> {
+      try {
+        compact();
+      } finally {
+        compacting.set(false);
+      }
+    });
+  }
+
+  /**
+   * Запись таблицы: код идентификатора и поколение последнего обращения к нему.
+   * <p>
+   * Обращение сначала записывает поколение, затем проверяет признак удаления, а уплотнение сначала
+   * устанавливает признак удаления, затем проверяет поколение. Поэтому обращение, совпавшее по времени
+   * с уплотнением, либо сохраняет запись, либо узнает о ее удалении и регистрирует идентификатор заново.
+   */
+  private static final class Entry {
+    private final int id;
+    private volatile int generation;
+    private volatile boolean evicted;
+
+    private Entry(int id) {
+      this.id = id;
+    }
+
+    private int getId() {
+      return id;
+    }
+
+    private boolean isEvicted() {
+      return evicted;
+    }
+
+    /**
+     * @return {@code true}, если запись не удалена из таблицы
+     */
+    private boolean touch(int currentGeneration) {
+      if (generation != currentGeneration) {
+        generation = currentGeneration;
+      }
+      return !evicted;
+    }
+
+    private boolean evictIfUnused(int previousGeneration, Set<Integer> liveIds) {
+      if (liveIds.contains(id)) {
+        return false;
+      }
+      evicted = true;
+      if (generation >= previousGeneration) {
+        evicted = false;
+        return false;
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import com.github._1c_syntax.utils.Absolute;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Очередь файлов для заполнения контекста.
+ * <p>
+ * Файлы выдаются в порядке обнаружения, но файлы, связанные с открытыми документами, могут быть подняты
+ * в начало очереди. Каждый файл выдается не более одного раза.
+ */
+final class PopulationQueue {
+
+  private final Map<URI, File> pending = new ConcurrentHashMap<>();
+  private final Queue<URI> prioritized = new ConcurrentLinkedQueue<>();
+  private final Queue<URI> ordered = new ConcurrentLinkedQueue<>();
+  private final Set<URI> prioritizedRoots = ConcurrentHashMap.newKeySet();
+
+  PopulationQueue(Collection<File> files) {
+    files.forEach((File file) -> {
+      URI uri = Absolute.uri(file.toURI());
+      if (pending.putIfAbsent(uri, file) == null) {
+        ordered.add(uri);
+      }
+    });
+  }
+
+  /**
+   * Отметить документ, связанные файлы которого нужно поднять в начало очереди.
+   *
+   * @param uri URI документа
+   * @return {@code true}, если документ отмечен впервые
+   */
+  boolean markRoot(URI uri) {
+    return prioritizedRoots.add(uri);
+  }
+
+  /**
+   * Поднять файл в начало очереди, если он еще не выдан.
+   *
+   * @param uri URI файла
+   */
+  void prioritize(URI uri) {
+    if (pending.containsKey(uri)) {
+      prioritized.add(uri);
+    }
+  }
+
+  /**
+   * @return следующий файл для обработки или {@code null}, если очередь исчерпана
+   */
+  @CheckForNull
+  File poll() {
+    while (true) {
+      URI uri = prioritized.poll();
+      if (uri == null) {
+        uri = ordered.poll();
+      }
+      if (uri == null) {
+        return null;
+      }
+      File file = pending.remove(uri);
+      if (file != null) {
+        return file;
+      }
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import lombok.Value;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов провайдеров, рассчитанных по конкретной версии документа.
+ * <p>
+ * Редакторы повторно запрашивают символы, линзы, области сворачивания и ссылки документа
+ * при получении фокуса, прокрутке и переключении вкладок. Пока версия документа не изменилась,
+ * результат отдается из кэша.
+ * <p>
+ * Каждая запись хранит версию документа, по которой она была рассчитана, и дополнительный признак
+ * актуальности (например, значения настроек, влияющих на результат). Запись, рассчитанная
+ * по устаревшей версии во время перестройки документа, никогда не будет отдана.
+ */
+public class ProviderResultCache {
+
+  private final IntSupplier versionSupplier;
+  private final Map<Key<?>, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  public ProviderResultCache(IntSupplier versionSupplier) {
+    this.versionSupplier = versionSupplier;
+  }
+
+  /**
+   * Получить результат из кэша или рассчитать его.
+   *
+   * @param key      ключ результата
+   * @param stamp    дополнительный признак актуальности, сравнивается через {@link Object#equals(Object)}.
+   *                 Может быть {@code null}, если результат зависит только от содержимого документа.
+   * @param supplier функция расчета результата
+   * @param <T>      тип результата
+   * @return результат для текущей версии документа
+   */
+  public <T> T getOrCompute(Key<T> key, Object stamp, Supplier<T> supplier) {
+    int version = versionSupplier.getAsInt();
+
+    Entry entry = entries.get(key);
+    if (entry != null && entry.getVersion() == version && Objects.equals(entry.getStamp(), stamp)) {
+      hitCount.incrementAndGet();
+      return key.cast(entry.getValue());
+    }
+
+    missCount.incrementAndGet();
+    T value = supplier.get();
+    entries.put(key, new Entry(version, stamp, value));
+
+    return value;
+  }
+
+  public <T> T getOrCompute(Key<T> key, Supplier<T> supplier) {
+    return getOrCompute(key, null, supplier);
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Типизированный ключ результата в кэше.
+   *
+   * @param <T> тип результата
+   */
+  public static final class Key<T> {
+
+    private final String name;
+
+    private Key(String name) {
+      this.name = name;
+    }
+
+    public static <T> Key<T> create(String name) {
+      return new Key<>(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object value) {
+      return (T) value;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  @Value
+  private static class Entry {
+    int version;
+    Object stamp;
+    Object value;
+  }
+}
@@ -21,39 +21,74 @@
  */
 package com.github._1c_syntax.bsl.languageserver.context;
 
+import com.github._1c_syntax.bsl.languageserver.jfr.PopulateContextEvent;
+import com.github._1c_syntax.bsl.languageserver.utils.WorkspaceFiles;
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.mdclasses.mdo.MDObjectBase;
 import com.github._1c_syntax.mdclasses.metadata.Configuration;
 import com.github._1c_syntax.mdclasses.metadata.additional.ModuleType;
 import com.github._1c_syntax.utils.Absolute;
 import com.github._1c_syntax.utils.Lazy;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.antlr.v4.runtime.Token;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.lsp4j.TextDocumentItem;
 
 import javax.annotation.CheckForNull;
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 @Slf4j
 public class ServerContext {
-  private final Map<URI, DocumentContext> documents = Collections.synchronizedMap(new HashMap<>());
+  private final Map<URI, DocumentContext> documents = new ConcurrentHashMap<>();
   private final Lazy<Configuration> configurationMetadata = new Lazy<>(this::computeConfigurationMetadata);
   @CheckForNull
   private Path configurationRoot;
-  private final Map<URI, String> mdoRefs = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, Map<ModuleType, DocumentContext>> documentsByMDORef
-    = Collections.synchronizedMap(new HashMap<>());
-  private final ReadWriteLock contextLock = new ReentrantReadWriteLock();
+  private final Map<URI, String> mdoRefs = new ConcurrentHashMap<>();
+  private final Map<String, Map<ModuleType, DocumentContext>> documentsByMDORef = new ConcurrentHashMap<>();
+  private final IdentifierTable identifierTable = new IdentifierTable();
+  /**
+   * Индекс дублирования кода, который обновляется при изменении документов. {@code null}, пока индекс
+   * не включен: индекс строится только при включенной диагностике DuplicateCode, чтобы при выключенной
+   * диагностике не тратить на него время и память.
+   */
+  @CheckForNull
+  private volatile DuplicateCodeIndex duplicateCodeIndex;
+  /**
+   * Завершение заполнения индекса дублирования кода документами, добавленными до его включения.
+   */
+  @CheckForNull
+  private CompletableFuture<DuplicateCodeIndex> filledDuplicateCodeIndex;
+  /**
+   * Очередь текущего заполнения контекста, {@code null} вне заполнения.
+   */
+  @CheckForNull
+  private volatile PopulationQueue populationQueue;
+  /**
+   * URI модулей объектов метаданных по mdoRef, используется для выбора приоритетных файлов при заполнении.
+   */
+  private final Lazy<Map<String, List<URI>>> moduleUrisByMdoRef = new Lazy<>(this::computeModuleUrisByMdoRef);
 
   public ServerContext() {
     this(null);
@@ -69,31 +104,143 @@ public class ServerContext {
       return;
     }
     LOGGER.debug("Finding files to populate context...");
-    Collection<File> files = FileUtils.listFiles(
-      configurationRoot.toFile(),
-      new String[]{"bsl", "os"},
-      true
-    );
-    populateContext(files);
+    var event = new PopulateContextEvent("listFiles");
+    event.begin();
+    var workspaceFiles = WorkspaceFiles.scan(configurationRoot);
+    event.setFilesCount(workspaceFiles.getSourceFiles().size());
+    event.commit();
+    populateContext(workspaceFiles);
   }
 
+  /**
+   * Заполнение контекста по уже выполненному обходу рабочей области.
+   *
+   * @param workspaceFiles результат обхода рабочей области
+   */
+  public void populateContext(WorkspaceFiles workspaceFiles) {
+    if (configurationRoot == null) {
+      LOGGER.info("Can't populate server context. Configuration root is not defined.");
+      return;
+    }
+    populateContext(workspaceFiles.getFilesLargestFirst(configurationRoot));
+  }
+
+  /**
+   * Заполнение контекста документами из файлов.
+   * <p>
+   * Глобальная блокировка не используется: каждый документ регистрируется отдельно, а документы,
+   * уже добавленные в контекст (например, открытые в редакторе во время заполнения), пропускаются.
+   * <p>
+   * Первыми разбираются модули объектов открытых документов и общие модули, на которые ссылаются
+   * открытые документы. Документы, открытые во время заполнения, поднимают свои связанные файлы
+   * в начало очереди.
+   * <p>
+   * Документы разбираются в отдельном пуле из (число ядер - 1) потоков, чтобы общий пул
+   * {@link java.util.concurrent.ForkJoinPool} оставался свободным для запросов редактора.
+   *
+   * @param uris файлы для добавления в контекст
+   */
+  @SneakyThrows
   public void populateContext(Collection<File> uris) {
     LOGGER.debug("Populating context...");
-    contextLock.writeLock().lock();
-
-    uris.parallelStream().forEach((File file) -> {
-      DocumentContext documentContext = getDocument(file.toURI());
-      if (documentContext == null) {
-        documentContext = createDocumentContext(file);
-        documentContext.getSymbolTree();
-        documentContext.clearSecondaryData();
-      }
+    var event = new PopulateContextEvent("parse");
+    event.setFilesCount(uris.size());
+    event.begin();
+
+    var queue = new PopulationQueue(uris);
+    populationQueue = queue;
+    documents.forEach((URI uri, DocumentContext documentContext) -> prioritizeRelatedFiles(queue, documentContext));
+
+    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    var threadNumber = new AtomicInteger();
+    ExecutorService executorService = Executors.newFixedThreadPool(threads, (Runnable runnable) -> {
+      var thread = new Thread(runnable, "populate-context-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
     });
 
-    contextLock.writeLock().unlock();
+    try {
+      List<Future<?>> futures = new ArrayList<>(threads);
+      for (var i = 0; i < threads; i++) {
+        futures.add(executorService.submit(() -> {
+          File file;
+          while ((file = queue.poll()) != null) {
+            populateDocument(file);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          throw e.getCause();
+        }
+      }
+    } finally {
+      executorService.shutdownNow();
+      populationQueue = null;
+    }
+
+    event.commit();
     LOGGER.debug("Context populated.");
   }
 
+  public IdentifierTable getIdentifierTable() {
+    return identifierTable;
+  }
+
+  /**
+   * Включить индекс дублирования кода.
+   * <p>
+   * После включения документы попадают в индекс при добавлении в контекст, пока их содержимое еще в памяти,
+   * поэтому индекс, включенный до заполнения контекста, готов к концу заполнения. Документы, добавленные
+   * до включения, добавляются в индекс в фоновом потоке.
+   *
+   * @return завершение заполнения индекса документами, добавленными до его включения
+   */
+  public synchronized CompletableFuture<DuplicateCodeIndex> enableDuplicateCodeIndex() {
+    if (filledDuplicateCodeIndex != null) {
+      return filledDuplicateCodeIndex;
+    }
+
+    var index = new DuplicateCodeIndex();
+    // индекс публикуется до заполнения, чтобы документы, добавленные во время заполнения, не были пропущены
+    duplicateCodeIndex = index;
+    List<DocumentContext> documentContexts = new ArrayList<>(documents.values());
+
+    ExecutorService executorService = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+      var thread = new Thread(runnable, "duplicate-code-index");
+      thread.setDaemon(true);
+      return thread;
+    });
+    filledDuplicateCodeIndex = CompletableFuture.supplyAsync(() -> {
+      documentContexts.forEach(documentContext -> indexDocument(index, documentContext));
+      return index;
+    }, executorService);
+    executorService.shutdown();
+
+    return filledDuplicateCodeIndex;
+  }
+
+  /**
+   * Индекс дублирования кода рабочей области.
+   * <p>
+   * Вызов не ожидает заполнения: если индекс включен недавно, он может еще не содержать часть документов.
+   * При первом обращении индекс включается.
+   *
+   * @return индекс дублирования кода
+   */
+  public DuplicateCodeIndex getDuplicateCodeIndex() {
+    var index = duplicateCodeIndex;
+    if (index != null) {
+      return index;
+    }
+    synchronized (this) {
+      enableDuplicateCodeIndex();
+      return duplicateCodeIndex;
+    }
+  }
+
   public Map<URI, DocumentContext> getDocuments() {
     return Collections.unmodifiableMap(documents);
   }
@@ -120,17 +267,34 @@ public class ServerContext {
     return documentsByMDORef.getOrDefault(mdoRef, Collections.emptyMap());
   }
 
+  /**
+   * Добавить документ или заменить текущий снимок документа новым.
+   * <p>
+   * Предыдущий снимок не изменяется, поэтому запросы, начатые по нему, завершаются без блокировок.
+   *
+   * @param uri     URI документа
+   * @param content содержимое документа
+   * @return снимок документа с новым содержимым
+   */
   public DocumentContext addDocument(URI uri, String content) {
-    contextLock.readLock().lock();
+    URI absoluteURI = Absolute.uri(uri);
+    DocumentContext documentContext = documents.compute(
+      absoluteURI,
+      (URI key, DocumentContext previous) -> previous == null
+        ? new DocumentContext(key, content, this)
+        : previous.withContent(content)
+    );
+    addMdoRefByUri(absoluteURI, documentContext);
+    var index = duplicateCodeIndex;
+    if (index != null) {
+      indexDocument(index, documentContext);
+    }
 
-    DocumentContext documentContext = getDocument(uri);
-    if (documentContext == null) {
-      documentContext = createDocumentContext(uri, content);
-    } else {
-      documentContext.rebuild(content);
+    var queue = populationQueue;
+    if (queue != null) {
+      prioritizeRelatedFiles(queue, documentContext);
     }
 
-    contextLock.readLock().unlock();
     return documentContext;
   }
 
@@ -140,15 +304,52 @@ public class ServerContext {
 
   public void removeDocument(URI uri) {
     URI absoluteURI = Absolute.uri(uri);
-    removeDocumentMdoRefByUri(absoluteURI);
-    documents.remove(absoluteURI);
+    DocumentContext documentContext = documents.remove(absoluteURI);
+    if (documentContext != null) {
+      removeDocumentMdoRefByUri(absoluteURI, documentContext);
+    }
+    identifierTable.release(absoluteURI);
+    var index = duplicateCodeIndex;
+    if (index != null) {
+      index.removeDocument(absoluteURI);
+    }
+  }
+
+  /**
+   * Заменяет снимок документа снимком без содержимого, если переданный снимок все еще актуален.
+   * <p>
+   * Используется для документов, не открытых в редакторе: в контексте остаются только дерево символов
+   * и данные метаданных. Переданный снимок не изменяется, поэтому запросы, начатые по нему,
+   * завершаются без ошибок.
+   *
+   * @param documentContext текущий снимок документа
+   */
+  public void releaseContent(DocumentContext documentContext) {
+    URI uri = documentContext.getUri();
+    DocumentContext strippedDocumentContext = documentContext.withoutContent();
+    if (!documents.replace(uri, documentContext, strippedDocumentContext)) {
+      return;
+    }
+    addMdoRefByUri(uri, strippedDocumentContext);
+
+    // заполнение индекса, не успевшее зарегистрировать замененный снимок, пропустит его как устаревший
+    var index = duplicateCodeIndex;
+    if (index != null && !index.contains(uri)) {
+      indexDocument(index, strippedDocumentContext);
+    }
   }
 
   public void clear() {
     documents.clear();
     documentsByMDORef.clear();
     mdoRefs.clear();
+    synchronized (this) {
+      duplicateCodeIndex = null;
+      filledDuplicateCodeIndex = null;
+    }
     configurationMetadata.clear();
+    moduleUrisByMdoRef.clear();
+    identifierTable.clear();
   }
 
   public void setConfigurationRoot(@CheckForNull Path configurationRoot) {
@@ -159,22 +360,111 @@ public class ServerContext {
     return configurationMetadata.getOrCompute();
   }
 
+  private void populateDocument(File file) {
+    if (getDocument(file.toURI()) != null) {
+      return;
+    }
+    DocumentContext documentContext = createDocumentContext(file);
+    if (documentContext != null) {
+      releaseContent(documentContext);
+    }
+  }
+
+  /**
+   * Поднимает в начало очереди заполнения модули того же объекта метаданных и общие модули,
+   * к которым обращается документ.
+   */
+  private void prioritizeRelatedFiles(PopulationQueue queue, DocumentContext documentContext) {
+    if (!documentContext.hasContent() || !queue.markRoot(documentContext.getUri())) {
+      return;
+    }
+
+    var urisByMdoRef = moduleUrisByMdoRef.getOrCompute();
+    var mdoRef = mdoRefs.get(documentContext.getUri());
+    if (mdoRef != null) {
+      urisByMdoRef.getOrDefault(mdoRef, Collections.emptyList()).forEach(queue::prioritize);
+    }
+
+    var configuration = getConfiguration();
+    List<Token> tokens = documentContext.getTokensFromDefaultChannel();
+    Set<String> checkedNames = new HashSet<>();
+    for (var i = 0; i < tokens.size() - 1; i++) {
+      Token token = tokens.get(i);
+      if (token.getType() != BSLLexer.IDENTIFIER
+        || tokens.get(i + 1).getType() != BSLLexer.DOT
+        || !checkedNames.add(token.getText())) {
+        continue;
+      }
+      configuration.getCommonModule(token.getText())
+        .map(commonModule -> commonModule.getMdoReference().getMdoRef())
+        .map(commonModuleMdoRef -> urisByMdoRef.getOrDefault(commonModuleMdoRef, Collections.emptyList()))
+        .ifPresent(commonModuleUris -> commonModuleUris.forEach(queue::prioritize));
+    }
+  }
+
+  @CheckForNull
   @SneakyThrows
   private DocumentContext createDocumentContext(File file) {
     String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
     return createDocumentContext(file.toURI(), content);
   }
 
+  /**
+   * Регистрирует документ, если он еще не добавлен в контекст.
+   *
+   * @return созданный документ или {@code null}, если документ уже был добавлен
+   */
+  @CheckForNull
   private DocumentContext createDocumentContext(URI uri, String content) {
     URI absoluteURI = Absolute.uri(uri);
 
     DocumentContext documentContext = new DocumentContext(absoluteURI, content, this);
-    documents.put(absoluteURI, documentContext);
+    if (documents.putIfAbsent(absoluteURI, documentContext) != null) {
+      return null;
+    }
     addMdoRefByUri(absoluteURI, documentContext);
+    var index = duplicateCodeIndex;
+    if (index != null) {
+      indexDocument(index, documentContext);
+    }
 
     return documentContext;
   }
 
+  /**
+   * Добавляет документ в индекс дублирования кода, если документ все еще актуален. Для документов,
+   * содержимое которых уже освобождено, содержимое перечитывается с диска.
+   * <p>
+   * Документ регистрируется в контексте раньше, чем в индексе, а актуальность проверяется индексом
+   * атомарно с регистрацией, поэтому устаревший снимок не может заменить в индексе более новый
+   * и не может вернуть в индекс удаленный документ.
+   */
+  private void indexDocument(DuplicateCodeIndex index, DocumentContext documentContext) {
+    URI uri = documentContext.getUri();
+    BooleanSupplier isCurrent = () -> documents.get(uri) == documentContext;
+    if (!isCurrent.getAsBoolean()) {
+      return;
+    }
+
+    if (documentContext.hasContent()) {
+      index.addDocument(documentContext, isCurrent);
+      return;
+    }
+
+    if (!"file".equals(uri.getScheme())) {
+      return;
+    }
+
+    String content;
+    try {
+      content = FileUtils.readFileToString(new File(uri), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOGGER.error("Can't read document {} for duplicate code index", uri, e);
+      return;
+    }
+    index.addDocument(new DocumentContext(uri, content, this), isCurrent);
+  }
+
   private Configuration computeConfigurationMetadata() {
     if (configurationRoot == null) {
       return Configuration.create();
@@ -183,6 +473,14 @@ public class ServerContext {
     return Configuration.create(configurationRoot);
   }
 
+  private Map<String, List<URI>> computeModuleUrisByMdoRef() {
+    Map<String, List<URI>> urisByMdoRef = new HashMap<>();
+    getConfiguration().getModulesByObject().forEach((URI uri, MDObjectBase mdObject) ->
+      urisByMdoRef.computeIfAbsent(mdObject.getMdoReference().getMdoRef(), key -> new ArrayList<>()).add(uri)
+    );
+    return urisByMdoRef;
+  }
+
   private void addMdoRefByUri(URI uri, DocumentContext documentContext) {
     var modulesByObject = getConfiguration().getModulesByObject();
     var mdoByUri = modulesByObject.get(uri);
@@ -190,28 +488,25 @@ public class ServerContext {
     if (mdoByUri != null) {
       var mdoRef = mdoByUri.getMdoReference().getMdoRef();
       mdoRefs.put(uri, mdoRef);
-      var documentsGroup = documentsByMDORef.get(mdoRef);
-      if (documentsGroup == null) {
-        Map<ModuleType, DocumentContext> newDocumentsGroup = new EnumMap<>(ModuleType.class);
-        newDocumentsGroup.put(documentContext.getModuleType(), documentContext);
-        documentsByMDORef.put(mdoRef, newDocumentsGroup);
-      } else {
-        documentsGroup.put(documentContext.getModuleType(), documentContext);
-      }
+      // группа меняется только под блокировкой ключа mdoRef, а в группу попадает актуальный снимок документа,
+      // поэтому параллельные регистрации одного документа не могут вернуть в группу устаревший снимок
+      documentsByMDORef.compute(mdoRef, (String key, Map<ModuleType, DocumentContext> documentsGroup) -> {
+        Map<ModuleType, DocumentContext> group = documentsGroup == null
+          ? new ConcurrentHashMap<>()
+          : documentsGroup;
+        group.put(documentContext.getModuleType(), documents.getOrDefault(uri, documentContext));
+        return group;
+      });
     }
   }
 
-  private void removeDocumentMdoRefByUri(URI uri) {
-    var mdoRef = mdoRefs.get(uri);
+  private void removeDocumentMdoRefByUri(URI uri, DocumentContext documentContext) {
+    var mdoRef = mdoRefs.remove(uri);
     if (mdoRef != null) {
-      var documentsGroup = documentsByMDORef.get(mdoRef);
-      if (documentsGroup != null) {
-        documentsGroup.remove(documents.get(uri).getModuleType());
-        if (documentsGroup.isEmpty()) {
-          documentsByMDORef.remove(mdoRef);
-        }
-      }
-      mdoRefs.remove(uri);
+      documentsByMDORef.computeIfPresent(mdoRef, (String key, Map<ModuleType, DocumentContext> documentsGroup) -> {
+        documentsGroup.remove(documentContext.getModuleType());
+        return documentsGroup.isEmpty() ? null : documentsGroup;
+      });
     }
   }
 }
@@ -24,6 +24,7 @@ package com.github._1c_syntax.bsl.languageserver.context.computer;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.languageserver.utils.StringInterner;
 import com.github._1c_syntax.bsl.languageserver.utils.Trees;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserBaseListener;
@@ -252,7 +253,8 @@ public class CognitiveComplexityComputer
     BSLParser.MethodNameContext methodNameContext = ctx.methodName();
     if (methodNameContext != null && currentMethod != null) {
       String calledMethodName = methodNameContext.getText();
-      if (currentMethod.getName().equalsIgnoreCase(calledMethodName)) {
+      if (documentContext.getServerContext().getIdentifierTable()
+        .matches(currentMethod.getNameId(), calledMethodName)) {
         fundamentalIncrement(methodNameContext.IDENTIFIER().getSymbol());
       }
     }
@@ -381,7 +383,7 @@ public class CognitiveComplexityComputer
     } else {
       message = String.format("+%d", increment);
     }
-    var secondaryLocation = new ComplexitySecondaryLocation(Ranges.create(token), message.intern());
+    var secondaryLocation = new ComplexitySecondaryLocation(Ranges.create(token), StringInterner.intern(message));
     List<ComplexitySecondaryLocation> locations;
     if (currentMethod != null) {
       locations = methodsComplexitySecondaryLocations.computeIfAbsent(
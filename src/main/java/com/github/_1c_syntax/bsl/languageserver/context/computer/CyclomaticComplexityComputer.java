@@ -24,6 +24,7 @@ package com.github._1c_syntax.bsl.languageserver.context.computer;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.languageserver.utils.StringInterner;
 import com.github._1c_syntax.bsl.languageserver.utils.Trees;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserBaseListener;
@@ -188,7 +189,8 @@ public class CyclomaticComplexityComputer
     BSLParser.MethodNameContext methodNameContext = ctx.methodName();
     if (methodNameContext != null && currentMethod != null) {
       String calledMethodName = methodNameContext.getText();
-      if (currentMethod.getName().equalsIgnoreCase(calledMethodName)) {
+      if (documentContext.getServerContext().getIdentifierTable()
+        .matches(currentMethod.getNameId(), calledMethodName)) {
         complexityIncrement(methodNameContext.IDENTIFIER().getSymbol());
       }
     }
@@ -289,7 +291,7 @@ public class CyclomaticComplexityComputer
   private void addSecondaryLocation(Range range) {
     String message;
     message = String.format("+%d", 1);
-    var secondaryLocation = new ComplexitySecondaryLocation(range, message.intern());
+    var secondaryLocation = new ComplexitySecondaryLocation(range, StringInterner.intern(message));
     List<ComplexitySecondaryLocation> locations;
     if (currentMethod != null) {
       locations = methodsComplexitySecondaryLocations.computeIfAbsent(
@@ -24,29 +24,31 @@ package com.github._1c_syntax.bsl.languageserver.context.computer;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
 import com.github._1c_syntax.utils.CaseInsensitivePattern;
-import lombok.AllArgsConstructor;
 import org.antlr.v4.runtime.Token;
-import org.apache.commons.lang3.Range;
+import org.apache.commons.lang3.StringUtils;
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
 
 import javax.annotation.CheckForNull;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnoranceComputer.Data> {
 
   private static final DiagnosticCode ALL_DIAGNOSTICS_KEY = new DiagnosticCode("all");
 
+  /**
+   * Общая часть всех управляющих комментариев. Используется для быстрого отсева обычных комментариев
+   * до запуска регулярных выражений.
+   */
+  private static final String IGNORANCE_MARKER = "BSLLS";
+
   private static final Pattern IGNORE_ALL_ON = CaseInsensitivePattern.compile(
     "BSLLS-(?:вкл|on)"
   );
@@ -65,7 +67,7 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
 
   private final DocumentContext documentContext;
 
-  private final Map<DiagnosticCode, List<Range<Integer>>> diagnosticIgnorance = new HashMap<>();
+  private final Map<DiagnosticCode, BitSet> diagnosticIgnorance = new HashMap<>();
   private final Map<DiagnosticCode, Deque<Integer>> ignoranceStack = new HashMap<>();
 
   public DiagnosticIgnoranceComputer(DocumentContext documentContext) {
@@ -82,12 +84,17 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
     if (codeTokens.isEmpty()) {
       return new Data(diagnosticIgnorance);
     }
-    Set<Integer> codeLines = codeTokens.stream().map(Token::getLine).collect(Collectors.toSet());
+    BitSet codeLines = new BitSet();
+    codeTokens.forEach(token -> codeLines.set(token.getLine()));
 
     List<Token> comments = documentContext.getComments();
 
     for (Token comment : comments) {
 
+      if (!StringUtils.containsIgnoreCase(comment.getText(), IGNORANCE_MARKER)) {
+        continue;
+      }
+
       // Variable is used for short circuit evaluation.
       //noinspection unused
       boolean ignored = checkTrailingComment(codeLines, comment)
@@ -106,9 +113,9 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
     return new Data(diagnosticIgnorance);
   }
 
-  private boolean checkTrailingComment(Set<Integer> codeLines, Token comment) {
+  private boolean checkTrailingComment(BitSet codeLines, Token comment) {
     int commentLine = comment.getLine();
-    if (!codeLines.contains(commentLine)) {
+    if (!codeLines.get(commentLine)) {
       return false;
     }
 
@@ -174,9 +181,10 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
 
   private void addIgnoredRange(DiagnosticCode diagnosticKey, int ignoreRangeStart, int ignoreRangeEnd) {
     // convert antlr4 line numbers (1..n) to lsp (0..n)
-    Range<Integer> ignoreRange = Range.between(ignoreRangeStart - 1, ignoreRangeEnd - 1);
-    final List<Range<Integer>> ranges = diagnosticIgnorance.computeIfAbsent(diagnosticKey, s -> new ArrayList<>());
-    ranges.add(ignoreRange);
+    int fromLine = Math.min(ignoreRangeStart, ignoreRangeEnd) - 1;
+    int toLine = Math.max(ignoreRangeStart, ignoreRangeEnd) - 1;
+    final BitSet lines = diagnosticIgnorance.computeIfAbsent(diagnosticKey, s -> new BitSet());
+    lines.set(fromLine, toLine + 1);
   }
 
   private static DiagnosticCode getKey(Matcher matcher) {
@@ -189,9 +197,25 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
     return key;
   }
 
-  @AllArgsConstructor
+  /**
+   * Строки (в нумерации LSP), на которых подавлены диагностики.
+   * Для каждого кода диагностики и для ключа "all" хранится битовая маска строк,
+   * поэтому проверка одного замечания выполняется за константное время.
+   */
   public static class Data {
-    private final Map<DiagnosticCode, List<Range<Integer>>> diagnosticIgnorance;
+    private final BitSet allDiagnosticsIgnorance;
+    private final Map<String, BitSet> diagnosticIgnorance;
+
+    public Data(Map<DiagnosticCode, BitSet> diagnosticIgnorance) {
+      this.diagnosticIgnorance = new HashMap<>();
+      diagnosticIgnorance.forEach((DiagnosticCode key, BitSet lines) ->
+        this.diagnosticIgnorance.put(key.getStringValue(), lines)
+      );
+      this.allDiagnosticsIgnorance = this.diagnosticIgnorance.getOrDefault(
+        ALL_DIAGNOSTICS_KEY.getStringValue(),
+        new BitSet()
+      );
+    }
 
     public boolean diagnosticShouldBeIgnored(Diagnostic diagnostic) {
       if (diagnosticIgnorance.isEmpty()) {
@@ -199,17 +223,21 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
       }
 
       int line = diagnostic.getRange().getStart().getLine();
+      if (line < 0) {
+        return false;
+      }
+
+      if (allDiagnosticsIgnorance.get(line)) {
+        return true;
+      }
 
-      Predicate<Map.Entry<DiagnosticCode, List<Range<Integer>>>> ignoreAll =
-        entry -> entry.getKey().equals(ALL_DIAGNOSTICS_KEY);
-      Predicate<Map.Entry<DiagnosticCode, List<Range<Integer>>>> ignoreConcreteDiagnostic =
-        entry -> entry.getKey().equals(diagnostic.getCode());
+      Either<String, Number> code = diagnostic.getCode();
+      if (code == null || !code.isLeft()) {
+        return false;
+      }
 
-      return diagnosticIgnorance.entrySet().stream()
-        .filter(ignoreAll.or(ignoreConcreteDiagnostic))
-        .map(Map.Entry::getValue)
-        .flatMap(Collection::stream)
-        .anyMatch(range -> range.contains(line));
+      BitSet lines = diagnosticIgnorance.get(code.getLeft());
+      return lines != null && lines.get(line);
     }
   }
 
@@ -0,0 +1,159 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.IdentifierTable;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс вызовов методов документа.
+ * <p>
+ * Хранит места вызова глобальных методов ({@code Метод()}) и методов объектов ({@code Объект.Метод()}),
+ * сгруппированные по имени метода без учета регистра. Позволяет диагностикам, ищущим вызовы методов по имени,
+ * не обходить дерево разбора самостоятельно.
+ * <p>
+ * Все возвращаемые списки упорядочены по положению вызова в документе.
+ */
+public class MethodCallIndex {
+
+  private static final Comparator<BSLParserRuleContext> POSITION_ORDER
+    = Comparator.comparingInt(ctx -> ctx.getStart().getTokenIndex());
+
+  private final Map<String, List<BSLParser.GlobalMethodCallContext>> globalMethodCalls;
+  private final Map<String, List<BSLParser.MethodCallContext>> methodCalls;
+
+  public MethodCallIndex(
+    Map<String, List<BSLParser.GlobalMethodCallContext>> globalMethodCalls,
+    Map<String, List<BSLParser.MethodCallContext>> methodCalls
+  ) {
+    this.globalMethodCalls = globalMethodCalls;
+    this.methodCalls = methodCalls;
+  }
+
+  /**
+   * Приводит имя метода к виду, используемому в качестве ключа индекса.
+   *
+   * @param methodName имя метода в произвольном регистре
+   * @return ключ индекса
+   */
+  public static String normalizeName(String methodName) {
+    return IdentifierTable.fold(methodName);
+  }
+
+  /**
+   * @return имена (ключи индекса) вызываемых в документе глобальных методов
+   */
+  public Set<String> getGlobalMethodNames() {
+    return Collections.unmodifiableSet(globalMethodCalls.keySet());
+  }
+
+  /**
+   * @return имена (ключи индекса) вызываемых в документе методов объектов
+   */
+  public Set<String> getMethodNames() {
+    return Collections.unmodifiableSet(methodCalls.keySet());
+  }
+
+  /**
+   * @param methodName имя метода в произвольном регистре
+   * @return вызовы глобального метода с указанным именем
+   */
+  public List<BSLParser.GlobalMethodCallContext> getGlobalMethodCalls(String methodName) {
+    return Collections.unmodifiableList(globalMethodCalls.getOrDefault(normalizeName(methodName), List.of()));
+  }
+
+  /**
+   * @param methodName имя метода в произвольном регистре
+   * @return вызовы метода объекта с указанным именем
+   */
+  public List<BSLParser.MethodCallContext> getMethodCalls(String methodName) {
+    return Collections.unmodifiableList(methodCalls.getOrDefault(normalizeName(methodName), List.of()));
+  }
+
+  /**
+   * @param methodNames имена методов в произвольном регистре
+   * @return вызовы глобальных методов с любым из указанных имен
+   */
+  public List<BSLParser.GlobalMethodCallContext> getGlobalMethodCalls(Collection<String> methodNames) {
+    return collect(globalMethodCalls, methodNames);
+  }
+
+  /**
+   * @param methodNames имена методов в произвольном регистре
+   * @return вызовы методов объектов с любым из указанных имен
+   */
+  public List<BSLParser.MethodCallContext> getMethodCalls(Collection<String> methodNames) {
+    return collect(methodCalls, methodNames);
+  }
+
+  /**
+   * Выбирает вызовы глобальных методов, имена которых соответствуют регулярному выражению.
+   * Регулярное выражение проверяется один раз для каждого различного имени метода.
+   *
+   * @param methodPattern регулярное выражение без учета регистра
+   * @return вызовы глобальных методов, имена которых соответствуют регулярному выражению
+   */
+  public List<BSLParser.GlobalMethodCallContext> getGlobalMethodCalls(Pattern methodPattern) {
+    return collect(globalMethodCalls, matchingNames(globalMethodCalls.keySet(), methodPattern));
+  }
+
+  /**
+   * Выбирает вызовы методов объектов, имена которых соответствуют регулярному выражению.
+   * Регулярное выражение проверяется один раз для каждого различного имени метода.
+   *
+   * @param methodPattern регулярное выражение без учета регистра
+   * @return вызовы методов объектов, имена которых соответствуют регулярному выражению
+   */
+  public List<BSLParser.MethodCallContext> getMethodCalls(Pattern methodPattern) {
+    return collect(methodCalls, matchingNames(methodCalls.keySet(), methodPattern));
+  }
+
+  private static List<String> matchingNames(Set<String> names, Pattern methodPattern) {
+    return names.stream()
+      .filter(name -> methodPattern.matcher(name).matches())
+      .collect(Collectors.toList());
+  }
+
+  private static <T extends BSLParserRuleContext> List<T> collect(
+    Map<String, List<T>> calls,
+    Collection<String> methodNames
+  ) {
+    List<T> result = new ArrayList<>();
+    methodNames.forEach(methodName -> result.addAll(calls.getOrDefault(normalizeName(methodName), List.of())));
+    if (result.size() > 1) {
+      result.sort(POSITION_ORDER);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import com.github._1c_syntax.bsl.parser.BSLParserBaseListener;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MethodCallIndexComputer extends BSLParserBaseListener implements Computer<MethodCallIndex> {
+
+  private final DocumentContext documentContext;
+  private final Map<String, List<BSLParser.GlobalMethodCallContext>> globalMethodCalls = new HashMap<>();
+  private final Map<String, List<BSLParser.MethodCallContext>> methodCalls = new HashMap<>();
+
+  public MethodCallIndexComputer(DocumentContext documentContext) {
+    this.documentContext = documentContext;
+  }
+
+  @Override
+  public MethodCallIndex compute() {
+    globalMethodCalls.clear();
+    methodCalls.clear();
+
+    ParseTreeWalker walker = new ParseTreeWalker();
+    walker.walk(this, documentContext.getAst());
+
+    return new MethodCallIndex(new HashMap<>(globalMethodCalls), new HashMap<>(methodCalls));
+  }
+
+  @Override
+  public void enterGlobalMethodCall(BSLParser.GlobalMethodCallContext ctx) {
+    var methodName = ctx.methodName();
+    if (methodName != null) {
+      globalMethodCalls.computeIfAbsent(MethodCallIndex.normalizeName(methodName.getText()), key -> new ArrayList<>())
+        .add(ctx);
+    }
+  }
+
+  @Override
+  public void enterMethodCall(BSLParser.MethodCallContext ctx) {
+    var methodName = ctx.methodName();
+    if (methodName != null) {
+      methodCalls.computeIfAbsent(MethodCallIndex.normalizeName(methodName.getText()), key -> new ArrayList<>())
+        .add(ctx);
+    }
+  }
+
+}
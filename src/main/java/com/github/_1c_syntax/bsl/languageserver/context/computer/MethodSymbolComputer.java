@@ -198,6 +198,7 @@ public final class MethodSymbolComputer
 
     return MethodSymbol.builder()
       .name(subName.getText())
+      .nameId(documentContext.getServerContext().getIdentifierTable().getId(subName.getText()))
       .range(Ranges.create(startNode, stopNode))
       .subNameRange(Ranges.create(subName))
       .function(function)
@@ -0,0 +1,263 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.utils.Trees;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс узлов дерева разбора документа.
+ * <p>
+ * Узлы дерева пронумерованы в порядке прямого обхода, поэтому узлы любого поддерева занимают непрерывный
+ * диапазон номеров. Для каждого типа правила и каждого типа токена хранится упорядоченный массив номеров узлов,
+ * что позволяет получать узлы нужного типа внутри любого поддерева бинарным поиском, без обхода дерева.
+ * <p>
+ * Для узлов, не принадлежащих проиндексированному дереву, методы индекса делегируют вызов {@link Trees}.
+ */
+public class ParseTreeIndex {
+
+  private static final int[] EMPTY_POSITIONS = new int[0];
+
+  private final List<ParseTree> nodes;
+  private final Map<ParseTree, Integer> positions;
+  private final int[] subtreeEnds;
+  private final Map<Integer, int[]> ruleNodePositions;
+  private final Map<Integer, int[]> tokenNodePositions;
+
+  ParseTreeIndex(
+    List<ParseTree> nodes,
+    Map<ParseTree, Integer> positions,
+    int[] subtreeEnds,
+    Map<Integer, int[]> ruleNodePositions,
+    Map<Integer, int[]> tokenNodePositions
+  ) {
+    this.nodes = Collections.unmodifiableList(nodes);
+    this.positions = positions;
+    this.subtreeEnds = subtreeEnds;
+    this.ruleNodePositions = ruleNodePositions;
+    this.tokenNodePositions = tokenNodePositions;
+  }
+
+  /**
+   * @return все узлы дерева в порядке прямого обхода
+   */
+  public List<ParseTree> getDescendants() {
+    return nodes;
+  }
+
+  /**
+   * @param node корень поддерева
+   * @return узел и все его потомки в порядке прямого обхода
+   */
+  public List<ParseTree> getDescendants(ParseTree node) {
+    Integer position = positions.get(node);
+    if (position == null) {
+      return Trees.getDescendants(node);
+    }
+    return nodes.subList(position, subtreeEnds[position]);
+  }
+
+  /**
+   * @param ruleIndex BSLParser.RULE_*
+   * @return все узлы дерева с указанным типом правила в порядке прямого обхода
+   */
+  public List<ParseTree> findAllRuleNodes(int ruleIndex) {
+    return toNodes(ruleNodePositions.getOrDefault(ruleIndex, EMPTY_POSITIONS), 0, nodes.size());
+  }
+
+  /**
+   * @param node      корень поддерева
+   * @param ruleIndex BSLParser.RULE_*
+   * @return узлы поддерева (включая корень) с указанным типом правила в порядке прямого обхода
+   */
+  public List<ParseTree> findAllRuleNodes(ParseTree node, int ruleIndex) {
+    Integer position = positions.get(node);
+    if (position == null) {
+      return new ArrayList<>(Trees.findAllRuleNodes(node, ruleIndex));
+    }
+    return toNodes(ruleNodePositions.getOrDefault(ruleIndex, EMPTY_POSITIONS), position, subtreeEnds[position]);
+  }
+
+  /**
+   * @param node       корень поддерева
+   * @param ruleIndexes BSLParser.RULE_*
+   * @return узлы поддерева (включая корень) с любым из указанных типов правил в порядке прямого обхода
+   */
+  public List<ParserRuleContext> findAllRuleNodes(ParseTree node, Integer... ruleIndexes) {
+    Integer position = positions.get(node);
+    if (position == null) {
+      return new ArrayList<>(Trees.findAllRuleNodes(node, ruleIndexes));
+    }
+
+    int from = position;
+    int to = subtreeEnds[position];
+    int[] found = Arrays.stream(ruleIndexes)
+      .distinct()
+      .map(ruleIndex -> ruleNodePositions.getOrDefault(ruleIndex, EMPTY_POSITIONS))
+      .flatMapToInt(rulePositions ->
+        Arrays.stream(rulePositions, lowerBound(rulePositions, from), lowerBound(rulePositions, to)))
+      .sorted()
+      .toArray();
+
+    List<ParserRuleContext> result = new ArrayList<>(found.length);
+    for (int foundPosition : found) {
+      result.add((ParserRuleContext) nodes.get(foundPosition));
+    }
+    return result;
+  }
+
+  /**
+   * @param tokenType BSLLexer.*
+   * @return все терминальные узлы дерева с указанным типом токена в порядке прямого обхода
+   */
+  public List<ParseTree> findAllTokenNodes(int tokenType) {
+    return toNodes(tokenNodePositions.getOrDefault(tokenType, EMPTY_POSITIONS), 0, nodes.size());
+  }
+
+  /**
+   * @param node      корень поддерева
+   * @param tokenType BSLLexer.*
+   * @return терминальные узлы поддерева с указанным типом токена в порядке прямого обхода
+   */
+  public List<ParseTree> findAllTokenNodes(ParseTree node, int tokenType) {
+    Integer position = positions.get(node);
+    if (position == null) {
+      return new ArrayList<>(Trees.findAllTokenNodes(node, tokenType));
+    }
+    return toNodes(tokenNodePositions.getOrDefault(tokenType, EMPTY_POSITIONS), position, subtreeEnds[position]);
+  }
+
+  /**
+   * Проверяет наличие в поддереве (включая корень) узла с указанным типом правила
+   */
+  public boolean nodeContains(ParseTree node, int ruleIndex) {
+    Integer position = positions.get(node);
+    if (position == null) {
+      return Trees.nodeContains(node, ruleIndex);
+    }
+    int[] rulePositions = ruleNodePositions.getOrDefault(ruleIndex, EMPTY_POSITIONS);
+    int index = lowerBound(rulePositions, position);
+    return index < rulePositions.length && rulePositions[index] < subtreeEnds[position];
+  }
+
+  /**
+   * Аналог {@link Trees#getPreviousNode(ParseTree, ParseTree, int)}.
+   *
+   * @param parent    родительская нода, среди дочерних которой производится поиск
+   * @param tnc       нода, для которой ищем предыдущую
+   * @param ruleIndex BSLParser.RULE_*
+   * @return tnc - если предыдущая нода не найдена, вернет текущую
+   */
+  public ParseTree getPreviousNode(ParseTree parent, ParseTree tnc, int ruleIndex) {
+    Integer parentPosition = positions.get(parent);
+    Integer position = positions.get(tnc);
+    if (parentPosition == null || position == null) {
+      return Trees.getPreviousNode(parent, tnc, ruleIndex);
+    }
+    if (!isRuleNodeInSubtree(parentPosition, tnc, position)) {
+      return tnc;
+    }
+
+    int[] rulePositions = ruleNodePositions.getOrDefault(ruleIndex, EMPTY_POSITIONS);
+    int index = lowerBound(rulePositions, position) - 1;
+    if (index >= 0 && rulePositions[index] >= parentPosition) {
+      return nodes.get(rulePositions[index]);
+    }
+    return tnc;
+  }
+
+  /**
+   * Аналог {@link Trees#getNextNode(ParseTree, ParseTree, int)}.
+   *
+   * @param parent    родительская нода, среди дочерних которой производится поиск
+   * @param tnc       нода, для которой ищем следующую
+   * @param ruleIndex BSLParser.RULE_*
+   * @return tnc - если следующая нода не найдена, вернет текущую
+   */
+  public ParseTree getNextNode(ParseTree parent, ParseTree tnc, int ruleIndex) {
+    Integer parentPosition = positions.get(parent);
+    Integer position = positions.get(tnc);
+    if (parentPosition == null || position == null) {
+      return Trees.getNextNode(parent, tnc, ruleIndex);
+    }
+    if (!isRuleNodeInSubtree(parentPosition, tnc, position)) {
+      return tnc;
+    }
+
+    int[] rulePositions = ruleNodePositions.getOrDefault(ruleIndex, EMPTY_POSITIONS);
+    int index = lowerBound(rulePositions, position + 1);
+    if (index < rulePositions.length && rulePositions[index] < subtreeEnds[parentPosition]) {
+      return nodes.get(rulePositions[index]);
+    }
+    return tnc;
+  }
+
+  /**
+   * @param node нода дерева
+   * @return номер ноды в порядке прямого обхода или -1, если нода не принадлежит проиндексированному дереву
+   */
+  int positionOf(ParseTree node) {
+    return positions.getOrDefault(node, -1);
+  }
+
+  private boolean isRuleNodeInSubtree(int parentPosition, ParseTree tnc, int position) {
+    return !(tnc instanceof TerminalNode)
+      && position >= parentPosition
+      && position < subtreeEnds[parentPosition];
+  }
+
+  private List<ParseTree> toNodes(int[] nodePositions, int from, int to) {
+    int fromIndex = lowerBound(nodePositions, from);
+    int toIndex = lowerBound(nodePositions, to);
+    List<ParseTree> result = new ArrayList<>(toIndex - fromIndex);
+    for (int i = fromIndex; i < toIndex; i++) {
+      result.add(nodes.get(nodePositions[i]));
+    }
+    return result;
+  }
+
+  /**
+   * @return индекс первого элемента массива, не меньшего {@code key}
+   */
+  private static int lowerBound(int[] sortedPositions, int key) {
+    int low = 0;
+    int high = sortedPositions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedPositions[middle] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+}
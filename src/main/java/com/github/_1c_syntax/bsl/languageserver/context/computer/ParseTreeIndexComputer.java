@@ -0,0 +1,95 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ParseTreeIndexComputer implements Computer<ParseTreeIndex> {
+
+  private final DocumentContext documentContext;
+
+  public ParseTreeIndexComputer(DocumentContext documentContext) {
+    this.documentContext = documentContext;
+  }
+
+  @Override
+  public ParseTreeIndex compute() {
+    List<ParseTree> nodes = new ArrayList<>();
+    Map<ParseTree, Integer> positions = new IdentityHashMap<>();
+    Map<Integer, List<Integer>> ruleNodes = new HashMap<>();
+    Map<Integer, List<Integer>> tokenNodes = new HashMap<>();
+
+    // прямой обход без рекурсии
+    Deque<ParseTree> stack = new ArrayDeque<>();
+    stack.push(documentContext.getAst());
+    while (!stack.isEmpty()) {
+      ParseTree node = stack.pop();
+      int position = nodes.size();
+      nodes.add(node);
+      positions.put(node, position);
+
+      if (node instanceof ParserRuleContext) {
+        ruleNodes.computeIfAbsent(((ParserRuleContext) node).getRuleIndex(), key -> new ArrayList<>()).add(position);
+      } else if (node instanceof TerminalNode) {
+        tokenNodes.computeIfAbsent(((TerminalNode) node).getSymbol().getType(), key -> new ArrayList<>())
+          .add(position);
+      }
+
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        stack.push(node.getChild(i));
+      }
+    }
+
+    // потомки узла следуют сразу за ним, поэтому граница поддерева совпадает с границей поддерева последнего ребенка
+    int[] subtreeEnds = new int[nodes.size()];
+    for (int position = nodes.size() - 1; position >= 0; position--) {
+      ParseTree node = nodes.get(position);
+      int childCount = node.getChildCount();
+      if (childCount == 0) {
+        subtreeEnds[position] = position + 1;
+      } else {
+        subtreeEnds[position] = subtreeEnds[positions.get(node.getChild(childCount - 1))];
+      }
+    }
+
+    return new ParseTreeIndex(nodes, positions, subtreeEnds, toArrays(ruleNodes), toArrays(tokenNodes));
+  }
+
+  private static Map<Integer, int[]> toArrays(Map<Integer, List<Integer>> nodePositions) {
+    Map<Integer, int[]> result = new HashMap<>(nodePositions.size());
+    nodePositions.forEach((type, typePositions) ->
+      result.put(type, typePositions.stream().mapToInt(Integer::intValue).toArray()));
+    return result;
+  }
+
+}
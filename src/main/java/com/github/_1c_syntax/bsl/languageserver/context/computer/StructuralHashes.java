@@ -0,0 +1,144 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Структурные хеши узлов дерева разбора документа.
+ * <p>
+ * Хеш узла зависит только от его структуры: типов правил, количества детей, типов токенов и текста токенов
+ * без учета регистра (строковые литералы учитываются с учетом регистра). Узлы, равные с точки зрения
+ * {@link com.github._1c_syntax.bsl.languageserver.utils.DiagnosticHelper#equalNodes}, всегда имеют равные хеши,
+ * поэтому сравнение хешей можно использовать как быстрый предварительный фильтр.
+ */
+public class StructuralHashes {
+
+  private static final long SEED = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private final ParseTreeIndex parseTreeIndex;
+  private final long[] hashes;
+
+  StructuralHashes(ParseTreeIndex parseTreeIndex) {
+    this.parseTreeIndex = parseTreeIndex;
+
+    List<ParseTree> nodes = parseTreeIndex.getDescendants();
+    hashes = new long[nodes.size()];
+    // потомки следуют за узлом в порядке прямого обхода, поэтому обратный порядок вычисляет хеши снизу вверх
+    for (int position = nodes.size() - 1; position >= 0; position--) {
+      ParseTree node = nodes.get(position);
+      long hash = nodeHeaderHash(node);
+      for (int i = 0; i < node.getChildCount(); i++) {
+        hash = mix(hash, hashes[parseTreeIndex.positionOf(node.getChild(i))]);
+      }
+      hashes[position] = hash;
+    }
+  }
+
+  /**
+   * @param node узел дерева разбора
+   * @return структурный хеш узла
+   */
+  public long getHash(ParseTree node) {
+    int position = parseTreeIndex.positionOf(node);
+    if (position >= 0) {
+      return hashes[position];
+    }
+    return computeHash(node);
+  }
+
+  /**
+   * @return true - если узлы могут быть структурно равны
+   */
+  public boolean mayBeEqual(ParseTree left, ParseTree right) {
+    return getHash(left) == getHash(right);
+  }
+
+  /**
+   * Вычисление хеша узла, не принадлежащего проиндексированному дереву.
+   */
+  private static long computeHash(ParseTree root) {
+    List<ParseTree> nodes = new ArrayList<>();
+    Deque<ParseTree> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      ParseTree node = stack.pop();
+      nodes.add(node);
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        stack.push(node.getChild(i));
+      }
+    }
+
+    Deque<Long> childHashes = new ArrayDeque<>();
+    for (int position = nodes.size() - 1; position >= 0; position--) {
+      ParseTree node = nodes.get(position);
+      long hash = nodeHeaderHash(node);
+      // хеши детей лежат на вершине стека в прямом порядке
+      for (int i = 0; i < node.getChildCount(); i++) {
+        hash = mix(hash, childHashes.pop());
+      }
+      childHashes.push(hash);
+    }
+    return childHashes.pop();
+  }
+
+  private static long nodeHeaderHash(ParseTree node) {
+    long hash = mix(SEED, node.getChildCount());
+    if (node instanceof ParserRuleContext) {
+      return mix(hash, ((ParserRuleContext) node).getRuleIndex());
+    }
+
+    if (node instanceof TerminalNode) {
+      hash = mix(hash, node instanceof ErrorNode ? -1 : -2);
+      int type = ((TerminalNode) node).getSymbol().getType();
+      hash = mix(hash, type);
+      String text = node.toString();
+      if (type == BSLParser.STRING) {
+        for (int i = 0; i < text.length(); i++) {
+          hash = mix(hash, text.charAt(i));
+        }
+      } else {
+        // та же свертка регистра, что и в String#equalsIgnoreCase
+        for (int i = 0; i < text.length(); i++) {
+          hash = mix(hash, Character.toLowerCase(Character.toUpperCase(text.charAt(i))));
+        }
+      }
+    }
+
+    return hash;
+  }
+
+  private static long mix(long hash, long value) {
+    return (hash ^ value) * PRIME;
+  }
+
+}
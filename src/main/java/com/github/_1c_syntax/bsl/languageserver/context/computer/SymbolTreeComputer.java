@@ -27,6 +27,7 @@ import com.github._1c_syntax.bsl.languageserver.context.symbol.RegionSymbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.Symbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTree;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.VariableSymbol;
+import com.github._1c_syntax.bsl.languageserver.jfr.ComputerEvent;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 
 import java.util.ArrayList;
@@ -45,9 +46,10 @@ public class SymbolTreeComputer implements Computer<SymbolTree> {
   @Override
   public SymbolTree compute() {
 
-    List<MethodSymbol> methods = new MethodSymbolComputer(documentContext).compute();
-    List<RegionSymbol> regions = new RegionSymbolComputer(documentContext).compute();
-    List<VariableSymbol> variables = new VariableSymbolComputer(documentContext).compute();
+    var uri = documentContext.getUri();
+    List<MethodSymbol> methods = ComputerEvent.compute(uri, new MethodSymbolComputer(documentContext));
+    List<RegionSymbol> regions = ComputerEvent.compute(uri, new RegionSymbolComputer(documentContext));
+    List<VariableSymbol> variables = ComputerEvent.compute(uri, new VariableSymbolComputer(documentContext));
 
     List<Symbol> allOfThem = new ArrayList<>(methods);
     allOfThem.addAll(regions);
@@ -78,6 +78,7 @@ public class VariableSymbolComputer extends BSLParserBaseVisitor<ParseTree> impl
   ) {
     return VariableSymbol.builder()
       .name(varName.getText())
+      .nameId(documentContext.getServerContext().getIdentifierTable().getId(varName.getText()))
       .range(Ranges.create(ctx))
       .variableNameRange(Ranges.create(varName))
       .export(export)
@@ -42,6 +42,10 @@ import java.util.Optional;
 @ToString(exclude = {"children", "parent"})
 public class VariableSymbol implements Symbol {
   String name;
+  /**
+   * Код имени переменной в {@link com.github._1c_syntax.bsl.languageserver.context.IdentifierTable}
+   */
+  int nameId;
   Range range;
   Range variableNameRange;
 
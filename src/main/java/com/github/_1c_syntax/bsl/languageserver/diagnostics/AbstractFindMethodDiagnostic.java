@@ -21,6 +21,7 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics;
 
+import com.github._1c_syntax.bsl.languageserver.context.computer.MethodCallIndex;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticInfo;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
@@ -28,6 +29,9 @@ import lombok.Getter;
 import lombok.Setter;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.regex.Pattern;
 
 /**
@@ -36,6 +40,8 @@ import java.util.regex.Pattern;
  * {@code AbstractFindMethodDiagnostic} предоставляет для переопределения два метода проверки вызовов и один
  * метод генерации сообщения пользователю.
  * По умолчанию проверяется, что имя вызываемого метода соответствует переданному в конструкторе регулярному выражению.
+ * Методы проверки вызываются только для вызовов, имена которых соответствуют регулярному выражению
+ * (регулярное выражение должно быть нечувствительным к регистру).
  * <b>Важно:</b> наследование данной диагностики без переопределения {@code getMessage} подразумевает, что первым
  * параметром сообщения пользователю <b>всегда</b> будет имя найденного метода.
  */
@@ -93,36 +99,37 @@ public abstract class AbstractFindMethodDiagnostic extends AbstractVisitorDiagno
   }
 
   /**
-   * Обработчик узла глобального метода. Добавляет информацию о сработавшей диагностике
-   * в случае если проверка метода {@link AbstractFindMethodDiagnostic#checkGlobalMethodCall(BSLParser.GlobalMethodCallContext)}
-   * возвращает {@code true}
-   * @param ctx контекст глобального метода
-   * @return результат посещения ноды по умолчанию.
+   * Обработчик узла файла. Выбирает из {@link MethodCallIndex} документа вызовы методов, имена которых
+   * соответствуют регулярному выражению, и добавляет информацию о сработавшей диагностике в случае,
+   * если проверка метода {@link AbstractFindMethodDiagnostic#checkGlobalMethodCall(BSLParser.GlobalMethodCallContext)}
+   * или {@link AbstractFindMethodDiagnostic#checkMethodCall(BSLParser.MethodCallContext)} возвращает {@code true}.
+   * Дерево разбора при этом не обходится.
+   * @param ctx контекст файла
+   * @return контекст файла
    */
   @Override
-  public ParseTree visitGlobalMethodCall(BSLParser.GlobalMethodCallContext ctx) {
-
-    if (checkGlobalMethodCall(ctx)) {
-      diagnosticStorage.addDiagnostic(ctx.methodName(), getMessage(ctx));
-    }
-
-    return super.visitGlobalMethodCall(ctx);
-  }
-
-  /**
-   * Обработчик узла обычного метода. Добавляет информацию о сработавшей диагностике
-   * в случае если проверка метода {@link AbstractFindMethodDiagnostic#checkMethodCall(BSLParser.MethodCallContext)}
-   * возвращает {@code true}
-   * @param ctx контекст метода
-   * @return результат посещения ноды по умолчанию.
-   */
-  @Override
-  public ParseTree visitMethodCall(BSLParser.MethodCallContext ctx) {
-
-    if (checkMethodCall(ctx)) {
-      diagnosticStorage.addDiagnostic(ctx.methodName(), getMessage(ctx));
+  public ParseTree visitFile(BSLParser.FileContext ctx) {
+
+    var methodCallIndex = documentContext.getMethodCallIndex();
+
+    List<BSLParserRuleContext> methodCalls = new ArrayList<>(methodCallIndex.getGlobalMethodCalls(methodPattern));
+    methodCalls.addAll(methodCallIndex.getMethodCalls(methodPattern));
+    methodCalls.sort(Comparator.comparingInt(methodCall -> methodCall.getStart().getTokenIndex()));
+
+    for (BSLParserRuleContext methodCall : methodCalls) {
+      if (methodCall instanceof BSLParser.GlobalMethodCallContext) {
+        var globalMethodCall = (BSLParser.GlobalMethodCallContext) methodCall;
+        if (checkGlobalMethodCall(globalMethodCall)) {
+          diagnosticStorage.addDiagnostic(globalMethodCall.methodName(), getMessage(globalMethodCall));
+        }
+      } else {
+        var memberMethodCall = (BSLParser.MethodCallContext) methodCall;
+        if (checkMethodCall(memberMethodCall)) {
+          diagnosticStorage.addDiagnostic(memberMethodCall.methodName(), getMessage(memberMethodCall));
+        }
+      }
     }
 
-    return super.visitMethodCall(ctx);
+    return ctx;
   }
 }
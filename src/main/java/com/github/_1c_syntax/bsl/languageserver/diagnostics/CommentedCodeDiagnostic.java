@@ -61,6 +61,7 @@ public class CommentedCodeDiagnostic extends AbstractDiagnostic implements Quick
   private static final float COMMENTED_CODE_THRESHOLD = 0.9F;
   private static final String COMMENT_START = "//";
   private static final int MINIMAL_TOKEN_COUNT = 2;
+  private static final BSLFootprint BSL_FOOTPRINT = new BSLFootprint();
 
   @DiagnosticParameter(
     type = Float.class,
@@ -73,7 +74,7 @@ public class CommentedCodeDiagnostic extends AbstractDiagnostic implements Quick
 
   public CommentedCodeDiagnostic(DiagnosticInfo info) {
     super(info);
-    codeRecognizer = new CodeRecognizer(threshold, new BSLFootprint());
+    codeRecognizer = new CodeRecognizer(threshold, BSL_FOOTPRINT);
   }
 
   @Override
@@ -82,7 +83,7 @@ public class CommentedCodeDiagnostic extends AbstractDiagnostic implements Quick
       return;
     }
     threshold = (float) configuration.getOrDefault("threshold", threshold);
-    codeRecognizer = new CodeRecognizer(threshold, new BSLFootprint());
+    codeRecognizer = new CodeRecognizer(threshold, BSL_FOOTPRINT);
   }
 
   @Override
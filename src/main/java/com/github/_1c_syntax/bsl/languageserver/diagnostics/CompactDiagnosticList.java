@@ -0,0 +1,192 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Компактный неизменяемый список диагностик для пакетного анализа.
+ * <p>
+ * Вместо объектов {@link Diagnostic} с диапазоном, позициями и кодом хранит упакованные массивы примитивов:
+ * четыре int на диапазон, ссылки на код, сообщение и источник в общей таблице строк списка и severity.
+ * Объекты lsp4j создаются только при обращении к элементу - при формировании отчета.
+ * <p>
+ * Диагностики с дополнительной информацией (related information, tags, числовой код) встречаются редко
+ * и хранятся как есть.
+ */
+public final class CompactDiagnosticList extends AbstractList<Diagnostic> implements RandomAccess {
+
+  private static final int RANGE_SLOTS = 4;
+  private static final int REF_SLOTS = 3;
+  private static final int CODE_SLOT = 0;
+  private static final int MESSAGE_SLOT = 1;
+  private static final int SOURCE_SLOT = 2;
+  private static final int NO_REF = -1;
+
+  private final int size;
+  private final int[] ranges;
+  private final int[] refs;
+  private final byte[] severities;
+  private final String[] strings;
+  private final Map<Integer, Diagnostic> verbatim;
+
+  private CompactDiagnosticList(List<Diagnostic> diagnostics) {
+    size = diagnostics.size();
+    ranges = new int[size * RANGE_SLOTS];
+    refs = new int[size * REF_SLOTS];
+    severities = new byte[size];
+
+    var stringTable = new StringTable();
+    Map<Integer, Diagnostic> verbatimDiagnostics = new HashMap<>();
+
+    for (var index = 0; index < size; index++) {
+      var diagnostic = diagnostics.get(index);
+      if (!isCompactable(diagnostic)) {
+        verbatimDiagnostics.put(index, diagnostic);
+        continue;
+      }
+
+      var range = diagnostic.getRange();
+      var rangeOffset = index * RANGE_SLOTS;
+      ranges[rangeOffset] = range.getStart().getLine();
+      ranges[rangeOffset + 1] = range.getStart().getCharacter();
+      ranges[rangeOffset + 2] = range.getEnd().getLine();
+      ranges[rangeOffset + 3] = range.getEnd().getCharacter();
+
+      var refOffset = index * REF_SLOTS;
+      var code = diagnostic.getCode();
+      refs[refOffset + CODE_SLOT] = stringTable.ref(code == null ? null : code.getLeft());
+      refs[refOffset + MESSAGE_SLOT] = stringTable.ref(diagnostic.getMessage());
+      refs[refOffset + SOURCE_SLOT] = stringTable.ref(diagnostic.getSource());
+
+      var severity = diagnostic.getSeverity();
+      severities[index] = severity == null ? 0 : (byte) severity.getValue();
+    }
+
+    strings = stringTable.toArray();
+    verbatim = verbatimDiagnostics.isEmpty() ? Map.of() : verbatimDiagnostics;
+  }
+
+  /**
+   * @param diagnostics исходные диагностики
+   * @return компактная копия списка диагностик
+   */
+  public static CompactDiagnosticList of(List<Diagnostic> diagnostics) {
+    if (diagnostics instanceof CompactDiagnosticList) {
+      return (CompactDiagnosticList) diagnostics;
+    }
+    return new CompactDiagnosticList(diagnostics);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Создает объект диагностики по упакованным данным. Каждый вызов возвращает новый объект.
+   */
+  @Override
+  public Diagnostic get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    var verbatimDiagnostic = verbatim.get(index);
+    if (verbatimDiagnostic != null) {
+      return verbatimDiagnostic;
+    }
+
+    var rangeOffset = index * RANGE_SLOTS;
+    var range = new Range(
+      new Position(ranges[rangeOffset], ranges[rangeOffset + 1]),
+      new Position(ranges[rangeOffset + 2], ranges[rangeOffset + 3])
+    );
+
+    var refOffset = index * REF_SLOTS;
+    var diagnostic = new Diagnostic();
+    diagnostic.setRange(range);
+    diagnostic.setMessage(string(refs[refOffset + MESSAGE_SLOT]));
+    diagnostic.setSource(string(refs[refOffset + SOURCE_SLOT]));
+
+    var code = string(refs[refOffset + CODE_SLOT]);
+    if (code != null) {
+      diagnostic.setCode(new DiagnosticCode(code));
+    }
+    if (severities[index] != 0) {
+      diagnostic.setSeverity(DiagnosticSeverity.forValue(severities[index]));
+    }
+
+    return diagnostic;
+  }
+
+  @Nullable
+  private String string(int ref) {
+    return ref == NO_REF ? null : strings[ref];
+  }
+
+  private static boolean isCompactable(Diagnostic diagnostic) {
+    var code = diagnostic.getCode();
+    return diagnostic.getRange() != null
+      && (code == null || code.isLeft())
+      && isEmpty(diagnostic.getRelatedInformation())
+      && isEmpty(diagnostic.getTags());
+  }
+
+  private static boolean isEmpty(@Nullable List<?> list) {
+    return list == null || list.isEmpty();
+  }
+
+  /**
+   * Таблица строк списка. Одинаковые коды и сообщения хранятся один раз.
+   */
+  private static final class StringTable {
+    private final Map<String, Integer> refs = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int ref(@Nullable String value) {
+      if (value == null) {
+        return NO_REF;
+      }
+      return refs.computeIfAbsent(value, (String key) -> {
+        values.add(key);
+        return values.size() - 1;
+      });
+    }
+
+    String[] toArray() {
+      return values.toArray(new String[0]);
+    }
+  }
+}
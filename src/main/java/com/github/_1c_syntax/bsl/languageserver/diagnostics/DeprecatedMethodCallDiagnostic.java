@@ -103,10 +103,11 @@ public class DeprecatedMethodCallDiagnostic extends AbstractVisitorDiagnostic {
 
     var methodName = ctx.methodName().getStart();
     var methodNameText = methodName.getText();
+    var identifierTable = documentContext.getServerContext().getIdentifierTable();
 
     documentContext.getSymbolTree().getMethods().stream()
       .filter(methodSymbol -> methodSymbol.isDeprecated()
-        && methodSymbol.getName().equalsIgnoreCase(methodNameText))
+        && identifierTable.matches(methodSymbol.getNameId(), methodNameText))
       .findAny()
       .ifPresent(methodSymbol -> fireIssue(methodSymbol, methodName));
 
@@ -123,6 +124,7 @@ public class DeprecatedMethodCallDiagnostic extends AbstractVisitorDiagnostic {
   private void checkDeprecatedCall(String mdoRef, Token methodName) {
     var documentContexts = documentContext.getServerContext().getDocuments(mdoRef);
     String methodNameText = methodName.getText();
+    var identifierTable = documentContext.getServerContext().getIdentifierTable();
 
     documentContexts.entrySet().stream()
       .filter(entry -> DEFAULT_MODULE_TYPES.contains(entry.getKey()))
@@ -130,7 +132,7 @@ public class DeprecatedMethodCallDiagnostic extends AbstractVisitorDiagnostic {
       .map(DocumentContext::getSymbolTree)
       .flatMap(symbolTree -> symbolTree.getMethods().stream())
       .filter(methodSymbol -> methodSymbol.isDeprecated()
-        && methodSymbol.getName().equalsIgnoreCase(methodNameText))
+        && identifierTable.matches(methodSymbol.getNameId(), methodNameText))
       .findAny()
       .ifPresent(methodSymbol -> fireIssue(methodSymbol, methodName));
   }
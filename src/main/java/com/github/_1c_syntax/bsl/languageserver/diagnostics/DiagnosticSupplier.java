@@ -95,6 +95,10 @@ public class DiagnosticSupplier {
 
   }
 
+  public boolean isEnabled(Class<? extends BSLDiagnostic> diagnosticClass) {
+    return isEnabled(createDiagnosticInfo(diagnosticClass), configuration.getDiagnosticsOptions());
+  }
+
   public BSLDiagnostic getDiagnosticInstance(Class<? extends BSLDiagnostic> diagnosticClass) {
     DiagnosticInfo info = new DiagnosticInfo(diagnosticClass, configuration.getLanguage());
     BSLDiagnostic diagnosticInstance = createDiagnosticInstance(info);
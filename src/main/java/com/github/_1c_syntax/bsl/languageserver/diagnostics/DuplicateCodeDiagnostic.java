@@ -0,0 +1,98 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.CodeDuplicate;
+import com.github._1c_syntax.bsl.languageserver.context.DuplicateCodeIndex;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticInfo;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticParameter;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticSeverity;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
+import com.github._1c_syntax.bsl.languageserver.utils.RelatedInformation;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@DiagnosticMetadata(
+  type = DiagnosticType.CODE_SMELL,
+  severity = DiagnosticSeverity.MAJOR,
+  minutesToFix = 30,
+  activatedByDefault = false,
+  tags = {
+    DiagnosticTag.BRAINOVERLOAD,
+    DiagnosticTag.DESIGN
+  }
+)
+public class DuplicateCodeDiagnostic extends AbstractDiagnostic {
+
+  private static final int MIN_TOKENS = DuplicateCodeIndex.DEFAULT_MIN_TOKENS;
+
+  @DiagnosticParameter(
+    type = Integer.class,
+    defaultValue = "" + MIN_TOKENS
+  )
+  private int minTokens = MIN_TOKENS;
+
+  public DuplicateCodeDiagnostic(DiagnosticInfo info) {
+    super(info);
+  }
+
+  /**
+   * Минимальная длина дубля в лексемах с учетом настроек диагностики.
+   * <p>
+   * Совпадения короче гарантированной длины находятся не всегда, поэтому порог ниже нее не опускается.
+   */
+  public int getThreshold() {
+    return Math.max(minTokens, DuplicateCodeIndex.GUARANTEED_TOKENS);
+  }
+
+  @Override
+  protected void check() {
+    // индекс не ожидает заполнения: копии в документах, еще не попавших в индекс, найдутся при следующем расчете
+    var index = documentContext.getServerContext().getDuplicateCodeIndex();
+    var uri = documentContext.getUri();
+    if (!index.contains(uri)) {
+      index.addDocument(documentContext);
+    }
+
+    index.getDuplicates(uri, getThreshold()).forEach((CodeDuplicate duplicate) -> {
+      List<DiagnosticRelatedInformation> relatedInformation = new ArrayList<>();
+      relatedInformation.add(RelatedInformation.create(
+        uri,
+        duplicate.getRange(),
+        info.getMessage(duplicate.getTokenCount(), duplicate.getCopies().size())
+      ));
+      duplicate.getCopies().forEach(copy ->
+        relatedInformation.add(new DiagnosticRelatedInformation(copy, info.getResourceString("copy")))
+      );
+
+      diagnosticStorage.addDiagnostic(
+        duplicate.getRange(),
+        info.getMessage(duplicate.getTokenCount(), duplicate.getCopies().size()),
+        relatedInformation
+      );
+    });
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.CodeDuplicate;
+import com.github._1c_syntax.utils.Absolute;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.eclipse.lsp4j.Range;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Продублированный блок кода для раздела дублирования отчета анализа.
+ */
+@Value
+@AllArgsConstructor
+public class DuplicationInfo {
+  Path path;
+  Range range;
+  int tokenCount;
+  List<Copy> copies;
+
+  public DuplicationInfo(String sourceDir, URI uri, CodeDuplicate duplicate) {
+    Path sourcePath = Absolute.path(sourceDir);
+    path = sourcePath.relativize(Absolute.path(uri));
+    range = duplicate.getRange();
+    tokenCount = duplicate.getTokenCount();
+    copies = duplicate.getCopies().stream()
+      .map(location -> new Copy(
+        sourcePath.relativize(Absolute.path(URI.create(location.getUri()))),
+        location.getRange()
+      ))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Расположение копии блока.
+   */
+  @Value
+  public static class Copy {
+    Path path;
+    Range range;
+  }
+}
@@ -61,7 +61,7 @@ public class EmptyStatementDiagnostic extends AbstractVisitorDiagnostic implemen
     if (ctx.getChildCount() == 1
       && ctx.SEMICOLON() != null
       && !Trees.treeContainsErrors(
-      Trees.getPreviousNode(
+      documentContext.getParseTreeIndex().getPreviousNode(
         Trees.getRootParent(ctx),
         ctx,
         BSLParser.RULE_statement))) {
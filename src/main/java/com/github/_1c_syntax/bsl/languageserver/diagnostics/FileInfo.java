@@ -26,29 +26,38 @@ import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.MetricStorage;
 import com.github._1c_syntax.mdclasses.mdo.MDObjectBase;
 import com.github._1c_syntax.utils.Absolute;
-import lombok.AllArgsConstructor;
 import lombok.Value;
 import org.eclipse.lsp4j.Diagnostic;
 
+import java.beans.ConstructorProperties;
 import java.net.URI;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Value
-@AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class FileInfo {
   Path path;
   String mdoRef;
+  /**
+   * Диагностики файла. Хранятся в компактном виде до формирования отчетов, см. {@link CompactDiagnosticList}.
+   */
   List<Diagnostic> diagnostics;
   MetricStorage metrics;
 
+  @ConstructorProperties({"path", "mdoRef", "diagnostics", "metrics"})
+  public FileInfo(Path path, String mdoRef, List<Diagnostic> diagnostics, MetricStorage metrics) {
+    this.path = path;
+    this.mdoRef = mdoRef;
+    this.diagnostics = CompactDiagnosticList.of(diagnostics);
+    this.metrics = metrics;
+  }
+
   public FileInfo(String sourceDir, DocumentContext documentContext, List<Diagnostic> diagnostics) {
     URI uri = documentContext.getUri();
     path = Absolute.path(sourceDir).relativize(Absolute.path(uri));
-    this.diagnostics = new ArrayList<>(diagnostics);
+    this.diagnostics = CompactDiagnosticList.of(diagnostics);
     metrics = documentContext.getMetrics();
     Optional<MDObjectBase> mdObjectBase = documentContext.getMdObject();
     if (mdObjectBase.isPresent()) {
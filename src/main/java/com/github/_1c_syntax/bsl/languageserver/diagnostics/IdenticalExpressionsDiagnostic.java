@@ -31,6 +31,7 @@ import com.github._1c_syntax.bsl.parser.BSLParser;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @DiagnosticMetadata(
@@ -59,10 +60,16 @@ public class IdenticalExpressionsDiagnostic extends AbstractVisitorDiagnostic {
     }
 
     List<? extends BSLParser.MemberContext> onlyMembers = ctx.member();
+    var structuralHashes = documentContext.getStructuralHashes();
+
+    // полное сравнение выполняется только внутри групп с одинаковым структурным хешем
+    Map<Long, List<ParseTree>> membersByHash = onlyMembers.stream()
+      .map(ParseTree.class::cast)
+      .collect(Collectors.groupingBy(structuralHashes::getHash));
 
     List<ParseTree> identicalExpressions = onlyMembers
       .stream()
-      .filter((ParseTree t) -> onlyMembers
+      .filter((ParseTree t) -> membersByHash.get(structuralHashes.getHash(t))
         .stream()
         .filter((ParseTree p) -> DiagnosticHelper.equalNodes(t, p)).count() > 1)
       .collect((Collectors.toList()));
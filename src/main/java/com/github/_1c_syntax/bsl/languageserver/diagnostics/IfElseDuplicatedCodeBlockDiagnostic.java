@@ -91,12 +91,14 @@ public class IfElseDuplicatedCodeBlockDiagnostic extends AbstractVisitorDiagnost
 
   private void checkCodeBlock(List<BSLParser.CodeBlockContext> codeBlockContexts, int i) {
     BSLParser.CodeBlockContext currentCodeBlock = codeBlockContexts.get(i);
+    var structuralHashes = documentContext.getStructuralHashes();
 
     List<BSLParser.CodeBlockContext> identicalCodeBlocks = codeBlockContexts.stream()
       .skip(i)
       .filter(codeBlockContext ->
         !codeBlockContext.equals(currentCodeBlock)
           && !(currentCodeBlock.children == null && codeBlockContext.children == null)
+          && structuralHashes.mayBeEqual(currentCodeBlock, codeBlockContext)
           && DiagnosticHelper.equalNodes(currentCodeBlock, codeBlockContext))
       .collect(Collectors.toList());
 
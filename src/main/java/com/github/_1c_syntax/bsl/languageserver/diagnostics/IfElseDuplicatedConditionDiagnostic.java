@@ -86,11 +86,13 @@ public class IfElseDuplicatedConditionDiagnostic extends AbstractVisitorDiagnost
 
   private void checkExpression(List<BSLParser.ExpressionContext> expressionContexts, int i) {
     BSLParser.ExpressionContext currentExpression = expressionContexts.get(i);
+    var structuralHashes = documentContext.getStructuralHashes();
 
     List<BSLParser.ExpressionContext> identicalExpressions = expressionContexts.stream()
       .skip(i)
       .filter(expressionContext ->
         !expressionContext.equals(currentExpression)
+          && structuralHashes.mayBeEqual(currentExpression, expressionContext)
           && DiagnosticHelper.equalNodes(currentExpression, expressionContext))
       .collect(Collectors.toList());
 
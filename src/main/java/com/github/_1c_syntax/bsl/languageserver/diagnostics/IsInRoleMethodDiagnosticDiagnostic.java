@@ -147,7 +147,7 @@ public class IsInRoleMethodDiagnosticDiagnostic extends AbstractVisitorDiagnosti
     }
 
     if (!hasPrivilegedModeCheck) {
-      var nextGlobalMethodNode = Trees.getNextNode(parentExpression,
+      var nextGlobalMethodNode = documentContext.getParseTreeIndex().getNextNode(parentExpression,
         ctx, BSLParser.RULE_globalMethodCall);
 
       hasPrivilegedModeCheck = (nextGlobalMethodNode instanceof BSLParser.GlobalMethodCallContext
@@ -27,7 +27,6 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticS
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticSeverity;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
-import com.github._1c_syntax.bsl.languageserver.utils.Trees;
 import com.github._1c_syntax.bsl.parser.BSLLexer;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
@@ -70,10 +69,9 @@ public class ParseErrorDiagnostic extends AbstractListenerDiagnostic {
 
   @Override
   public void enterFile(BSLParser.FileContext ctx) {
-    BSLParser.FileContext ast = this.documentContext.getAst();
     String initialExpectedString = info.getResourceString("expectedTokens") + " ";
 
-    Trees.getDescendants(ast).stream()
+    documentContext.getParseTreeIndex().getDescendants().stream()
       .filter(parseTree -> !(parseTree instanceof TerminalNodeImpl))
       .map(parseTree -> (BSLParserRuleContext) parseTree)
       .filter(node -> node.exception != null)
@@ -63,6 +63,7 @@ public class SpaceAtStartCommentDiagnostic extends AbstractDiagnostic implements
   private static final int COMMENT_LENGTH = 2;
 
   private static final float COMMENTED_CODE_THRESHOLD = 0.9F;
+  private static final BSLFootprint BSL_FOOTPRINT = new BSLFootprint();
   private final CodeRecognizer codeRecognizer;
 
   @DiagnosticParameter(
@@ -73,7 +74,7 @@ public class SpaceAtStartCommentDiagnostic extends AbstractDiagnostic implements
 
   public SpaceAtStartCommentDiagnostic(DiagnosticInfo info) {
     super(info);
-    this.codeRecognizer = new CodeRecognizer(COMMENTED_CODE_THRESHOLD, new BSLFootprint());
+    this.codeRecognizer = new CodeRecognizer(COMMENTED_CODE_THRESHOLD, BSL_FOOTPRINT);
   }
 
   private static Pattern createCommentsAnnotationPattern(String[] patternParts) {
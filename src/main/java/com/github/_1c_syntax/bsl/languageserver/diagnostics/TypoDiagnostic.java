@@ -21,6 +21,7 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics;
 
+import com.github._1c_syntax.bsl.languageserver.configuration.Language;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
@@ -30,7 +31,9 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticT
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.typo.JLanguageToolPool;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.typo.JLanguageToolPoolEntry;
-import com.github._1c_syntax.bsl.languageserver.utils.Trees;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.typo.WordStatus;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.typo.WordStatusCache;
+import com.github._1c_syntax.bsl.languageserver.utils.StringInterner;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
 import lombok.AccessLevel;
@@ -44,15 +47,16 @@ import org.languagetool.language.Russian;
 import org.languagetool.rules.RuleMatch;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @DiagnosticMetadata(
   type = DiagnosticType.CODE_SMELL,
@@ -72,7 +76,9 @@ public class TypoDiagnostic extends AbstractDiagnostic {
     "ru", new JLanguageToolPool(new Russian())
   );
 
-  private static final Pattern SPACES_PATTERN = Pattern.compile("\\s+");
+  private static final int WORD_STATUS_CACHE_MAX_SIZE = 1_000_000;
+  private static final WordStatusCache wordStatusCache = new WordStatusCache(WORD_STATUS_CACHE_MAX_SIZE);
+
   private static final Pattern QUOTE_PATTERN = Pattern.compile("\"");
   private static final Pattern NEWLINE_PATTERN = Pattern.compile("\\n");
 
@@ -89,6 +95,7 @@ public class TypoDiagnostic extends AbstractDiagnostic {
 
   private static final int DEFAULT_MIN_WORD_LENGTH = 3;
   private static final String DEFAULT_USER_WORDS_TO_IGNORE = "";
+  private static final String DEFAULT_CACHE_FILE = "";
 
   @DiagnosticParameter(
     type = Integer.class,
@@ -101,6 +108,11 @@ public class TypoDiagnostic extends AbstractDiagnostic {
   )
   private String userWordsToIgnore = DEFAULT_USER_WORDS_TO_IGNORE;
 
+  @DiagnosticParameter(
+    type = String.class
+  )
+  private String cacheFile = DEFAULT_CACHE_FILE;
+
   public TypoDiagnostic(DiagnosticInfo info) {
     super(info);
   }
@@ -109,6 +121,9 @@ public class TypoDiagnostic extends AbstractDiagnostic {
   public void configure(Map<String, Object> configuration) {
     super.configure(configuration);
     minWordLength = Math.max(minWordLength, DEFAULT_MIN_WORD_LENGTH);
+    if (!cacheFile.isBlank()) {
+      wordStatusCache.attachFile(Path.of(cacheFile));
+    }
   }
 
   private String getWordsToIgnore() {
@@ -117,10 +132,30 @@ public class TypoDiagnostic extends AbstractDiagnostic {
       exceptions = exceptions + "," + NEWLINE_PATTERN.matcher(userWordsToIgnore).replaceAll("");
     }
 
-    return exceptions.intern();
+    return StringInterner.intern(exceptions);
+  }
+
+  /**
+   * Запускает фоновое создание экземпляра LanguageTool для указанного языка,
+   * чтобы первая проверка документа не ждала его инициализации.
+   *
+   * @param language язык сообщений диагностик
+   */
+  public static void warmUp(Language language) {
+    var languageToolPool = getLanguageToolPoolMap().get(language.getLanguageCode());
+    if (languageToolPool != null) {
+      languageToolPool.warmUp(1);
+    }
   }
 
-  private JLanguageToolPoolEntry acquireLanguageTool(String lang) {
+  /**
+   * Очистить разделяемый кэш результатов проверки слов.
+   */
+  static void clearWordStatusCache() {
+    wordStatusCache.clear();
+  }
+
+  private static JLanguageToolPoolEntry acquireLanguageTool(String lang) {
     return getLanguageToolPoolMap().get(lang).checkOut();
   }
 
@@ -128,70 +163,95 @@ public class TypoDiagnostic extends AbstractDiagnostic {
     getLanguageToolPoolMap().get(lang).checkIn(languageToolPoolEntry);
   }
 
-  private String getTokenizedStringFromTokens(DocumentContext documentContext, Map<String, List<Token>> tokensMap) {
-    StringBuilder text = new StringBuilder();
+  private Map<String, List<Token>> getWordsFromTokens(DocumentContext documentContext) {
+    Map<String, List<Token>> tokensMap = new LinkedHashMap<>();
 
-    Trees.findAllRuleNodes(documentContext.getAst(), rulesToFind).stream()
+    documentContext.getParseTreeIndex().findAllRuleNodes(documentContext.getAst(), rulesToFind).stream()
       .map(ruleContext -> (BSLParserRuleContext) ruleContext)
       .flatMap(ruleContext -> ruleContext.getTokens().stream())
       .filter(token -> tokenTypes.contains(token.getType()))
       .forEach((Token token) -> {
           String curText = QUOTE_PATTERN.matcher(token.getText()).replaceAll("");
-          var splitList = Arrays.asList(StringUtils.splitByCharacterTypeCamelCase(curText));
-          splitList.stream()
+          Arrays.stream(StringUtils.splitByCharacterTypeCamelCase(curText))
             .filter(element -> element.length() >= minWordLength)
             .forEach(element -> tokensMap.computeIfAbsent(element, newElement -> new ArrayList<>()).add(token));
-
-          text.append(" ");
-          text.append(String.join(" ", splitList));
-
         }
       );
 
-    return Arrays.stream(SPACES_PATTERN.split(text.toString().trim()))
-      .distinct()
-      .collect(Collectors.joining(" "));
+    return tokensMap;
   }
 
-  @Override
-  protected void check() {
+  private Map<String, WordStatus> checkWords(String lang, String wordsToIgnore, List<String> words) {
+    Map<String, WordStatus> checkedWords = new HashMap<>();
+    if (words.isEmpty()) {
+      return checkedWords;
+    }
 
-    String lang = info.getResourceString("diagnosticLanguage");
-    Map<String, List<Token>> tokensMap = new HashMap<>();
+    String text = String.join(" ", words);
+    Set<String> misspelledWords = new HashSet<>();
 
+    // ожидание свободного экземпляра не ограничено по времени, чтобы результат проверки не зависел от нагрузки
     JLanguageToolPoolEntry languageToolPoolEntry = acquireLanguageTool(lang);
-    JLanguageTool languageTool = languageToolPoolEntry.getLanguageTool(getWordsToIgnore());
-
-    String result = getTokenizedStringFromTokens(documentContext, tokensMap);
-
     try {
+      JLanguageTool languageTool = languageToolPoolEntry.getLanguageTool(wordsToIgnore);
       List<RuleMatch> matches = languageTool.check(
-        result,
+        text,
         true,
         JLanguageTool.ParagraphHandling.ONLYNONPARA
       );
 
-      if (!matches.isEmpty()) {
-
-        Set<Token> uniqueValues = new HashSet<>();
-        matches
-          .stream()
-          .filter(ruleMatch -> !ruleMatch.getSuggestedReplacements().isEmpty())
-          .map(ruleMatch -> result.substring(ruleMatch.getFromPos(), ruleMatch.getToPos()))
-          .forEach((String substring) -> {
-            List<Token> tokens = tokensMap.get(substring);
-            if (tokens != null) {
-              tokens.stream()
-                .filter(uniqueValues::add)
-                .forEach(token -> diagnosticStorage.addDiagnostic(token, info.getMessage(substring)));
-            }
-          });
-      }
+      matches.stream()
+        .filter(ruleMatch -> !ruleMatch.getSuggestedReplacements().isEmpty())
+        .map(ruleMatch -> text.substring(ruleMatch.getFromPos(), ruleMatch.getToPos()))
+        .forEach(misspelledWords::add);
     } catch (IOException e) {
       LOGGER.error(e.getMessage(), e);
+      return checkedWords;
+    } finally {
+      releaseLanguageTool(lang, languageToolPoolEntry);
     }
 
-    releaseLanguageTool(lang, languageToolPoolEntry);
+    String cacheKey = WordStatusCache.getKey(lang, wordsToIgnore);
+    words.forEach((String word) -> {
+      WordStatus status = misspelledWords.contains(word) ? WordStatus.MISSPELLED : WordStatus.VALID;
+      checkedWords.put(word, status);
+      wordStatusCache.put(cacheKey, word, status);
+    });
+
+    return checkedWords;
+  }
+
+  @Override
+  protected void check() {
+
+    String lang = info.getResourceString("diagnosticLanguage");
+    String wordsToIgnore = getWordsToIgnore();
+    String cacheKey = WordStatusCache.getKey(lang, wordsToIgnore);
+
+    Map<String, List<Token>> tokensMap = getWordsFromTokens(documentContext);
+
+    Map<String, WordStatus> wordStatuses = new HashMap<>();
+    List<String> uncheckedWords = new ArrayList<>();
+    tokensMap.keySet().forEach((String word) -> {
+      WordStatus status = wordStatusCache.get(cacheKey, word);
+      if (status == null) {
+        uncheckedWords.add(word);
+      } else {
+        wordStatuses.put(word, status);
+      }
+    });
+
+    wordStatuses.putAll(checkWords(lang, wordsToIgnore, uncheckedWords));
+
+    Set<Token> uniqueValues = new HashSet<>();
+    tokensMap.forEach((String word, List<Token> tokens) -> {
+      if (wordStatuses.get(word) != WordStatus.MISSPELLED) {
+        return;
+      }
+      tokens.stream()
+        .filter(uniqueValues::add)
+        .forEach(token -> diagnosticStorage.addDiagnostic(token, info.getMessage(word)));
+    });
   }
 
 }
@@ -21,6 +21,7 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics;
 
+import com.github._1c_syntax.bsl.languageserver.context.IdentifierTable;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticScope;
@@ -32,12 +33,9 @@ import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.mdclasses.metadata.additional.ModuleType;
 import com.github._1c_syntax.utils.CaseInsensitivePattern;
 import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.Trees;
 
-import java.util.List;
-import java.util.Locale;
+import java.util.BitSet;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @DiagnosticMetadata(
   type = DiagnosticType.CODE_SMELL,
@@ -77,19 +75,27 @@ public class UnusedLocalMethodDiagnostic extends AbstractVisitorDiagnostic {
   @Override
   public ParseTree visitFile(BSLParser.FileContext ctx) {
 
-    List<String> collect = Trees.findAllRuleNodes(ctx, BSLParser.RULE_globalMethodCall)
+    var parseTreeIndex = documentContext.getParseTreeIndex();
+    var identifierTable = documentContext.getServerContext().getIdentifierTable();
+    // имена всех методов модуля регистрируются в таблице при построении дерева символов
+    documentContext.getSymbolTree();
+
+    BitSet calledMethods = new BitSet();
+    parseTreeIndex.findAllRuleNodes(BSLParser.RULE_globalMethodCall)
       .stream()
-      .map(parseTree ->
-        ((BSLParser.GlobalMethodCallContext) parseTree).methodName().getText().toLowerCase(Locale.ENGLISH))
-      .collect(Collectors.toList());
+      .map(parseTree -> ((BSLParser.GlobalMethodCallContext) parseTree).methodName().getText())
+      .mapToInt(identifierTable::findId)
+      .filter(id -> id != IdentifierTable.UNKNOWN_ID)
+      .forEach(calledMethods::set);
 
-    Trees.findAllRuleNodes(ctx, BSLParser.RULE_subName)
+    parseTreeIndex.findAllRuleNodes(BSLParser.RULE_subName)
       .stream()
       .map(parseTree -> ((BSLParser.SubNameContext) parseTree))
-      .filter(subNameContext -> Trees.findAllTokenNodes(subNameContext.getParent(), BSLLexer.EXPORT_KEYWORD).isEmpty())
+      .filter(subNameContext ->
+        parseTreeIndex.findAllTokenNodes(subNameContext.getParent(), BSLLexer.EXPORT_KEYWORD).isEmpty())
       .filter(subNameContext -> !isAttachable(subNameContext))
       .filter(subNameContext -> !isHandler(subNameContext))
-      .filter(subNameContext -> !collect.contains(subNameContext.getText().toLowerCase(Locale.ENGLISH)))
+      .filter(subNameContext -> !calledMethods.get(identifierTable.findId(subNameContext.getText())))
       .forEach(node -> diagnosticStorage.addDiagnostic(node, info.getMessage(node.getText())));
 
     return ctx;
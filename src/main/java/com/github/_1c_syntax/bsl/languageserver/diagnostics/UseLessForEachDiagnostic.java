@@ -60,12 +60,13 @@ public class UseLessForEachDiagnostic extends AbstractVisitorDiagnostic {
 
     TerminalNode iterator = ctx.IDENTIFIER();
     String iteratorIdName = iterator.getText();
+    var identifierTable = documentContext.getServerContext().getIdentifierTable();
 
     boolean isVariable = documentContext.getSymbolTree().getVariables()
       .stream()
       .filter(variableSymbol -> variableSymbol.getKind() == VariableKind.GLOBAL
         || variableSymbol.getKind() == VariableKind.MODULE)
-      .anyMatch(variableSymbol -> variableSymbol.getName().equalsIgnoreCase(iteratorIdName));
+      .anyMatch(variableSymbol -> identifierTable.matches(variableSymbol.getNameId(), iteratorIdName));
 
     if (isVariable) {
       return super.visitForEachStatement(ctx);
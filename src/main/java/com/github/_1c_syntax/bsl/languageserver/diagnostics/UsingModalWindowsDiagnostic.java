@@ -30,12 +30,11 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticT
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.mdclasses.metadata.additional.UseMode;
-import com.github._1c_syntax.utils.CaseInsensitivePattern;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.util.HashMap;
 import java.util.Locale;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 @DiagnosticMetadata(
   type = DiagnosticType.CODE_SMELL,
@@ -49,18 +48,14 @@ import java.util.regex.Pattern;
 )
 public class UsingModalWindowsDiagnostic extends AbstractVisitorDiagnostic {
 
-  private final Pattern modalityMethods = CaseInsensitivePattern.compile(
-    "(ВОПРОС|DOQUERYBOX|ОТКРЫТЬФОРМУМОДАЛЬНО|OPENFORMMODAL|ОТКРЫТЬЗНАЧЕНИЕ|OPENVALUE|" +
-      "ПРЕДУПРЕЖДЕНИЕ|DOMESSAGEBOX|ВВЕСТИДАТУ|INPUTDATE|ВВЕСТИЗНАЧЕНИЕ|INPUTVALUE|" +
-      "ВВЕСТИСТРОКУ|INPUTSTRING|ВВЕСТИЧИСЛО|INPUTNUMBER|УСТАНОВИТЬВНЕШНЮЮКОМПОНЕНТУ|INSTALLADDIN|" +
-      "УСТАНОВИТЬРАСШИРЕНИЕРАБОТЫСФАЙЛАМИ|INSTALLFILESYSTEMEXTENSION|" +
-      "УСТАНОВИТЬРАСШИРЕНИЕРАБОТЫСКРИПТОГРАФИЕЙ|INSTALLCRYPTOEXTENSION|ПОМЕСТИТЬФАЙЛ|PUTFILE)"
-  );
-
-  private final HashMap<String, String> pairMethods = new HashMap<>();
+  private static final Map<String, String> PAIR_METHODS = createPairMethods();
 
   public UsingModalWindowsDiagnostic(DiagnosticInfo info) {
     super(info);
+  }
+
+  private static Map<String, String> createPairMethods() {
+    Map<String, String> pairMethods = new HashMap<>();
     pairMethods.put("ВОПРОС", "ПоказатьВопрос");
     pairMethods.put("DOQUERYBOX", "ShowQueryBox");
     pairMethods.put("ОТКРЫТЬФОРМУМОДАЛЬНО", "ОткрытьФорму");
@@ -85,6 +80,7 @@ public class UsingModalWindowsDiagnostic extends AbstractVisitorDiagnostic {
     pairMethods.put("INSTALLCRYPTOEXTENSION", "BeginInstallCryptoExtension");
     pairMethods.put("ПОМЕСТИТЬФАЙЛ", "НачатьПомещениеФайла");
     pairMethods.put("PUTFILE", "BeginPutFile");
+    return pairMethods;
   }
 
   @Override
@@ -96,16 +92,12 @@ public class UsingModalWindowsDiagnostic extends AbstractVisitorDiagnostic {
       return ctx;
     }
 
-    return super.visitFile(ctx);
-  }
+    documentContext.getMethodCallIndex().getGlobalMethodCalls(PAIR_METHODS.keySet()).forEach(methodCall -> {
+      String methodName = methodCall.methodName().getText();
+      diagnosticStorage.addDiagnostic(methodCall,
+        info.getMessage(methodName, PAIR_METHODS.get(methodName.toUpperCase(Locale.ENGLISH))));
+    });
 
-  @Override
-  public ParseTree visitGlobalMethodCall(BSLParser.GlobalMethodCallContext ctx) {
-    String methodName = ctx.methodName().getText();
-    if (modalityMethods.matcher(methodName).matches()) {
-      diagnosticStorage.addDiagnostic(ctx,
-        info.getMessage(methodName, pairMethods.get(methodName.toUpperCase(Locale.ENGLISH))));
-    }
-    return super.visitGlobalMethodCall(ctx);
+    return ctx;
   }
 }
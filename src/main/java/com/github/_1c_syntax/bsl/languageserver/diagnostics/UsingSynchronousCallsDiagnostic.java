@@ -36,6 +36,7 @@ import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 @DiagnosticMetadata(
@@ -49,28 +50,18 @@ import java.util.regex.Pattern;
   compatibilityMode = DiagnosticCompatibilityMode.COMPATIBILITY_MODE_8_3_3
 )
 public class UsingSynchronousCallsDiagnostic extends AbstractVisitorDiagnostic {
-  private static final Pattern MODALITY_METHODS = CaseInsensitivePattern.compile(
-    "(ВОПРОС|DOQUERYBOX|ОТКРЫТЬФОРМУМОДАЛЬНО|OPENFORMMODAL|ОТКРЫТЬЗНАЧЕНИЕ|OPENVALUE|" +
-      "ПРЕДУПРЕЖДЕНИЕ|DOMESSAGEBOX|ВВЕСТИДАТУ|INPUTDATE|ВВЕСТИЗНАЧЕНИЕ|INPUTVALUE|" +
-      "ВВЕСТИСТРОКУ|INPUTSTRING|ВВЕСТИЧИСЛО|INPUTNUMBER|УСТАНОВИТЬВНЕШНЮЮКОМПОНЕНТУ|INSTALLADDIN|" +
-      "УСТАНОВИТЬРАСШИРЕНИЕРАБОТЫСФАЙЛАМИ|INSTALLFILESYSTEMEXTENSION|" +
-      "УСТАНОВИТЬРАСШИРЕНИЕРАБОТЫСКРИПТОГРАФИЕЙ|INSTALLCRYPTOEXTENSION|" +
-      "ПОДКЛЮЧИТЬРАСШИРЕНИЕРАБОТЫСКРИПТОГРАФИЕЙ|ATTACHCRYPTOEXTENSION|" +
-      "ПОДКЛЮЧИТЬРАСШИРЕНИЕРАБОТЫСФАЙЛАМИ|ATTACHFILESYSTEMEXTENSION|ПОМЕСТИТЬФАЙЛ|PUTFILE|" +
-      "КОПИРОВАТЬФАЙЛ|FILECOPY|ПЕРЕМЕСТИТЬФАЙЛ|MOVEFILE|НАЙТИФАЙЛЫ|FINDFILES|УДАЛИТЬФАЙЛЫ|DELETEFILES|" +
-      "СОЗДАТЬКАТАЛОГ|CREATEDIRECTORY|КАТАЛОГВРЕМЕННЫХФАЙЛОВ|TEMPFILESDIR|КАТАЛОГДОКУМЕНТОВ|DOCUMENTSDIR|" +
-      "РАБОЧИЙКАТАЛОГДАННЫХПОЛЬЗОВАТЕЛЯ|USERDATAWORKDIR|ПОЛУЧИТЬФАЙЛЫ|GETFILES|ПОМЕСТИТЬФАЙЛЫ|PUTFILES|" +
-      "ЗАПРОСИТЬРАЗРЕШЕНИЕПОЛЬЗОВАТЕЛЯ|REQUESTUSERPERMISSION|ЗАПУСТИТЬПРИЛОЖЕНИЕ|RUNAPP)"
-  );
-
   private static final Pattern SERVER_COMPILER_PATTERN = CaseInsensitivePattern.compile(
     "(НаСервере|НаСервереБезКонтекста|AtServer|AtServerNoContext)"
   );
 
-  private final HashMap<String, String> pairMethods = new HashMap<>();
+  private static final Map<String, String> PAIR_METHODS = createPairMethods();
 
   public UsingSynchronousCallsDiagnostic(DiagnosticInfo info) {
     super(info);
+  }
+
+  private static Map<String, String> createPairMethods() {
+    Map<String, String> pairMethods = new HashMap<>();
     pairMethods.put("ВОПРОС", "ПоказатьВопрос");
     pairMethods.put("DOQUERYBOX", "ShowQueryBox");
     pairMethods.put("ОТКРЫТЬФОРМУМОДАЛЬНО", "ОткрытьФорму");
@@ -123,6 +114,7 @@ public class UsingSynchronousCallsDiagnostic extends AbstractVisitorDiagnostic {
     pairMethods.put("REQUESTUSERPERMISSION", "BeginRequestingUserPermission");
     pairMethods.put("ЗАПУСТИТЬПРИЛОЖЕНИЕ", "НачатьЗапускПриложения");
     pairMethods.put("RUNAPP", "BeginRunningApplication");
+    return pairMethods;
   }
 
   @Override
@@ -134,24 +126,20 @@ public class UsingSynchronousCallsDiagnostic extends AbstractVisitorDiagnostic {
       return ctx;
     }
 
-    return super.visitFile(ctx);
-  }
-
-  @Override
-  public ParseTree visitGlobalMethodCall(BSLParser.GlobalMethodCallContext ctx) {
-    String methodName = ctx.methodName().getText();
-    if (MODALITY_METHODS.matcher(methodName).matches()) {
-      BSLParser.SubContext rootParent = (BSLParser.SubContext) Trees.getRootParent(ctx, BSLParser.RULE_sub);
+    documentContext.getMethodCallIndex().getGlobalMethodCalls(PAIR_METHODS.keySet()).forEach(methodCall -> {
+      BSLParser.SubContext rootParent = (BSLParser.SubContext) Trees.getRootParent(methodCall, BSLParser.RULE_sub);
       if (rootParent == null
         || Trees.findAllRuleNodes(rootParent, BSLParser.RULE_compilerDirectiveSymbol)
         .stream()
         .filter(node ->
           SERVER_COMPILER_PATTERN.matcher(node.getText()).matches()).count() <= 0) {
 
-        diagnosticStorage.addDiagnostic(ctx,
-          info.getMessage(methodName, pairMethods.get(methodName.toUpperCase(Locale.ENGLISH))));
+        String methodName = methodCall.methodName().getText();
+        diagnosticStorage.addDiagnostic(methodCall,
+          info.getMessage(methodName, PAIR_METHODS.get(methodName.toUpperCase(Locale.ENGLISH))));
       }
-    }
-    return super.visitGlobalMethodCall(ctx);
+    });
+
+    return ctx;
   }
 }
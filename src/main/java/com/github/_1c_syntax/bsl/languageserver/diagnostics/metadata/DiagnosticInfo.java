@@ -24,6 +24,7 @@ package com.github._1c_syntax.bsl.languageserver.diagnostics.metadata;
 import com.github._1c_syntax.bsl.languageserver.configuration.Language;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.BSLDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.utils.Resources;
+import com.github._1c_syntax.bsl.languageserver.utils.StringInterner;
 import com.github._1c_syntax.mdclasses.metadata.additional.ModuleType;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -103,7 +104,7 @@ public class DiagnosticInfo {
   }
 
   public String getMessage(Object... args) {
-    return String.format(getMessage(), args).intern();
+    return StringInterner.intern(String.format(getMessage(), args));
   }
 
   public String getResourceString(String key) {
@@ -176,7 +177,7 @@ public class DiagnosticInfo {
       simpleName = simpleName.substring(0, simpleName.length() - "Diagnostic".length());
     }
 
-    return new DiagnosticCode(simpleName.intern());
+    return new DiagnosticCode(StringInterner.intern(simpleName));
   }
 
   private static Map<DiagnosticSeverity, org.eclipse.lsp4j.DiagnosticSeverity> createSeverityToLSPSeverityMap() {
@@ -26,10 +26,12 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DuplicationInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 @Data
@@ -42,4 +44,5 @@ public class AnalysisInfo {
   private final LocalDateTime date;
   private final List<FileInfo> fileinfos;
   private final String sourceDir;
+  private List<DuplicationInfo> duplications = Collections.emptyList();
 }
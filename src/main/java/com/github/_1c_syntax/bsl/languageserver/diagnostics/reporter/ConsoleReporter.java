@@ -42,5 +42,8 @@ public class ConsoleReporter extends AbstractDiagnosticReporter {
   public void report(AnalysisInfo analysisInfo) {
     LOGGER.info("Analysis date: {}", analysisInfo.getDate());
     LOGGER.info("File info:\n{}", analysisInfo.getFileinfos());
+    if (!analysisInfo.getDuplications().isEmpty()) {
+      LOGGER.info("Duplications:\n{}", analysisInfo.getDuplications());
+    }
   }
 }
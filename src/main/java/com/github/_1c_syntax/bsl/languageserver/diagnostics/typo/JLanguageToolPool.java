@@ -21,17 +21,159 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.typo;
 
-import com.github._1c_syntax.bsl.languageserver.utils.AbstractObjectPool;
-import lombok.AllArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.languagetool.Language;
 
-@AllArgsConstructor
-public class JLanguageToolPool extends AbstractObjectPool<JLanguageToolPoolEntry> {
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограниченный пул экземпляров {@link org.languagetool.JLanguageTool}.
+ * <p>
+ * Каждый экземпляр занимает сотни мегабайт, поэтому размер пула ограничен количеством процессоров
+ * и доступной памятью. Свободные экземпляры хранятся в неблокирующей очереди, а количество выданных
+ * экземпляров ограничивается семафором. При исчерпании пула запрос ожидает освобождения экземпляра,
+ * чтобы проверка документа не пропускалась.
+ */
+@Slf4j
+public class JLanguageToolPool {
+
+  /**
+   * Примерный объем памяти, занимаемый одним экземпляром JLanguageTool.
+   */
+  private static final long ESTIMATED_ENTRY_SIZE = 256L * 1024 * 1024;
+
+  /**
+   * Доля памяти JVM, которую может занимать пул.
+   */
+  private static final int HEAP_FRACTION = 4;
 
   private final Language language;
+  private final int maxSize;
+  private final Queue<JLanguageToolPoolEntry> available = new ConcurrentLinkedQueue<>();
+  private final Semaphore permits;
+  private final AtomicInteger created = new AtomicInteger();
+
+  public JLanguageToolPool(Language language) {
+    this(language, computeDefaultMaxSize());
+  }
+
+  public JLanguageToolPool(Language language, int maxSize) {
+    this.language = language;
+    this.maxSize = Math.max(1, maxSize);
+    this.permits = new Semaphore(this.maxSize);
+  }
+
+  /**
+   * Выдает экземпляр из пула. Если свободных экземпляров нет, но пул не заполнен, создается новый экземпляр.
+   * Если пул заполнен, ожидает освобождения экземпляра без ограничения времени.
+   *
+   * @return экземпляр пула
+   */
+  public JLanguageToolPoolEntry checkOut() {
+    permits.acquireUninterruptibly();
+    var entry = available.poll();
+    if (entry == null) {
+      try {
+        entry = create();
+      } catch (RuntimeException e) {
+        permits.release();
+        throw e;
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * Возвращает экземпляр, полученный через {@link #checkOut()}, в пул.
+   */
+  public void checkIn(JLanguageToolPoolEntry entry) {
+    available.offer(entry);
+    permits.release();
+  }
+
+  /**
+   * Запускает фоновое создание экземпляров, чтобы первые проверки не ждали их инициализации.
+   *
+   * @param count желаемое количество заранее созданных экземпляров, ограничивается размером пула
+   * @return future, завершающийся после создания экземпляров
+   */
+  public CompletableFuture<Void> warmUp(int count) {
+    int targetSize = Math.min(count, maxSize);
+    return CompletableFuture.runAsync(() -> {
+      while (created.get() < targetSize && permits.tryAcquire()) {
+        try {
+          if (created.get() < targetSize) {
+            available.offer(create());
+          }
+        } finally {
+          permits.release();
+        }
+      }
+      LOGGER.debug("Language tool pool for {} is warmed up. {}", language.getShortCode(), this);
+    });
+  }
+
+  public Statistics getStatistics() {
+    return new Statistics(
+      maxSize,
+      created.get(),
+      available.size(),
+      maxSize - permits.availablePermits()
+    );
+  }
 
   @Override
-  protected JLanguageToolPoolEntry create() {
-    return new JLanguageToolPoolEntry(language);
+  public String toString() {
+    var statistics = getStatistics();
+    return String.format(
+      "Pool maxSize=%d created=%d available=%d inUse=%d",
+      statistics.getMaxSize(),
+      statistics.getCreated(),
+      statistics.getAvailable(),
+      statistics.getInUse()
+    );
+  }
+
+  private JLanguageToolPoolEntry create() {
+    var entry = new JLanguageToolPoolEntry(language);
+    created.incrementAndGet();
+    return entry;
+  }
+
+  private static int computeDefaultMaxSize() {
+    var runtime = Runtime.getRuntime();
+    long sizeByHeap = runtime.maxMemory() / HEAP_FRACTION / ESTIMATED_ENTRY_SIZE;
+    return (int) Math.max(1, Math.min(runtime.availableProcessors(), sizeByHeap));
+  }
+
+  /**
+   * Статистика использования пула.
+   */
+  @Value
+  public static class Statistics {
+    /**
+     * Максимальное количество экземпляров
+     */
+    int maxSize;
+
+    /**
+     * Количество созданных экземпляров
+     */
+    int created;
+
+    /**
+     * Количество свободных экземпляров
+     */
+    int available;
+
+    /**
+     * Количество выданных экземпляров
+     */
+    int inUse;
   }
 }
@@ -0,0 +1,201 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics.typo;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Разделяемый между всеми документами и потоками кэш результатов проверки слов.
+ * <p>
+ * Результаты хранятся в разрезе ключа проверки (язык и набор слов-исключений), поэтому разные настройки
+ * диагностики не влияют друг на друга. Общее количество слов ограничено, при достижении лимита вытесняются
+ * слова, к которым дольше всего не было обращений.
+ * <p>
+ * Кэш разделен на сегменты по хешу слова, каждый сегмент со своей блокировкой и своей очередью вытеснения,
+ * поэтому потоки, проверяющие разные слова, как правило не ждут друг друга. Порядок вытеснения соблюдается
+ * в пределах сегмента, то есть для кэша в целом он приблизительный.
+ * <p>
+ * Кэш может быть сохранен в файл при завершении работы и загружен из него при следующем запуске,
+ * см. {@link #attachFile(Path)}.
+ */
+@Slf4j
+public class WordStatusCache {
+
+  private static final TypeReference<Map<String, Map<String, WordStatus>>> FILE_CONTENT_TYPE =
+    new TypeReference<>() {
+    };
+
+  private static final int MAX_SEGMENTS = 64;
+  private static final int MIN_SEGMENT_SIZE = 1024;
+
+  private final Segment[] segments;
+  private final Set<Path> attachedFiles = ConcurrentHashMap.newKeySet();
+
+  public WordStatusCache(int maxSize) {
+    // число сегментов - степень двойки, маленький кэш не дробится, чтобы не терять точность вытеснения
+    int segmentsCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+    int segmentSize = Math.max(1, maxSize / segmentsCount);
+    segments = new Segment[segmentsCount];
+    for (var i = 0; i < segmentsCount; i++) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  /**
+   * @param language      язык проверки
+   * @param wordsToIgnore слова-исключения, переданные в LanguageTool
+   * @return ключ, в разрезе которого хранятся результаты проверки
+   */
+  public static String getKey(String language, String wordsToIgnore) {
+    return language + ":" + wordsToIgnore;
+  }
+
+  @CheckForNull
+  public WordStatus get(String key, String word) {
+    var wordKey = new WordKey(key, word);
+    var segment = segmentFor(wordKey);
+    synchronized (segment) {
+      return segment.get(wordKey);
+    }
+  }
+
+  public void put(String key, String word, WordStatus status) {
+    var wordKey = new WordKey(key, word);
+    var segment = segmentFor(wordKey);
+    synchronized (segment) {
+      segment.putIfAbsent(wordKey, status);
+    }
+  }
+
+  public int size() {
+    var size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public void clear() {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Подключает файл для хранения кэша между запусками. Содержимое существующего файла загружается в кэш,
+   * а при завершении работы JVM кэш сохраняется в этот файл. Повторное подключение того же файла игнорируется.
+   *
+   * @param path путь к файлу кэша
+   */
+  public void attachFile(Path path) {
+    var absolutePath = path.toAbsolutePath();
+    if (!attachedFiles.add(absolutePath)) {
+      return;
+    }
+
+    load(absolutePath.toFile());
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> save(absolutePath.toFile())));
+  }
+
+  void load(File file) {
+    if (!file.exists()) {
+      return;
+    }
+
+    Map<String, Map<String, WordStatus>> fileContent;
+    try {
+      fileContent = new ObjectMapper().readValue(file, FILE_CONTENT_TYPE);
+    } catch (IOException e) {
+      LOGGER.error("Can't read typo cache file", e);
+      return;
+    }
+
+    fileContent.forEach((String key, Map<String, WordStatus> keyStatuses) ->
+      keyStatuses.forEach((String word, WordStatus status) -> put(key, word, status))
+    );
+  }
+
+  void save(File file) {
+    Map<String, Map<String, WordStatus>> fileContent = new HashMap<>();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.forEach((WordKey wordKey, WordStatus status) ->
+          fileContent.computeIfAbsent(wordKey.getKey(), key -> new HashMap<>()).put(wordKey.getWord(), status)
+        );
+      }
+    }
+
+    try {
+      new ObjectMapper().writeValue(file, fileContent);
+    } catch (IOException e) {
+      LOGGER.error("Can't write typo cache file", e);
+    }
+  }
+
+  private Segment segmentFor(WordKey wordKey) {
+    int hash = wordKey.hashCode();
+    // старшие биты хеша подмешиваются к младшим, по которым выбирается сегмент
+    return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+  }
+
+  /**
+   * Сегмент кэша: слова в порядке обращения, при переполнении вытесняется самое давнее.
+   */
+  private static final class Segment extends LinkedHashMap<WordKey, WordStatus> {
+    private static final long serialVersionUID = 1L;
+
+    private final int maxSize;
+
+    private Segment(int maxSize) {
+      super(16, 0.75F, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<WordKey, WordStatus> eldest) {
+      return size() > maxSize;
+    }
+  }
+
+  @Value
+  private static class WordKey {
+    String key;
+    String word;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.jfr;
+
+import com.github._1c_syntax.bsl.languageserver.context.computer.Computer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.URI;
+
+/**
+ * Событие выполнения {@link Computer#compute()} для документа.
+ */
+@Name(ComputerEvent.NAME)
+@Label("Computer")
+@Description("Computation of document context data")
+@Category({"BSL Language Server", "Context"})
+@StackTrace(false)
+public class ComputerEvent extends Event {
+
+  public static final String NAME = "com.github._1c_syntax.bsl.languageserver.Computer";
+
+  @Label("Document URI")
+  private final String uri;
+
+  @Label("Computer")
+  private final String computer;
+
+  public ComputerEvent(URI uri, Class<?> computerClass) {
+    this.uri = uri.toString();
+    this.computer = computerClass.getSimpleName();
+  }
+
+  /**
+   * Выполняет расчет с регистрацией события.
+   *
+   * @param uri      URI документа, для которого выполняется расчет
+   * @param computer вычислитель
+   * @param <T>      тип результата вычислителя
+   * @return результат {@link Computer#compute()}
+   */
+  public static <T> T compute(URI uri, Computer<T> computer) {
+    var event = new ComputerEvent(uri, computer.getClass());
+    event.begin();
+    try {
+      return computer.compute();
+    } finally {
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие одной из фаз заполнения контекста сервера.
+ */
+@Name(PopulateContextEvent.NAME)
+@Label("Populate Context")
+@Description("Phase of server context population")
+@Category({"BSL Language Server", "Context"})
+@StackTrace(false)
+public class PopulateContextEvent extends Event {
+
+  public static final String NAME = "com.github._1c_syntax.bsl.languageserver.PopulateContext";
+
+  @Label("Phase")
+  private final String phase;
+
+  @Label("Files Count")
+  private int filesCount;
+
+  public PopulateContextEvent(String phase) {
+    this.phase = phase;
+  }
+
+  public void setFilesCount(int filesCount) {
+    this.filesCount = filesCount;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.Supplier;
+
+/**
+ * Событие обработки запроса или уведомления textDocument/*.
+ */
+@Name(TextDocumentRequestEvent.NAME)
+@Label("Text Document Request")
+@Description("Processing of textDocument request or notification")
+@Category({"BSL Language Server", "LSP"})
+@StackTrace(false)
+public class TextDocumentRequestEvent extends Event {
+
+  public static final String NAME = "com.github._1c_syntax.bsl.languageserver.TextDocumentRequest";
+
+  @Label("Method")
+  private final String method;
+
+  @Label("Document URI")
+  private final String uri;
+
+  public TextDocumentRequestEvent(String method, String uri) {
+    this.method = method;
+    this.uri = uri;
+  }
+
+  /**
+   * Выполняет обработку запроса с регистрацией события.
+   *
+   * @param method   имя метода LSP
+   * @param uri      URI документа
+   * @param supplier обработчик запроса
+   * @param <T>      тип результата обработчика
+   * @return результат обработчика
+   */
+  public static <T> T measure(String method, String uri, Supplier<T> supplier) {
+    var event = new TextDocumentRequestEvent(method, uri);
+    event.begin();
+    try {
+      return supplier.get();
+    } finally {
+      event.commit();
+    }
+  }
+
+  /**
+   * Выполняет обработку уведомления с регистрацией события.
+   *
+   * @param method   имя метода LSP
+   * @param uri      URI документа
+   * @param runnable обработчик уведомления
+   */
+  public static void measureNotification(String method, String uri, Runnable runnable) {
+    var event = new TextDocumentRequestEvent(method, uri);
+    event.begin();
+    try {
+      runnable.run();
+    } finally {
+      event.commit();
+    }
+  }
+}
@@ -23,16 +23,20 @@ package com.github._1c_syntax.bsl.languageserver.providers;
 
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ProviderResultCache;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
 import org.eclipse.lsp4j.CodeLens;
 import org.eclipse.lsp4j.Command;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 public final class CodeLensProvider {
 
+  private static final ProviderResultCache.Key<List<CodeLens>> CACHE_KEY = ProviderResultCache.Key.create("codeLens");
+
   private final LanguageServerConfiguration configuration;
 
   public CodeLensProvider(LanguageServerConfiguration configuration) {
@@ -40,10 +44,16 @@ public final class CodeLensProvider {
   }
 
   public List<CodeLens> getCodeLens(DocumentContext documentContext) {
-    List<CodeLens> codeLenses = new ArrayList<>();
-    codeLenses.addAll(getCognitiveComplexityCodeLenses(documentContext));
-    codeLenses.addAll(getCyclomaticComplexityCodeLenses(documentContext));
-    return codeLenses;
+    var codeLensOptions = configuration.getCodeLensOptions();
+    // набор линз зависит от настроек, поэтому их значения входят в признак актуальности кэша
+    var stamp = List.of(codeLensOptions.isShowCognitiveComplexity(), codeLensOptions.isShowCyclomaticComplexity());
+
+    return documentContext.getProviderResultCache().getOrCompute(CACHE_KEY, stamp, () -> {
+      List<CodeLens> codeLenses = new ArrayList<>();
+      codeLenses.addAll(getCognitiveComplexityCodeLenses(documentContext));
+      codeLenses.addAll(getCyclomaticComplexityCodeLenses(documentContext));
+      return Collections.unmodifiableList(codeLenses);
+    });
   }
 
   private List<CodeLens> getCognitiveComplexityCodeLenses(DocumentContext documentContext) {
@@ -25,18 +25,20 @@ import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.computer.DiagnosticIgnoranceComputer;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.BSLDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
+import com.github._1c_syntax.bsl.languageserver.jfr.DiagnosticComputeEvent;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
 import org.eclipse.lsp4j.services.LanguageClient;
 
+import javax.annotation.CheckForNull;
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,65 +47,185 @@ public final class DiagnosticProvider {
 
   public static final String SOURCE = "bsl-language-server";
 
-  private final Map<URI, Set<Diagnostic>> computedDiagnostics;
+  /**
+   * Отпечаток пустого списка диагностик.
+   */
+  private static final long EMPTY_FINGERPRINT = 0L;
+
+  /**
+   * Рассчитанные диагностики документов. Значение актуально только для версии документа,
+   * по которой оно рассчитано.
+   */
+  private final Map<URI, DocumentDiagnostics> computedDiagnostics;
+  /**
+   * Последние опубликованные списки диагностик с их отпечатками. Для документов, по которым опубликован
+   * пустой список (или ничего не публиковалось), запись не хранится.
+   */
+  private final Map<String, PublishedDiagnostics> publishedDiagnostics = new ConcurrentHashMap<>();
   private final DiagnosticSupplier diagnosticSupplier;
 
   public DiagnosticProvider(DiagnosticSupplier diagnosticSupplier) {
     this.diagnosticSupplier = diagnosticSupplier;
-    computedDiagnostics = new HashMap<>();
+    computedDiagnostics = new ConcurrentHashMap<>();
   }
 
   public void computeAndPublishDiagnostics(LanguageClient client, DocumentContext documentContext) {
     List<Diagnostic> diagnostics = computeDiagnostics(documentContext);
 
-    client.publishDiagnostics(new PublishDiagnosticsParams(documentContext.getUri().toString(), diagnostics));
+    publishDiagnostics(client, new PublishDiagnosticsParams(documentContext.getUri().toString(), diagnostics));
   }
 
   public void publishEmptyDiagnosticList(LanguageClient client, DocumentContext documentContext) {
     List<Diagnostic> diagnostics = new ArrayList<>();
-    computedDiagnostics.put(documentContext.getUri(), new LinkedHashSet<>());
-    client.publishDiagnostics(
+    computedDiagnostics.remove(documentContext.getUri());
+    publishDiagnostics(
+      client,
       new PublishDiagnosticsParams(documentContext.getUri().toString(), diagnostics)
     );
   }
 
+  /**
+   * Опубликовать диагностики документа, если они отличаются от опубликованных ранее.
+   * <p>
+   * Повторное сохранение файла без изменений в диагностиках не приводит к повторной сериализации всего списка.
+   * Списки сначала сравниваются по отпечатку, а при совпадении отпечатков - поэлементно, поэтому коллизия
+   * отпечатков не скрывает изменений.
+   * <p>
+   * Сравнение, запоминание и отправка выполняются атомарно для адреса документа, поэтому при публикации
+   * из разных потоков клиент всегда получает тот список, который запомнен последним.
+   *
+   * @param client клиент
+   * @param params параметры публикации
+   * @return {@code true}, если диагностики были отправлены клиенту
+   */
+  public boolean publishDiagnostics(LanguageClient client, PublishDiagnosticsParams params) {
+    List<Diagnostic> diagnostics = params.getDiagnostics();
+    long fingerprint = fingerprint(diagnostics);
+    var sent = new AtomicBoolean();
+
+    publishedDiagnostics.compute(params.getUri(), (String uri, PublishedDiagnostics previous) -> {
+      if (isSame(previous, fingerprint, diagnostics)) {
+        return previous;
+      }
+
+      client.publishDiagnostics(params);
+      sent.set(true);
+      return fingerprint == EMPTY_FINGERPRINT ? null : new PublishedDiagnostics(fingerprint, diagnostics);
+    });
+
+    return sent.get();
+  }
+
   public List<Diagnostic> computeDiagnostics(DocumentContext documentContext) {
+    var documentDiagnostics = new DocumentDiagnostics(documentContext.getVersion(), compute(documentContext, true));
+    computedDiagnostics.put(documentContext.getUri(), documentDiagnostics);
+
+    return documentDiagnostics.getDiagnostics();
+  }
+
+  /**
+   * Рассчитать диагностики документа, не связанного с редактором.
+   * <p>
+   * Результат не сохраняется в рассчитанных диагностиках и не используется быстрыми исправлениями
+   * и ссылками документа. Диагностики рассчитываются последовательно, чтобы не занимать потоки,
+   * обслуживающие запросы пользователя.
+   *
+   * @param documentContext отдельный снимок документа
+   * @return список диагностик
+   */
+  public List<Diagnostic> computeDetachedDiagnostics(DocumentContext documentContext) {
+    return new DocumentDiagnostics(documentContext.getVersion(), compute(documentContext, false)).getDiagnostics();
+  }
+
+  private List<Diagnostic> compute(DocumentContext documentContext, boolean parallel) {
     DiagnosticIgnoranceComputer.Data diagnosticIgnorance = documentContext.getDiagnosticIgnorance();
 
-    List<Diagnostic> diagnostics =
-      diagnosticSupplier.getDiagnosticInstances(documentContext).parallelStream()
-        .flatMap((BSLDiagnostic diagnostic) -> {
-          try {
-            return diagnostic.getDiagnostics(documentContext).stream();
-          } catch (RuntimeException e) {
-            String message = String.format(
-              "Diagnostic computation error.%nFile: %s%nDiagnostic: %s",
-              documentContext.getUri(),
-              diagnostic.getInfo().getCode()
-            );
-            LOGGER.error(message, e);
-
-            return Stream.empty();
-          }
-        })
-        .filter((Diagnostic diagnostic) ->
-          !diagnosticIgnorance.diagnosticShouldBeIgnored(diagnostic))
-        .collect(Collectors.toList());
-
-    computedDiagnostics.put(documentContext.getUri(), new LinkedHashSet<>(diagnostics));
-
-    return diagnostics;
+    List<BSLDiagnostic> diagnosticInstances = diagnosticSupplier.getDiagnosticInstances(documentContext);
+    Stream<BSLDiagnostic> diagnosticStream = parallel
+      ? diagnosticInstances.parallelStream()
+      : diagnosticInstances.stream();
+
+    return diagnosticStream
+      .flatMap((BSLDiagnostic diagnostic) -> {
+        var event = new DiagnosticComputeEvent(
+          documentContext.getUri(),
+          documentContext.getContent().length(),
+          diagnostic.getInfo().getCode().getStringValue()
+        );
+        event.begin();
+        try {
+          List<Diagnostic> diagnosticList = diagnostic.getDiagnostics(documentContext);
+          event.setDiagnosticsCount(diagnosticList.size());
+          return diagnosticList.stream();
+        } catch (RuntimeException e) {
+          String message = String.format(
+            "Diagnostic computation error.%nFile: %s%nDiagnostic: %s",
+            documentContext.getUri(),
+            diagnostic.getInfo().getCode()
+          );
+          LOGGER.error(message, e);
+
+          return Stream.empty();
+        } finally {
+          event.commit();
+        }
+      })
+      .filter((Diagnostic diagnostic) ->
+        !diagnosticIgnorance.diagnosticShouldBeIgnored(diagnostic))
+      .collect(Collectors.toList());
   }
 
-  public Set<Diagnostic> getComputedDiagnostics(DocumentContext documentContext) {
-    return computedDiagnostics.getOrDefault(documentContext.getUri(), new LinkedHashSet<>());
+  /**
+   * Рассчитанные диагностики документа.
+   *
+   * @param documentContext контекст документа
+   * @return диагностики, рассчитанные по той же версии документа, или пустой набор
+   */
+  public DocumentDiagnostics getComputedDiagnostics(DocumentContext documentContext) {
+    DocumentDiagnostics documentDiagnostics = computedDiagnostics.get(documentContext.getUri());
+    if (documentDiagnostics == null || documentDiagnostics.getVersion() != documentContext.getVersion()) {
+      return DocumentDiagnostics.empty();
+    }
+    return documentDiagnostics;
   }
 
   public void clearComputedDiagnostics(DocumentContext documentContext) {
-    computedDiagnostics.put(documentContext.getUri(), new LinkedHashSet<>());
+    computedDiagnostics.remove(documentContext.getUri());
   }
 
   public void clearAllComputedDiagnostics() {
     computedDiagnostics.clear();
+    publishedDiagnostics.clear();
+  }
+
+  private static boolean isSame(
+    @CheckForNull PublishedDiagnostics previous,
+    long fingerprint,
+    List<Diagnostic> diagnostics
+  ) {
+    if (previous == null) {
+      return fingerprint == EMPTY_FINGERPRINT;
+    }
+    return previous.getFingerprint() == fingerprint && previous.getDiagnostics().equals(diagnostics);
+  }
+
+  private static long fingerprint(List<Diagnostic> diagnostics) {
+    if (diagnostics.isEmpty()) {
+      return EMPTY_FINGERPRINT;
+    }
+
+    long fingerprint = diagnostics.size();
+    for (Diagnostic diagnostic : diagnostics) {
+      fingerprint = fingerprint * 1_000_003L + diagnostic.hashCode();
+    }
+
+    // ненулевое значение, чтобы не совпасть с отпечатком пустого списка
+    return fingerprint == EMPTY_FINGERPRINT ? 1L : fingerprint;
+  }
+
+  @Value
+  private static class PublishedDiagnostics {
+    long fingerprint;
+    List<Diagnostic> diagnostics;
   }
 }
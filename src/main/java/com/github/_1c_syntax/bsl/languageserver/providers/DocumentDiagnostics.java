@@ -0,0 +1,183 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Рассчитанные диагностики одной версии документа.
+ * <p>
+ * Диагностики хранятся упорядоченными по диапазону и сгруппированными по коду диагностики,
+ * поэтому поиск известной диагностики, выборка диагностик в диапазоне запроса действий
+ * и выборка всех диагностик одного кода для "исправить все" не требуют перебора всего списка.
+ * Объект неизменяем.
+ * <p>
+ * Каждый расчет получает уникальный возрастающий номер ({@link #getSequence()}), по которому
+ * производные результаты (например, ссылки на описания диагностик) проверяют свою актуальность.
+ */
+public final class DocumentDiagnostics {
+
+  private static final Comparator<Position> POSITION_ORDER = Comparator
+    .comparingInt(Position::getLine)
+    .thenComparingInt(Position::getCharacter);
+
+  private static final Comparator<Diagnostic> RANGE_ORDER = Comparator
+    .comparing((Diagnostic diagnostic) -> diagnostic.getRange().getStart(), POSITION_ORDER)
+    .thenComparing((Diagnostic diagnostic) -> diagnostic.getRange().getEnd(), POSITION_ORDER);
+
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+  private static final DocumentDiagnostics EMPTY = new DocumentDiagnostics(-1, Collections.emptyList());
+
+  private final long sequence;
+  private final int version;
+  private final List<Diagnostic> diagnostics;
+  /**
+   * Наибольший конец диапазона среди диагностик с начала списка по текущую включительно.
+   */
+  private final Position[] maxEnds;
+  private final Set<Diagnostic> diagnosticSet;
+  private final Map<String, List<Diagnostic>> diagnosticsByCode;
+
+  public DocumentDiagnostics(int version, List<Diagnostic> diagnostics) {
+    this.sequence = SEQUENCE.incrementAndGet();
+    this.version = version;
+
+    List<Diagnostic> sortedDiagnostics = new ArrayList<>(diagnostics);
+    sortedDiagnostics.sort(RANGE_ORDER);
+    this.diagnostics = Collections.unmodifiableList(sortedDiagnostics);
+    this.diagnosticSet = new HashSet<>(sortedDiagnostics);
+
+    this.maxEnds = new Position[sortedDiagnostics.size()];
+    for (var i = 0; i < maxEnds.length; i++) {
+      Position end = sortedDiagnostics.get(i).getRange().getEnd();
+      maxEnds[i] = i > 0 && POSITION_ORDER.compare(maxEnds[i - 1], end) > 0 ? maxEnds[i - 1] : end;
+    }
+
+    Map<String, List<Diagnostic>> byCode = new HashMap<>();
+    for (Diagnostic diagnostic : sortedDiagnostics) {
+      byCode.computeIfAbsent(codeKey(diagnostic.getCode()), key -> new ArrayList<>()).add(diagnostic);
+    }
+    byCode.replaceAll((String key, List<Diagnostic> value) -> Collections.unmodifiableList(value));
+    this.diagnosticsByCode = byCode;
+  }
+
+  public static DocumentDiagnostics empty() {
+    return EMPTY;
+  }
+
+  /**
+   * @return номер расчета, уникальный в пределах процесса и возрастающий с каждым новым расчетом
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return версия документа, по которой рассчитаны диагностики
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * @return диагностики, упорядоченные по диапазону
+   */
+  public List<Diagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * @param code код диагностики
+   * @return диагностики с указанным кодом, упорядоченные по диапазону
+   */
+  public List<Diagnostic> getDiagnostics(Either<String, Number> code) {
+    return diagnosticsByCode.getOrDefault(codeKey(code), Collections.emptyList());
+  }
+
+  /**
+   * Диагностики, диапазон которых пересекается с указанным, включая касание границ.
+   * <p>
+   * Двоичным поиском находится последняя диагностика, начинающаяся не позже конца диапазона, после чего
+   * список просматривается назад, пока наибольший конец предшествующих диагностик не окажется раньше
+   * начала диапазона.
+   *
+   * @param range диапазон
+   * @return диагностики, упорядоченные по диапазону
+   */
+  public List<Diagnostic> getDiagnostics(Range range) {
+    List<Diagnostic> result = new ArrayList<>();
+    for (var i = upperBound(range.getEnd()) - 1; i >= 0; i--) {
+      if (POSITION_ORDER.compare(maxEnds[i], range.getStart()) < 0) {
+        break;
+      }
+      Diagnostic diagnostic = diagnostics.get(i);
+      if (POSITION_ORDER.compare(diagnostic.getRange().getEnd(), range.getStart()) >= 0) {
+        result.add(diagnostic);
+      }
+    }
+    Collections.reverse(result);
+    return result;
+  }
+
+  public boolean contains(Diagnostic diagnostic) {
+    return diagnosticSet.contains(diagnostic);
+  }
+
+  public boolean isEmpty() {
+    return diagnostics.isEmpty();
+  }
+
+  /**
+   * @return количество диагностик, начинающихся не позже указанной позиции
+   */
+  private int upperBound(Position position) {
+    var low = 0;
+    var high = diagnostics.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (POSITION_ORDER.compare(diagnostics.get(middle).getRange().getStart(), position) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static String codeKey(Either<String, Number> code) {
+    return code == null ? "" : DiagnosticCode.getStringValue(code);
+  }
+}
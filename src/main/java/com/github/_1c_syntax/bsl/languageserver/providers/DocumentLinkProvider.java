@@ -24,11 +24,13 @@ package com.github._1c_syntax.bsl.languageserver.providers;
 import com.github._1c_syntax.bsl.languageserver.configuration.Language;
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ProviderResultCache;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
 import com.github._1c_syntax.bsl.languageserver.utils.Resources;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.DocumentLink;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -36,6 +38,9 @@ import java.util.stream.Collectors;
  * Класс-провайдер для реализации формирования ссылки на страницу с информацией по диагностике
  */
 public class DocumentLinkProvider {
+  private static final ProviderResultCache.Key<List<DocumentLink>> CACHE_KEY
+    = ProviderResultCache.Key.create("documentLink");
+
   private final DiagnosticProvider diagnosticProvider;
   private final LanguageServerConfiguration configuration;
 
@@ -60,7 +65,13 @@ public class DocumentLinkProvider {
       languageSuffix
     );
 
-    return diagnosticProvider.getComputedDiagnostics(documentContext).stream()
+    var documentDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext);
+    // ссылки строятся по рассчитанным диагностикам, которые обновляются независимо от версии документа,
+    // поэтому в признак актуальности входит номер расчета диагностик, а не сам список
+    var stamp = Arrays.asList(documentDiagnostics.getSequence(), siteDiagnosticsUrl, language);
+
+    return documentContext.getProviderResultCache().getOrCompute(CACHE_KEY, stamp, () -> documentDiagnostics
+      .getDiagnostics().stream()
       .map((Diagnostic diagnostic) -> {
         var diagnosticCode = DiagnosticCode.getStringValue(diagnostic.getCode());
 
@@ -71,6 +82,6 @@ public class DocumentLinkProvider {
           Resources.getResourceString(language, this.getClass(), "tooltip", diagnosticCode)
         );
       })
-      .collect(Collectors.toList());
+      .collect(Collectors.toUnmodifiableList()));
   }
 }
@@ -22,6 +22,7 @@
 package com.github._1c_syntax.bsl.languageserver.providers;
 
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ProviderResultCache;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.RegionSymbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.Symbol;
@@ -44,15 +45,21 @@ public final class DocumentSymbolProvider {
     VariableSymbol.class, SymbolKind.Variable
   );
 
+  private static final ProviderResultCache.Key<List<Either<SymbolInformation, DocumentSymbol>>> CACHE_KEY
+    = ProviderResultCache.Key.create("documentSymbol");
+
   private DocumentSymbolProvider() {
     // only statics
   }
 
   public static List<Either<SymbolInformation, DocumentSymbol>> getDocumentSymbols(DocumentContext documentContext) {
-    return documentContext.getSymbolTree().getChildren().stream()
-      .map(DocumentSymbolProvider::toDocumentSymbol)
-      .map(Either::<SymbolInformation, DocumentSymbol>forRight)
-      .collect(Collectors.toList());
+    return documentContext.getProviderResultCache().getOrCompute(
+      CACHE_KEY,
+      () -> documentContext.getSymbolTree().getChildren().stream()
+        .map(DocumentSymbolProvider::toDocumentSymbol)
+        .map(Either::<SymbolInformation, DocumentSymbol>forRight)
+        .collect(Collectors.toUnmodifiableList())
+    );
   }
 
   private static DocumentSymbol toDocumentSymbol(Symbol symbol) {
@@ -22,8 +22,8 @@
 package com.github._1c_syntax.bsl.languageserver.providers;
 
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ProviderResultCache;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.RegionSymbol;
-import com.github._1c_syntax.bsl.languageserver.utils.Trees;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.bsl.parser.BSLParserBaseVisitor;
 import org.antlr.v4.runtime.Token;
@@ -34,39 +34,38 @@ import org.eclipse.lsp4j.FoldingRangeKind;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public final class FoldingRangeProvider {
 
+  private static final ProviderResultCache.Key<List<FoldingRange>> CACHE_KEY
+    = ProviderResultCache.Key.create("foldingRange");
+
   private FoldingRangeProvider() {
     // only statics
   }
 
   public static List<FoldingRange> getFoldingRange(DocumentContext documentContext) {
+    return documentContext.getProviderResultCache().getOrCompute(
+      CACHE_KEY,
+      () -> Collections.unmodifiableList(computeFoldingRanges(documentContext))
+    );
+  }
 
-    List<FoldingRange> foldingRanges = getCommentRanges(documentContext);
-
-    CodeBlockRangeFinder codeBlockRangeFinder = new CodeBlockRangeFinder();
-    codeBlockRangeFinder.visitFile(documentContext.getAst());
-    List<FoldingRange> codeBlockRegionRanges = codeBlockRangeFinder.getRegionRanges();
-
-    UseRangeFinder useRangeFinder = new UseRangeFinder();
-    useRangeFinder.visitFile(documentContext.getAst());
-    List<FoldingRange> useRegionRanges = useRangeFinder.getRegionRanges();
+  private static List<FoldingRange> computeFoldingRanges(DocumentContext documentContext) {
 
-    RegionRangeFinder regionRangeFinder = new RegionRangeFinder(documentContext);
-    List<FoldingRange> regionRanges = regionRangeFinder.getRegionRanges();
+    List<FoldingRange> foldingRanges = getCommentRanges(documentContext);
 
-    PreprocIfRegionRangeFinder preprocIfRegionRangeFinder = new PreprocIfRegionRangeFinder();
-    preprocIfRegionRangeFinder.visitFile(documentContext.getAst());
-    List<FoldingRange> preprocRegionRanges = preprocIfRegionRangeFinder.getRegionRanges();
+    // блоки кода, #Использовать и #Если собираются за один обход дерева
+    FoldingRangeFinder foldingRangeFinder = new FoldingRangeFinder();
+    foldingRangeFinder.visitFile(documentContext.getAst());
 
-    foldingRanges.addAll(codeBlockRegionRanges);
-    foldingRanges.addAll(useRegionRanges);
-    foldingRanges.addAll(regionRanges);
-    foldingRanges.addAll(preprocRegionRanges);
+    foldingRanges.addAll(foldingRangeFinder.getCodeBlockRanges());
+    foldingRanges.addAll(foldingRangeFinder.getUseRanges());
+    foldingRanges.addAll(getRegionRanges(documentContext));
+    foldingRanges.addAll(foldingRangeFinder.getPreprocIfRanges());
 
     return foldingRanges;
   }
@@ -104,138 +103,103 @@ public final class FoldingRangeProvider {
     return foldingRanges;
   }
 
-  private static class UseRangeFinder extends BSLParserBaseVisitor<ParseTree> {
+  private static List<FoldingRange> getRegionRanges(DocumentContext documentContext) {
+    List<RegionSymbol> regions = documentContext.getSymbolTree().getRegionsFlat();
+    List<FoldingRange> foldingRanges = new ArrayList<>(regions.size());
+    for (RegionSymbol regionSymbol : regions) {
+      FoldingRange foldingRange = new FoldingRange(
+        regionSymbol.getStartRange().getStart().getLine(),
+        regionSymbol.getEndRange().getEnd().getLine()
+      );
+      foldingRange.setKind(FoldingRangeKind.Region);
+
+      foldingRanges.add(foldingRange);
+    }
+    return foldingRanges;
+  }
+
+  private static class FoldingRangeFinder extends BSLParserBaseVisitor<ParseTree> {
 
-    private final List<FoldingRange> regionRanges = new ArrayList<>();
+    private final List<FoldingRange> codeBlockRanges = new ArrayList<>();
+    private final List<FoldingRange> preprocIfRanges = new ArrayList<>();
+    private final Deque<BSLParser.Preproc_ifContext> preprocIfRegionStack = new ArrayDeque<>();
 
-    public List<FoldingRange> getRegionRanges() {
-      return new ArrayList<>(regionRanges);
+    private BSLParser.UseContext firstUse;
+    private BSLParser.UseContext lastUse;
+
+    List<FoldingRange> getCodeBlockRanges() {
+      return codeBlockRanges;
     }
 
-    @Override
-    public ParseTree visitFile(BSLParser.FileContext ctx) {
-      ParseTree[] uses = Trees.findAllRuleNodes(ctx, BSLParser.RULE_use).toArray(new ParseTree[0]);
+    List<FoldingRange> getPreprocIfRanges() {
+      return preprocIfRanges;
+    }
 
-      if (uses.length <= 1) {
-        return ctx;
+    List<FoldingRange> getUseRanges() {
+      if (firstUse == null || firstUse == lastUse) {
+        return Collections.emptyList();
       }
 
-      int start = ((BSLParser.UseContext) uses[0]).getStart().getLine();
-      int stop = ((BSLParser.UseContext) uses[uses.length - 1]).getStop().getLine();
+      int start = firstUse.getStart().getLine();
+      int stop = lastUse.getStop().getLine();
 
       FoldingRange foldingRange = new FoldingRange(start - 1, stop - 1);
       foldingRange.setKind(FoldingRangeKind.Imports);
 
-      regionRanges.add(foldingRange);
-
-      return ctx;
+      return Collections.singletonList(foldingRange);
     }
 
-  }
-
-  private static class CodeBlockRangeFinder extends BSLParserBaseVisitor<ParseTree> {
-
-    private final List<FoldingRange> regionRanges = new ArrayList<>();
-
-    public List<FoldingRange> getRegionRanges() {
-      return new ArrayList<>(regionRanges);
+    @Override
+    public ParseTree visitUse(BSLParser.UseContext ctx) {
+      if (firstUse == null) {
+        firstUse = ctx;
+      }
+      lastUse = ctx;
+      return super.visitUse(ctx);
     }
 
     @Override
     public ParseTree visitProcedure(BSLParser.ProcedureContext ctx) {
-      addRegionRange(ctx.procDeclaration().PROCEDURE_KEYWORD(), ctx.ENDPROCEDURE_KEYWORD());
+      addCodeBlockRange(ctx.procDeclaration().PROCEDURE_KEYWORD(), ctx.ENDPROCEDURE_KEYWORD());
       return super.visitProcedure(ctx);
     }
 
     @Override
     public ParseTree visitFunction(BSLParser.FunctionContext ctx) {
-      addRegionRange(ctx.funcDeclaration().FUNCTION_KEYWORD(), ctx.ENDFUNCTION_KEYWORD());
+      addCodeBlockRange(ctx.funcDeclaration().FUNCTION_KEYWORD(), ctx.ENDFUNCTION_KEYWORD());
       return super.visitFunction(ctx);
     }
 
     @Override
     public ParseTree visitIfStatement(BSLParser.IfStatementContext ctx) {
-      addRegionRange(ctx.ifBranch().IF_KEYWORD(), ctx.ENDIF_KEYWORD());
+      addCodeBlockRange(ctx.ifBranch().IF_KEYWORD(), ctx.ENDIF_KEYWORD());
       return super.visitIfStatement(ctx);
     }
 
     @Override
     public ParseTree visitWhileStatement(BSLParser.WhileStatementContext ctx) {
-      addRegionRange(ctx.WHILE_KEYWORD(), ctx.ENDDO_KEYWORD());
+      addCodeBlockRange(ctx.WHILE_KEYWORD(), ctx.ENDDO_KEYWORD());
       return super.visitWhileStatement(ctx);
     }
 
     @Override
     public ParseTree visitForStatement(BSLParser.ForStatementContext ctx) {
-      addRegionRange(ctx.FOR_KEYWORD(), ctx.ENDDO_KEYWORD());
+      addCodeBlockRange(ctx.FOR_KEYWORD(), ctx.ENDDO_KEYWORD());
       return super.visitForStatement(ctx);
     }
 
     @Override
     public ParseTree visitForEachStatement(BSLParser.ForEachStatementContext ctx) {
-      addRegionRange(ctx.FOR_KEYWORD(), ctx.ENDDO_KEYWORD());
+      addCodeBlockRange(ctx.FOR_KEYWORD(), ctx.ENDDO_KEYWORD());
       return super.visitForEachStatement(ctx);
     }
 
     @Override
     public ParseTree visitTryStatement(BSLParser.TryStatementContext ctx) {
-      addRegionRange(ctx.TRY_KEYWORD(), ctx.ENDTRY_KEYWORD());
+      addCodeBlockRange(ctx.TRY_KEYWORD(), ctx.ENDTRY_KEYWORD());
       return super.visitTryStatement(ctx);
     }
 
-    private void addRegionRange(TerminalNode start, TerminalNode stop) {
-      if (start == null || stop == null) {
-        return;
-      }
-
-      int startLine = start.getSymbol().getLine();
-      int stopLine = stop.getSymbol().getLine();
-
-      if (stopLine > startLine) {
-        FoldingRange foldingRange = new FoldingRange(startLine - 1, stopLine - 1);
-        foldingRange.setKind(FoldingRangeKind.Region);
-
-        regionRanges.add(foldingRange);
-      }
-    }
-  }
-
-  private static class RegionRangeFinder {
-
-    private final List<FoldingRange> regionRanges;
-
-    RegionRangeFinder(DocumentContext documentContext) {
-      regionRanges = documentContext.getSymbolTree().getRegionsFlat().stream()
-        .map(RegionRangeFinder::toFoldingRange)
-        .collect(Collectors.toList());
-    }
-
-    List<FoldingRange> getRegionRanges() {
-      return new ArrayList<>(regionRanges);
-    }
-
-    private static FoldingRange toFoldingRange(RegionSymbol regionSymbol) {
-
-      FoldingRange foldingRange = new FoldingRange(
-        regionSymbol.getStartRange().getStart().getLine(),
-        regionSymbol.getEndRange().getEnd().getLine()
-      );
-      foldingRange.setKind(FoldingRangeKind.Region);
-
-      return foldingRange;
-    }
-
-  }
-
-  private static class PreprocIfRegionRangeFinder extends BSLParserBaseVisitor<ParseTree> {
-
-    private final Deque<BSLParser.Preproc_ifContext> preprocIfRegionStack = new ArrayDeque<>();
-    private final List<FoldingRange> regionRanges = new ArrayList<>();
-
-    public List<FoldingRange> getRegionRanges() {
-      return new ArrayList<>(regionRanges);
-    }
-
     @Override
     public ParseTree visitPreproc_if(BSLParser.Preproc_ifContext ctx) {
       preprocIfRegionStack.push(ctx);
@@ -257,10 +221,25 @@ public final class FoldingRangeProvider {
       FoldingRange foldingRange = new FoldingRange(start - 1, stop - 1);
       foldingRange.setKind(FoldingRangeKind.Region);
 
-      regionRanges.add(foldingRange);
+      preprocIfRanges.add(foldingRange);
 
       return super.visitPreproc_endif(ctx);
     }
 
+    private void addCodeBlockRange(TerminalNode start, TerminalNode stop) {
+      if (start == null || stop == null) {
+        return;
+      }
+
+      int startLine = start.getSymbol().getLine();
+      int stopLine = stop.getSymbol().getLine();
+
+      if (stopLine > startLine) {
+        FoldingRange foldingRange = new FoldingRange(startLine - 1, stopLine - 1);
+        foldingRange.setKind(FoldingRangeKind.Region);
+
+        codeBlockRanges.add(foldingRange);
+      }
+    }
   }
 }
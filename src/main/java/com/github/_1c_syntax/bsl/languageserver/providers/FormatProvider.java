@@ -22,11 +22,12 @@
 package com.github._1c_syntax.bsl.languageserver.providers;
 
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
-import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.bsl.parser.Tokenizer;
 import org.antlr.v4.runtime.Token;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.lsp4j.DocumentFormattingParams;
+import org.eclipse.lsp4j.DocumentOnTypeFormattingParams;
 import org.eclipse.lsp4j.DocumentRangeFormattingParams;
 import org.eclipse.lsp4j.FormattingOptions;
 import org.eclipse.lsp4j.Position;
@@ -39,7 +40,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 public final class FormatProvider {
 
@@ -79,6 +80,21 @@ public final class FormatProvider {
     BSLLexer.STRING
   ));
 
+  /**
+   * Максимальное количество строк, просматриваемых назад при поиске начала окна форматирования при вводе.
+   */
+  private static final int MAX_ON_TYPE_LOOKBEHIND_LINES = 200;
+
+  private static final Pattern METHOD_START_PATTERN = Pattern.compile(
+    "^(?:Процедура|Функция|Procedure|Function)\\s",
+    Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
+  );
+
+  private static final Pattern BLOCK_CONTINUATION_PATTERN = Pattern.compile(
+    "^(?:Конец|End|Иначе|Else|Исключение|Except)",
+    Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
+  );
+
   private FormatProvider() {
     // only statics
   }
@@ -93,7 +109,9 @@ public final class FormatProvider {
 
     return getTextEdits(
       tokens,
-      Ranges.create(firstToken, lastToken), firstToken.getCharPositionInLine(), params.getOptions()
+      firstToken.getCharPositionInLine(),
+      getStartPosition(lastToken),
+      params.getOptions()
     );
   }
 
@@ -103,46 +121,215 @@ public final class FormatProvider {
   ) {
     Position start = params.getRange().getStart();
     Position end = params.getRange().getEnd();
-    int startLine = start.getLine() + 1;
-    int startCharacter = start.getCharacter();
-    int endLine = end.getLine() + 1;
-    int endCharacter = end.getCharacter();
-
-    List<Token> tokens = documentContext.getTokens().stream()
-      .filter((Token token) -> {
-        int tokenLine = token.getLine();
-        int tokenCharacter = token.getCharPositionInLine();
-        return inLineRange(startLine, endLine, tokenLine)
-          || (tokenLine == endLine && betweenStartAndStopCharacters(startCharacter, endCharacter, tokenCharacter));
-      })
-      .collect(Collectors.toList());
-
-    return getTextEdits(tokens, params.getRange(), startCharacter, params.getOptions());
+
+    // токены упорядочены по позиции, поэтому границы диапазона ищутся двоичным поиском
+    List<Token> tokens = documentContext.getTokens();
+    int fromIndex;
+    if (start.getLine() == end.getLine()) {
+      fromIndex = lowerBound(tokens, start.getLine(), start.getCharacter());
+    } else {
+      fromIndex = lowerBound(tokens, start.getLine(), 0);
+    }
+    int toIndex = lowerBound(tokens, end.getLine(), end.getCharacter());
+    if (fromIndex >= toIndex) {
+      return Collections.emptyList();
+    }
+
+    return getTextEdits(tokens.subList(fromIndex, toIndex), start.getCharacter(), end, params.getOptions());
+  }
+
+  /**
+   * Расчет отступов строки, на которой произошел ввод.
+   * <p>
+   * Отступ вычисляется по тем же правилам, что и при форматировании документа, но только по локальному окну
+   * токенов: от ближайшего предшествующего начала метода (или другой строки без отступа) до строки ввода.
+   * При вводе перевода строки дополнительно выравнивается предыдущая строка, что позволяет сдвинуть
+   * только что введенные {@code КонецЕсли}, {@code Иначе} и аналогичные ключевые слова.
+   *
+   * @param params          параметры запроса
+   * @param documentContext контекст документа
+   * @return правки отступов строки ввода и, при вводе перевода строки, предыдущей строки
+   */
+  public static List<TextEdit> getOnTypeFormatting(
+    DocumentOnTypeFormattingParams params,
+    DocumentContext documentContext
+  ) {
+    String[] lines = documentContext.getContentList();
+    int line = params.getPosition().getLine();
+    if (line < 0 || line >= lines.length) {
+      return Collections.emptyList();
+    }
+
+    int anchorLine = findAnchorLine(lines, line);
+    if (anchorLine < 0) {
+      return Collections.emptyList();
+    }
+
+    StringBuilder windowText = new StringBuilder();
+    for (int i = anchorLine; i <= line; i++) {
+      if (i > anchorLine) {
+        windowText.append('\n');
+      }
+      windowText.append(StringUtils.removeEnd(lines[i], "\r"));
+    }
+
+    int[] indentLevels = computeIndentLevels(new Tokenizer(windowText.toString()).getTokens(), line - anchorLine + 1);
+
+    FormattingOptions options = params.getOptions();
+    String indentation = options.isInsertSpaces() ? StringUtils.repeat(' ', options.getTabSize()) : "\t";
+
+    List<TextEdit> edits = new ArrayList<>();
+    if ("\n".equals(params.getCh()) && line > anchorLine && !StringUtils.isBlank(lines[line - 1])) {
+      addIndentEdit(edits, lines[line - 1], line - 1, indentLevels[line - 1 - anchorLine], indentation);
+    }
+    addIndentEdit(edits, lines[line], line, indentLevels[line - anchorLine], indentation);
+
+    return edits;
+  }
+
+  /**
+   * Поиск строки, с которой начинается окно форматирования при вводе.
+   * <p>
+   * Предпочтение отдается ближайшему заголовку метода. Если он не найден в пределах
+   * {@link #MAX_ON_TYPE_LOOKBEHIND_LINES}, используется начало документа или самая ранняя строка без отступа,
+   * не являющаяся продолжением блока, строкой многострочного литерала или комментарием.
+   *
+   * @return номер строки или -1, если подходящей строки нет
+   */
+  private static int findAnchorLine(String[] lines, int line) {
+    int minLine = Math.max(0, line - MAX_ON_TYPE_LOOKBEHIND_LINES);
+    int candidate = -1;
+    for (int i = line; i >= minLine; i--) {
+      String text = lines[i];
+      if (METHOD_START_PATTERN.matcher(text).find()) {
+        return i;
+      }
+      if (!text.isEmpty()
+        && !Character.isWhitespace(text.charAt(0))
+        && !text.startsWith("|")
+        && !text.startsWith("//")
+        && !BLOCK_CONTINUATION_PATTERN.matcher(text).find()) {
+        candidate = i;
+      }
+    }
+
+    if (minLine == 0) {
+      return 0;
+    }
+    return candidate;
   }
 
-  private static boolean betweenStartAndStopCharacters(int startCharacter, int endCharacter, int tokenCharacter) {
-    return tokenCharacter >= startCharacter
-      && tokenCharacter < endCharacter;
+  /**
+   * Уровни отступа строк окна, начинающегося со строки без отступа.
+   * <p>
+   * Для строк без значимых токенов вычисляется уровень, действующий после последнего предшествующего токена.
+   */
+  private static int[] computeIndentLevels(List<Token> tokens, int lineCount) {
+    int[] indentLevels = new int[lineCount];
+    boolean[] hasTokens = new boolean[lineCount];
+
+    var state = new IndentationState(0);
+    int lastLine = -1;
+    for (Token token : tokens) {
+      if (token.getType() == Token.EOF || !isFormattedToken(token)) {
+        continue;
+      }
+      int tokenType = token.getType();
+      int tokenLine = token.getLine() - 1;
+
+      state.beforeToken(tokenType);
+
+      for (int i = lastLine + 1; i < tokenLine && i < lineCount; i++) {
+        indentLevels[i] = state.getLevel();
+      }
+
+      state.decrementIndent(tokenType);
+
+      if (tokenLine != lastLine && tokenLine < lineCount) {
+        indentLevels[tokenLine] = state.getLevel();
+        hasTokens[tokenLine] = true;
+      }
+
+      state.afterToken(tokenType);
+      lastLine = tokenLine;
+    }
+
+    for (int i = Math.max(lastLine + 1, 0); i < lineCount; i++) {
+      if (!hasTokens[i]) {
+        indentLevels[i] = state.getLevel();
+      }
+    }
+
+    return indentLevels;
+  }
+
+  private static void addIndentEdit(
+    List<TextEdit> edits,
+    String lineText,
+    int line,
+    int indentLevel,
+    String indentation
+  ) {
+    int currentIndentLength = 0;
+    while (currentIndentLength < lineText.length()
+      && (lineText.charAt(currentIndentLength) == ' ' || lineText.charAt(currentIndentLength) == '\t')) {
+      currentIndentLength++;
+    }
+
+    String newIndentation = StringUtils.repeat(indentation, Math.max(indentLevel, 0));
+    if (!newIndentation.equals(lineText.substring(0, currentIndentLength))) {
+      edits.add(new TextEdit(
+        new Range(new Position(line, 0), new Position(line, currentIndentLength)),
+        newIndentation
+      ));
+    }
   }
 
-  private static boolean inLineRange(int startLine, int endLine, int tokenLine) {
-    return tokenLine >= startLine
-      && tokenLine < endLine;
+  /**
+   * Индекс первого токена, начинающегося не раньше указанной позиции.
+   *
+   * @param tokens    токены документа
+   * @param line      номер строки (с нуля)
+   * @param character номер символа в строке
+   * @return индекс токена или размер списка, если таких токенов нет
+   */
+  private static int lowerBound(List<Token> tokens, int line, int character) {
+    int low = 0;
+    int high = tokens.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      Token token = tokens.get(middle);
+      int tokenLine = token.getLine() - 1;
+      if (tokenLine < line || (tokenLine == line && token.getCharPositionInLine() < character)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
   }
 
+  /**
+   * Формирует правки форматирования для непрерывной последовательности токенов.
+   * <p>
+   * Текст значимых токенов не изменяется, поэтому правки создаются только для промежутков между ними
+   * (отступы, пробелы, пустые строки) и для строк комментариев с лишними пробелами в конце.
+   * Промежуток попадает в результат только если его текст действительно меняется.
+   * <p>
+   * Правки не выходят за позицию {@code end}: текст незначимых токенов учитывается только до нее.
+   */
   private static List<TextEdit> getTextEdits(
     List<Token> tokens,
-    Range range,
     int startCharacter,
+    Position end,
     FormattingOptions options
   ) {
 
-    if (tokens.isEmpty()) {
-      return Collections.emptyList();
-    }
-
-    List<Token> filteredTokens = filteredTokens(tokens);
-    if (filteredTokens.isEmpty()) {
+    Token firstToken = tokens.stream()
+      .filter(FormatProvider::isFormattedToken)
+      .findFirst()
+      .orElse(null);
+    if (firstToken == null) {
       return Collections.emptyList();
     }
 
@@ -151,138 +338,151 @@ public final class FormatProvider {
     int tabSize = options.getTabSize();
     boolean insertSpaces = options.isInsertSpaces();
 
-    StringBuilder newTextBuilder = new StringBuilder();
-
-    Token firstToken = filteredTokens.get(0);
     String indentation = insertSpaces ? StringUtils.repeat(' ', tabSize) : "\t";
 
-    int currentIndentLevel = (firstToken.getCharPositionInLine() - startCharacter) / indentation.length();
-    int additionalIndentLevel = -1;
-    boolean inMethodDefinition = false;
-    boolean insideOperator = false;
-    boolean parameterDeclarationMode = false;
-
+    var state = new IndentationState((firstToken.getCharPositionInLine() - startCharacter) / indentation.length());
     int lastLine = firstToken.getLine();
-    int previousTokenType = -1;
 
-    for (Token token : filteredTokens) {
+    Position gapStart = getStartPosition(tokens.get(0));
+    StringBuilder originalGap = new StringBuilder();
+    StringBuilder newGap = new StringBuilder();
+
+    for (Token token : tokens) {
+      if (!isFormattedToken(token)) {
+        originalGap.append(getTextBefore(token, end));
+        continue;
+      }
+
       int tokenType = token.getType();
 
       boolean needNewLine = token.getLine() != lastLine;
 
-      if (tokenType == BSLLexer.FUNCTION_KEYWORD || tokenType == BSLLexer.PROCEDURE_KEYWORD) {
-        inMethodDefinition = true;
-      }
-      if (inMethodDefinition && tokenType == BSLLexer.RPAREN) {
-        inMethodDefinition = false;
-      }
-      switch (tokenType) {
-        case BSLLexer.IF_KEYWORD:
-        case BSLLexer.ELSIF_KEYWORD:
-        case BSLLexer.WHILE_KEYWORD:
-        case BSLLexer.FOR_KEYWORD:
-          insideOperator = true;
-        default:
-          // no-op
-      }
-      if (insideOperator) {
-        switch (tokenType) {
-          case BSLLexer.THEN_KEYWORD:
-          case BSLLexer.DO_KEYWORD:
-            insideOperator = false;
-          default:
-            // no-op
-        }
-      }
-
-      if (previousTokenType == BSLLexer.ANNOTATION_CUSTOM_SYMBOL && tokenType == BSLLexer.LPAREN) {
-        parameterDeclarationMode = true;
-      }
+      state.beforeToken(tokenType);
 
       // Add indentation before token lines
       if (needNewLine) {
-        String currentIndentation = StringUtils.repeat(indentation, currentIndentLevel);
-        newTextBuilder.append(StringUtils.repeat("\n" + currentIndentation, token.getLine() - lastLine - 1));
+        String currentIndentation = StringUtils.repeat(indentation, state.getLevel());
+        newGap.append(StringUtils.repeat("\n" + currentIndentation, token.getLine() - lastLine - 1));
       }
 
-      // Decrement indent on operators ends and right paren.
-      if (needDecrementIndent(tokenType)) {
-        currentIndentLevel--;
-
-        // additional decrement if additional indent was added after `=` sign.
-        // on all operators except right paren.
-        if (tokenType != BSLLexer.RPAREN && currentIndentLevel == additionalIndentLevel) {
-          currentIndentLevel--;
-          additionalIndentLevel = -1;
-        }
-      }
+      state.decrementIndent(tokenType);
 
       // Add indentation on token line
       if (token.equals(firstToken)) {
-        newTextBuilder.append(StringUtils.repeat(indentation, currentIndentLevel));
+        newGap.append(StringUtils.repeat(indentation, state.getLevel()));
       } else if (needNewLine) {
-        String currentIndentation = StringUtils.repeat(indentation, currentIndentLevel);
-        newTextBuilder.append("\n");
-        newTextBuilder.append(currentIndentation);
-      } else if (needAddSpace(tokenType, previousTokenType)) {
-        newTextBuilder.append(' ');
+        String currentIndentation = StringUtils.repeat(indentation, state.getLevel());
+        newGap.append("\n");
+        newGap.append(currentIndentation);
+      } else if (needAddSpace(tokenType, state.getPreviousTokenType())) {
+        newGap.append(' ');
       } else {
         // no-op
       }
 
-      String addedText = token.getText();
-      if (tokenType == BSLLexer.LINE_COMMENT || tokenType == BSLLexer.PREPROC_LINE_COMMENT) {
-        addedText = addedText.trim();
-      }
-      newTextBuilder.append(addedText);
-
-      // Increment on operator starts and left paren
-      if (needIncrementIndent(tokenType)) {
-        currentIndentLevel++;
-      }
+      addGapEdit(edits, gapStart, getStartPosition(token), originalGap, newGap);
 
-      // Add additional indent after first `=` sign in operator
-      if (tokenType == BSLLexer.ASSIGN && additionalIndentLevel < 0 && !inMethodDefinition && !insideOperator) {
-        currentIndentLevel++;
-        additionalIndentLevel = currentIndentLevel;
-      }
-      // Remove additional indent after semicolon or parameter default value.
-      if (additionalIndentLevel > 0
-        && (tokenType == BSLLexer.SEMICOLON || (parameterDeclarationMode && isPrimitive(tokenType)))) {
-        currentIndentLevel--;
-        additionalIndentLevel = -1;
+      if (tokenType == BSLLexer.LINE_COMMENT || tokenType == BSLLexer.PREPROC_LINE_COMMENT) {
+        String trimmedText = token.getText().trim();
+        if (!trimmedText.equals(token.getText())) {
+          edits.add(new TextEdit(new Range(getStartPosition(token), getEndPosition(token)), trimmedText));
+        }
       }
 
-      if (parameterDeclarationMode && tokenType == BSLLexer.RPAREN) {
-        parameterDeclarationMode = false;
-      }
+      state.afterToken(tokenType);
 
       lastLine = token.getLine();
-      previousTokenType = tokenType;
+      gapStart = getEndPosition(token);
     }
 
     Token lastToken = tokens.get(tokens.size() - 1);
-    if (lastToken.getText().endsWith("\n") || lastToken.getText().endsWith("\r")) {
-      newTextBuilder.append("\n");
+    String lastTokenText = isFormattedToken(lastToken) ? lastToken.getText() : getTextBefore(lastToken, end);
+    if (lastTokenText.endsWith("\n") || lastTokenText.endsWith("\r")) {
+      newGap.append("\n");
 
-      if (range.getEnd().getCharacter() != 0) {
-        String currentIndentation = StringUtils.repeat(indentation, currentIndentLevel);
-        newTextBuilder.append(currentIndentation);
+      if (end.getCharacter() != 0) {
+        String currentIndentation = StringUtils.repeat(indentation, state.getLevel());
+        newGap.append(currentIndentation);
       }
     }
-
-    TextEdit edit = new TextEdit(range, newTextBuilder.toString());
-    edits.add(edit);
+    Position gapEnd = getEndPosition(lastToken);
+    if (isAfter(gapEnd, end)) {
+      gapEnd = end;
+    }
+    addGapEdit(edits, gapStart, gapEnd, originalGap, newGap);
 
     return edits;
   }
 
-  private static List<Token> filteredTokens(List<Token> tokens) {
-    return tokens.stream()
-      .filter(token -> token.getChannel() == Token.DEFAULT_CHANNEL
-        || token.getType() == BSLLexer.LINE_COMMENT
-        || token.getType() == BSLLexer.PREPROC_LINE_COMMENT)
-      .collect(Collectors.toList());
+  private static void addGapEdit(
+    List<TextEdit> edits,
+    Position start,
+    Position end,
+    StringBuilder originalGap,
+    StringBuilder newGap
+  ) {
+    String newText = newGap.toString();
+    // сохраняем исходные переводы строк, чтобы не менять весь файл ради окончаний строк
+    if (originalGap.indexOf("\r\n") >= 0) {
+      newText = newText.replace("\n", "\r\n");
+    }
+
+    if (!newText.contentEquals(originalGap)) {
+      edits.add(new TextEdit(new Range(start, end), newText));
+    }
+
+    originalGap.setLength(0);
+    newGap.setLength(0);
+  }
+
+  private static boolean isFormattedToken(Token token) {
+    return token.getChannel() == Token.DEFAULT_CHANNEL
+      || token.getType() == BSLLexer.LINE_COMMENT
+      || token.getType() == BSLLexer.PREPROC_LINE_COMMENT;
+  }
+
+  private static Position getStartPosition(Token token) {
+    return new Position(token.getLine() - 1, token.getCharPositionInLine());
+  }
+
+  /**
+   * Текст токена, расположенный до указанной позиции. Для токена конца файла - пустая строка.
+   */
+  private static String getTextBefore(Token token, Position end) {
+    if (token.getType() == Token.EOF) {
+      return "";
+    }
+
+    String text = token.getText();
+    int line = token.getLine() - 1;
+    int character = token.getCharPositionInLine();
+    for (var i = 0; i < text.length(); i++) {
+      if (!isAfter(end, new Position(line, character))) {
+        return text.substring(0, i);
+      }
+      if (text.charAt(i) == '\n') {
+        line++;
+        character = 0;
+      } else {
+        character++;
+      }
+    }
+    return text;
+  }
+
+  private static boolean isAfter(Position position, Position other) {
+    return position.getLine() > other.getLine()
+      || (position.getLine() == other.getLine() && position.getCharacter() > other.getCharacter());
+  }
+
+  private static Position getEndPosition(Token token) {
+    String text = token.getText();
+    int lastLineBreak = text.lastIndexOf('\n');
+    if (lastLineBreak < 0) {
+      return new Position(token.getLine() - 1, token.getCharPositionInLine() + text.length());
+    }
+
+    return new Position(token.getLine() - 1 + StringUtils.countMatches(text, '\n'), text.length() - lastLineBreak - 1);
   }
 
   private static boolean needAddSpace(int type, int previousTokenType) {
@@ -344,5 +544,98 @@ public final class FormatProvider {
     return primitiveTokenTypes.contains(tokenType);
   }
 
-}
+  /**
+   * Состояние расчета отступов при последовательном обходе значимых токенов.
+   */
+  private static final class IndentationState {
+
+    private int currentIndentLevel;
+    private int additionalIndentLevel = -1;
+    private boolean inMethodDefinition;
+    private boolean insideOperator;
+    private boolean parameterDeclarationMode;
+    private int previousTokenType = -1;
 
+    private IndentationState(int currentIndentLevel) {
+      this.currentIndentLevel = currentIndentLevel;
+    }
+
+    private int getLevel() {
+      return currentIndentLevel;
+    }
+
+    private int getPreviousTokenType() {
+      return previousTokenType;
+    }
+
+    private void beforeToken(int tokenType) {
+      if (tokenType == BSLLexer.FUNCTION_KEYWORD || tokenType == BSLLexer.PROCEDURE_KEYWORD) {
+        inMethodDefinition = true;
+      }
+      if (inMethodDefinition && tokenType == BSLLexer.RPAREN) {
+        inMethodDefinition = false;
+      }
+      switch (tokenType) {
+        case BSLLexer.IF_KEYWORD:
+        case BSLLexer.ELSIF_KEYWORD:
+        case BSLLexer.WHILE_KEYWORD:
+        case BSLLexer.FOR_KEYWORD:
+          insideOperator = true;
+        default:
+          // no-op
+      }
+      if (insideOperator) {
+        switch (tokenType) {
+          case BSLLexer.THEN_KEYWORD:
+          case BSLLexer.DO_KEYWORD:
+            insideOperator = false;
+          default:
+            // no-op
+        }
+      }
+
+      if (previousTokenType == BSLLexer.ANNOTATION_CUSTOM_SYMBOL && tokenType == BSLLexer.LPAREN) {
+        parameterDeclarationMode = true;
+      }
+    }
+
+    private void decrementIndent(int tokenType) {
+      // Decrement indent on operators ends and right paren.
+      if (needDecrementIndent(tokenType)) {
+        currentIndentLevel--;
+
+        // additional decrement if additional indent was added after `=` sign.
+        // on all operators except right paren.
+        if (tokenType != BSLLexer.RPAREN && currentIndentLevel == additionalIndentLevel) {
+          currentIndentLevel--;
+          additionalIndentLevel = -1;
+        }
+      }
+    }
+
+    private void afterToken(int tokenType) {
+      // Increment on operator starts and left paren
+      if (needIncrementIndent(tokenType)) {
+        currentIndentLevel++;
+      }
+
+      // Add additional indent after first `=` sign in operator
+      if (tokenType == BSLLexer.ASSIGN && additionalIndentLevel < 0 && !inMethodDefinition && !insideOperator) {
+        currentIndentLevel++;
+        additionalIndentLevel = currentIndentLevel;
+      }
+      // Remove additional indent after semicolon or parameter default value.
+      if (additionalIndentLevel > 0
+        && (tokenType == BSLLexer.SEMICOLON || (parameterDeclarationMode && isPrimitive(tokenType)))) {
+        currentIndentLevel--;
+        additionalIndentLevel = -1;
+      }
+
+      if (parameterDeclarationMode && tokenType == BSLLexer.RPAREN) {
+        parameterDeclarationMode = false;
+      }
+      previousTokenType = tokenType;
+    }
+  }
+
+}
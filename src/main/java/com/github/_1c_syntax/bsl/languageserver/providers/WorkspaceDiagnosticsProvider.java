@@ -0,0 +1,300 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.ProgressParams;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.WorkDoneProgressBegin;
+import org.eclipse.lsp4j.WorkDoneProgressCreateParams;
+import org.eclipse.lsp4j.WorkDoneProgressEnd;
+import org.eclipse.lsp4j.WorkDoneProgressNotification;
+import org.eclipse.lsp4j.WorkDoneProgressReport;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.services.LanguageClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Фоновый расчет диагностик всех документов рабочей области.
+ * <p>
+ * Документы обрабатываются по одному в отдельном потоке с низким приоритетом. Перед обработкой очередного
+ * документа расчет ждет завершения запросов пользователя. Документы, открытые в редакторе, пропускаются:
+ * их диагностики рассчитываются по обычным событиям редактирования.
+ * <p>
+ * Документ анализируется по отдельному снимку, прочитанному с диска, который не попадает в контекст сервера,
+ * рассчитанные диагностики и объединение вычислений. Перед публикацией проверяется, что в контексте остался
+ * тот же снимок закрытого документа, иначе результат отбрасывается.
+ * <p>
+ * При закрытии документа его диагностики пересчитываются по файлу на диске, чтобы проблемы документа
+ * оставались в списке проблем рабочей области.
+ * <p>
+ * Ход расчета передается клиенту через {@code $/progress}, а диагностики публикуются пачками не чаще,
+ * чем раз в {@link #PUBLISH_INTERVAL_MILLIS} миллисекунд.
+ */
+@Slf4j
+public final class WorkspaceDiagnosticsProvider {
+
+  private static final String PROGRESS_TOKEN = "bsl-language-server/workspaceDiagnostics";
+  private static final int BATCH_SIZE = 50;
+  private static final long PUBLISH_INTERVAL_MILLIS = 500;
+  private static final long YIELD_MILLIS = 50;
+  private static final long MAX_YIELD_MILLIS = 5_000;
+  private static final long PROGRESS_CREATE_TIMEOUT_SECONDS = 5;
+
+  private final ServerContext context;
+  private final DiagnosticProvider diagnosticProvider;
+  private final BooleanSupplier interactiveRequestsPending;
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+    var thread = new Thread(runnable, "workspace-diagnostics");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+
+  public WorkspaceDiagnosticsProvider(
+    ServerContext context,
+    DiagnosticProvider diagnosticProvider,
+    BooleanSupplier interactiveRequestsPending
+  ) {
+    this.context = context;
+    this.diagnosticProvider = diagnosticProvider;
+    this.interactiveRequestsPending = interactiveRequestsPending;
+  }
+
+  /**
+   * Запустить фоновый расчет диагностик всех документов рабочей области.
+   *
+   * @param client                    клиент, которому публикуются диагностики и ход расчета
+   * @param workDoneProgressSupported клиент поддерживает {@code window/workDoneProgress/create}
+   *                                  (возможность клиента {@code window.workDoneProgress})
+   * @return завершение расчета
+   */
+  public CompletableFuture<Void> computeAndPublishDiagnostics(
+    LanguageClient client,
+    boolean workDoneProgressSupported
+  ) {
+    return CompletableFuture.runAsync(() -> computeAndPublish(client, workDoneProgressSupported), executorService);
+  }
+
+  private void computeAndPublish(LanguageClient client, boolean workDoneProgressSupported) {
+    List<URI> uris = new ArrayList<>(context.getDocuments().keySet());
+    LOGGER.debug("Computing diagnostics for {} workspace documents...", uris.size());
+
+    var progress = new Progress(client, uris.size(), workDoneProgressSupported);
+    progress.begin();
+
+    List<ComputedDiagnostics> batch = new ArrayList<>(BATCH_SIZE);
+    long lastPublishTime = System.currentTimeMillis();
+    int processed = 0;
+    for (URI uri : uris) {
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      yieldToInteractiveRequests();
+
+      // пустые результаты не публикуются: документ, еще не попадавший в список проблем, очищать не нужно
+      computeDiagnostics(uri)
+        .filter(computed -> !computed.getParams().getDiagnostics().isEmpty())
+        .ifPresent(batch::add);
+      processed++;
+
+      long elapsed = System.currentTimeMillis() - lastPublishTime;
+      if (elapsed >= PUBLISH_INTERVAL_MILLIS || batch.size() >= BATCH_SIZE) {
+        waitFor(PUBLISH_INTERVAL_MILLIS - elapsed);
+        publish(client, batch);
+        progress.report(processed);
+        lastPublishTime = System.currentTimeMillis();
+      }
+    }
+
+    publish(client, batch);
+    progress.end();
+    LOGGER.debug("Workspace diagnostics computed.");
+  }
+
+  /**
+   * Пересчитать и опубликовать диагностики закрытого документа по файлу на диске.
+   * <p>
+   * Расчет ставится в очередь за текущим расчетом рабочей области. Если документ к началу расчета снова
+   * открыт, изменен или удален, диагностики не публикуются.
+   *
+   * @param client клиент, которому публикуются диагностики
+   * @param uri    URI закрытого документа
+   * @return завершение расчета
+   */
+  public CompletableFuture<Void> computeAndPublishDiagnostics(LanguageClient client, URI uri) {
+    return CompletableFuture.runAsync(
+      () -> computeDiagnostics(uri).ifPresent(computed -> publish(client, computed)),
+      executorService
+    );
+  }
+
+  private Optional<ComputedDiagnostics> computeDiagnostics(URI uri) {
+    DocumentContext documentContext = context.getDocument(uri);
+    // документ удален или открыт в редакторе
+    if (documentContext == null || documentContext.hasContent()) {
+      return Optional.empty();
+    }
+
+    String content;
+    try {
+      content = FileUtils.readFileToString(new File(uri), StandardCharsets.UTF_8);
+    } catch (IOException | IllegalArgumentException e) {
+      LOGGER.warn("Can't read file {}", uri, e);
+      return Optional.empty();
+    }
+
+    // расчет выполняется по отдельному снимку, который не регистрируется в контексте
+    var detachedDocumentContext = new DocumentContext(uri, content, context);
+    List<Diagnostic> diagnostics = diagnosticProvider.computeDetachedDiagnostics(detachedDocumentContext);
+
+    return Optional.of(new ComputedDiagnostics(
+      documentContext,
+      new PublishDiagnosticsParams(uri.toString(), diagnostics)
+    ));
+  }
+
+  private void yieldToInteractiveRequests() {
+    long waited = 0;
+    while (interactiveRequestsPending.getAsBoolean() && waited < MAX_YIELD_MILLIS) {
+      if (!waitFor(YIELD_MILLIS)) {
+        return;
+      }
+      waited += YIELD_MILLIS;
+    }
+  }
+
+  private void publish(LanguageClient client, List<ComputedDiagnostics> batch) {
+    batch.forEach(computed -> publish(client, computed));
+    batch.clear();
+  }
+
+  private void publish(LanguageClient client, ComputedDiagnostics computed) {
+    // документ за время расчета мог быть открыт, изменен или удален
+    var documentContext = computed.getDocumentContext();
+    if (context.getDocument(documentContext.getUri()) == documentContext) {
+      diagnosticProvider.publishDiagnostics(client, computed.getParams());
+    }
+  }
+
+  private static boolean waitFor(long millis) {
+    if (millis <= 0) {
+      return true;
+    }
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Диагностики документа, рассчитанные по снимку закрытого документа.
+   */
+  @Value
+  private static class ComputedDiagnostics {
+    DocumentContext documentContext;
+    PublishDiagnosticsParams params;
+  }
+
+  /**
+   * Передача хода расчета клиенту через {@code window/workDoneProgress}.
+   * <p>
+   * Если клиент не заявил поддержку индикатора или не смог его создать, ход расчета не передается.
+   */
+  private static final class Progress {
+
+    private final LanguageClient client;
+    private final int total;
+    private final boolean supported;
+    private final Either<String, Number> token = Either.forLeft(PROGRESS_TOKEN);
+    private boolean enabled;
+
+    private Progress(LanguageClient client, int total, boolean supported) {
+      this.client = client;
+      this.total = total;
+      this.supported = supported;
+    }
+
+    private void begin() {
+      if (!supported) {
+        return;
+      }
+
+      try {
+        client.createProgress(new WorkDoneProgressCreateParams(token))
+          .get(PROGRESS_CREATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        enabled = true;
+      } catch (ExecutionException | TimeoutException | RuntimeException e) {
+        LOGGER.debug("Client doesn't support work done progress", e);
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      var begin = new WorkDoneProgressBegin();
+      begin.setTitle("Workspace diagnostics");
+      begin.setCancellable(Boolean.FALSE);
+      begin.setPercentage(0);
+      notify(begin);
+    }
+
+    private void report(int processed) {
+      var report = new WorkDoneProgressReport();
+      report.setMessage(String.format("%d/%d", processed, total));
+      report.setPercentage(total == 0 ? 100 : processed * 100 / total);
+      notify(report);
+    }
+
+    private void end() {
+      notify(new WorkDoneProgressEnd());
+    }
+
+    private void notify(WorkDoneProgressNotification notification) {
+      if (enabled) {
+        client.notifyProgress(new ProgressParams(token, notification));
+      }
+    }
+  }
+}
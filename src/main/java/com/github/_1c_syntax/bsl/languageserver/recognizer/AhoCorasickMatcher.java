@@ -0,0 +1,155 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.recognizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Автомат Ахо-Корасик для подсчета вхождений набора подстрок за один проход по строке.
+ * <p>
+ * Переходы хранятся в виде полной таблицы по сжатому алфавиту, составленному из символов искомых подстрок.
+ * Символы, отсутствующие в алфавите, переводят автомат в начальное состояние.
+ * Пробельные символы при поиске пропускаются.
+ */
+final class AhoCorasickMatcher {
+
+  private static final int ROOT = 0;
+  private static final int UNKNOWN_SYMBOL = 0;
+
+  private final char[] alphabet;
+  private final int[][] transitions;
+  private final int[] outputs;
+
+  AhoCorasickMatcher(Collection<String> patterns) {
+    alphabet = buildAlphabet(patterns);
+
+    List<int[]> trie = new ArrayList<>();
+    List<Integer> trieOutputs = new ArrayList<>();
+    trie.add(newState());
+    trieOutputs.add(0);
+
+    for (String pattern : patterns) {
+      if (pattern.isEmpty()) {
+        continue;
+      }
+      int state = ROOT;
+      for (int i = 0; i < pattern.length(); i++) {
+        int symbol = symbolOf(pattern.charAt(i));
+        if (trie.get(state)[symbol] < 0) {
+          trie.get(state)[symbol] = trie.size();
+          trie.add(newState());
+          trieOutputs.add(0);
+        }
+        state = trie.get(state)[symbol];
+      }
+      trieOutputs.set(state, trieOutputs.get(state) + 1);
+    }
+
+    transitions = trie.toArray(new int[0][]);
+    outputs = trieOutputs.stream().mapToInt(Integer::intValue).toArray();
+    buildFailureTransitions();
+  }
+
+  /**
+   * @param text строка для поиска
+   * @return количество вхождений всех подстрок, повторяющиеся подстроки учитываются столько раз,
+   * сколько раз они были переданы в конструктор
+   */
+  int countMatches(CharSequence text) {
+    int state = ROOT;
+    int matches = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char character = text.charAt(i);
+      if (Character.isWhitespace(character)) {
+        continue;
+      }
+      state = transitions[state][symbolOf(character)];
+      matches += outputs[state];
+    }
+    return matches;
+  }
+
+  private int[] newState() {
+    int[] state = new int[alphabet.length + 1];
+    Arrays.fill(state, -1);
+    return state;
+  }
+
+  private int symbolOf(char character) {
+    int index = Arrays.binarySearch(alphabet, character);
+    return index < 0 ? UNKNOWN_SYMBOL : index + 1;
+  }
+
+  private void buildFailureTransitions() {
+    int[] failure = new int[transitions.length];
+    Deque<Integer> queue = new ArrayDeque<>();
+
+    int[] root = transitions[ROOT];
+    for (int symbol = 0; symbol < root.length; symbol++) {
+      int next = root[symbol];
+      if (next < 0 || symbol == UNKNOWN_SYMBOL) {
+        root[symbol] = ROOT;
+      } else {
+        failure[next] = ROOT;
+        queue.add(next);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      int[] stateTransitions = transitions[state];
+      for (int symbol = 0; symbol < stateTransitions.length; symbol++) {
+        int next = stateTransitions[symbol];
+        int failureNext = transitions[failure[state]][symbol];
+        if (next < 0 || symbol == UNKNOWN_SYMBOL) {
+          stateTransitions[symbol] = symbol == UNKNOWN_SYMBOL ? ROOT : failureNext;
+        } else {
+          failure[next] = failureNext;
+          outputs[next] += outputs[failureNext];
+          queue.add(next);
+        }
+      }
+    }
+  }
+
+  private static char[] buildAlphabet(Collection<String> patterns) {
+    var characters = new TreeSet<Character>();
+    patterns.forEach((String pattern) -> {
+      for (int i = 0; i < pattern.length(); i++) {
+        characters.add(pattern.charAt(i));
+      }
+    });
+
+    char[] result = new char[characters.size()];
+    int index = 0;
+    for (Character character : characters) {
+      result[index++] = character;
+    }
+    return result;
+  }
+}
@@ -21,18 +21,36 @@
  */
 package com.github._1c_syntax.bsl.languageserver.recognizer;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
+/**
+ * Набор детекторов кода на языке 1С.
+ * <p>
+ * Детекторы упорядочены от более дешевых к более дорогим, чтобы {@link CodeRecognizer} мог прекратить
+ * проверку строки, как только вероятность превысит порог.
+ */
 public class BSLFootprint implements LanguageFootprint {
 
-  private final Set<AbstractDetector> detectors = new HashSet<>();
+  private final Set<AbstractDetector> detectors = new LinkedHashSet<>();
 
   public BSLFootprint() {
     final double CODE_EXACTLY = 0.95;
     final double CODE_MOST_LIKELY = 0.7;
     final double CODE_MAYBE = 0.3;
 
+    detectors.add(new EndWithDetector(CODE_MAYBE, ';'));
+    detectors.add(new CamelCaseDetector(CODE_MOST_LIKELY));
+    detectors.add(new KeywordsDetector(CODE_EXACTLY, "ИначеЕсли", "ElsIf"));
+    detectors.add(new KeywordsDetector(CODE_MOST_LIKELY, "ВЫБРАТЬ", "РАЗРЕШЕННЫЕ", "ПЕРВЫЕ", "ГДЕ",
+      "СОЕДИНЕНИЕ", "НЕ", "ОБЪЕДИНИТЬ", "ВЫБОР", "КАК", "ТОГДА", "КОГДА", "ИНАЧЕ", "ПОМЕСТИТЬ", "ИЗ", "=", "+",
+      "SELECT", "ТОР", "ПЕРВЫЕ", "WНERE", "JOIN", "NOT", "AS", "THEN", "CASE", "WНEN", "ELSE", "FROM", "INTO"));
+    detectors.add(new KeywordsDetector(CODE_MAYBE, "И", "ИЛИ", "AND", "OR"));
+    detectors.add(new KeywordsDetector(CODE_MAYBE, "Если", "Тогда", "Процедура", "Функция", "Пока", "Для",
+      "Каждого", "Цикл", "Возврат", "Новый", "*", "If", "Then", "Procedure", "Function", "Do", "For", "While", "Return",
+      "New"));
+
     detectors.add(new ContainsDetector(
       CODE_EXACTLY,
       "КонецПроцедуры", "КонецФункции", "КонецЕсли;", "КонецЦикла;",
@@ -43,18 +61,6 @@ public class BSLFootprint implements LanguageFootprint {
       "StrFind(", ".Select(", ".Unload(", ".Execute(", "?(", ");",
       "#Если", "#Иначе", "#КонецЕсли", "#Область", "КонецПопытки;",
       "#If", "#Else", "#ElsIf", "#EndIf", "#Region", "EndTry;"));
-    detectors.add(new KeywordsDetector(CODE_EXACTLY, "ИначеЕсли", "ElsIf"));
-
-    detectors.add(new CamelCaseDetector(CODE_MOST_LIKELY));
-    detectors.add(new KeywordsDetector(CODE_MOST_LIKELY, "ВЫБРАТЬ", "РАЗРЕШЕННЫЕ", "ПЕРВЫЕ", "ГДЕ",
-      "СОЕДИНЕНИЕ", "НЕ", "ОБЪЕДИНИТЬ", "ВЫБОР", "КАК", "ТОГДА", "КОГДА", "ИНАЧЕ", "ПОМЕСТИТЬ", "ИЗ", "=", "+",
-      "SELECT", "ТОР", "ПЕРВЫЕ", "WНERE", "JOIN", "NOT", "AS", "THEN", "CASE", "WНEN", "ELSE", "FROM", "INTO"));
-
-    detectors.add(new EndWithDetector(CODE_MAYBE, ';'));
-    detectors.add(new KeywordsDetector(CODE_MAYBE, "И", "ИЛИ", "AND", "OR"));
-    detectors.add(new KeywordsDetector(CODE_MAYBE, "Если", "Тогда", "Процедура", "Функция", "Пока", "Для",
-      "Каждого", "Цикл", "Возврат", "Новый", "*", "If", "Then", "Procedure", "Function", "Do", "For", "While", "Return",
-      "New"));
 
     detectors.add(new PatternDetector(CODE_EXACTLY,
       "^[/\\s]*(?:Процедура|Функция|Procedure|Function)\\s+[а-яА-Яё\\w]+\\s*?\\(",
@@ -63,7 +69,7 @@ public class BSLFootprint implements LanguageFootprint {
 
   @Override
   public Set<AbstractDetector> getDetectors() {
-    return new HashSet<>(detectors);
+    return Collections.unmodifiableSet(detectors);
   }
 
 }
@@ -34,6 +34,10 @@ public class CodeRecognizer {
     double probability = 0;
     for (AbstractDetector pattern : language.getDetectors()) {
       probability = 1 - (1 - probability) * (1 - pattern.detect(line));
+      // вероятность не уменьшается, поэтому остальные детекторы на результат не повлияют
+      if (probability > threshold) {
+        break;
+      }
     }
     return probability;
   }
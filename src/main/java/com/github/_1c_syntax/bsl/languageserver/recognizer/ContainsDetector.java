@@ -21,28 +21,20 @@
  */
 package com.github._1c_syntax.bsl.languageserver.recognizer;
 
-import org.apache.commons.lang3.StringUtils;
-
 import java.util.Arrays;
-import java.util.List;
 
 public class ContainsDetector extends AbstractDetector {
 
-  private final List<String> searchWords;
+  private final AhoCorasickMatcher matcher;
 
   public ContainsDetector(double probability, String... searchWords) {
     super(probability);
-    this.searchWords = Arrays.asList(searchWords);
+    this.matcher = new AhoCorasickMatcher(Arrays.asList(searchWords));
   }
 
   @Override
   public int scan(String line) {
-    String lineWithoutWhitespaces = StringUtils.deleteWhitespace(line);
-    int matchers = 0;
-    for (String str : searchWords) {
-      matchers += StringUtils.countMatches(lineWithoutWhitespaces, str);
-    }
-    return matchers;
+    return matcher.countMatches(line);
   }
 
 }
@@ -22,16 +22,17 @@
 package com.github._1c_syntax.bsl.languageserver.recognizer;
 
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 public class KeywordsDetector extends AbstractDetector {
 
-  private final List<String> keywords;
+  private final Set<String> keywords;
 
   public KeywordsDetector(double probability, String... keywords) {
     super(probability);
-    this.keywords = Arrays.asList(keywords);
+    this.keywords = new HashSet<>(Arrays.asList(keywords));
   }
 
   @Override
@@ -1,85 +0,0 @@
-/*
- * This file is a part of BSL Language Server.
- *
- * Copyright © 2018-2020
- * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
- *
- * SPDX-License-Identifier: LGPL-3.0-or-later
- *
- * BSL Language Server is free software; you can redistribute it and/or
- * modify it under the terms of the GNU Lesser General Public
- * License as published by the Free Software Foundation; either
- * version 3.0 of the License, or (at your option) any later version.
- *
- * BSL Language Server is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
- * Lesser General Public License for more details.
- *
- * You should have received a copy of the GNU Lesser General Public
- * License along with BSL Language Server.
- */
-/*
- * Originally authored by Ilkka Seppälä with the MIT License:
- *
- * The MIT License
- * Copyright © 2014-2019 Ilkka Seppälä
- *
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- *
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package com.github._1c_syntax.bsl.languageserver.utils;
-
-import java.util.HashSet;
-import java.util.Set;
-
-/**
- * Generic object pool.
- *
- * @param <T> Type T of Object in the Pool
- */
-public abstract class AbstractObjectPool<T> {
-
-  private final Set<T> available = new HashSet<>();
-  private final Set<T> inUse = new HashSet<>();
-
-  protected abstract T create();
-
-  /**
-   * Checkout object from pool.
-   */
-  public synchronized T checkOut() {
-    if (available.isEmpty()) {
-      available.add(create());
-    }
-    T instance = available.iterator().next();
-    available.remove(instance);
-    inUse.add(instance);
-    return instance;
-  }
-
-  public synchronized void checkIn(T instance) {
-    inUse.remove(instance);
-    available.add(instance);
-  }
-
-  @Override
-  public synchronized String toString() {
-    return String.format("Pool available=%d inUse=%d", available.size(), inUse.size());
-  }
-}
@@ -30,6 +30,8 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.antlr.v4.runtime.tree.Tree;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -41,6 +43,31 @@ public final class DiagnosticHelper {
 
   public static boolean equalNodes(Tree leftNode, Tree rightNode) {
 
+    // обход без рекурсии: пары сравниваемых нод хранятся в двух синхронных стеках
+    Deque<Tree> leftNodes = new ArrayDeque<>();
+    Deque<Tree> rightNodes = new ArrayDeque<>();
+    leftNodes.push(leftNode);
+    rightNodes.push(rightNode);
+
+    while (!leftNodes.isEmpty()) {
+      Tree left = leftNodes.pop();
+      Tree right = rightNodes.pop();
+
+      if (!equalNodeHeaders(left, right)) {
+        return false;
+      }
+
+      for (int i = left.getChildCount() - 1; i >= 0; i--) {
+        leftNodes.push(left.getChild(i));
+        rightNodes.push(right.getChild(i));
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean equalNodeHeaders(Tree leftNode, Tree rightNode) {
+
     if (leftNode.getChildCount() != rightNode.getChildCount()
       || !leftNode.getClass().equals(rightNode.getClass())) {
       return false;
@@ -51,19 +78,9 @@ public final class DiagnosticHelper {
       int leftNodeType = ((TerminalNode) leftNode).getSymbol().getType();
       int rightNodeType = ((TerminalNode) rightNode).getSymbol().getType();
 
-      if (leftNodeType != rightNodeType
-        || (leftNodeType == BSLParser.STRING
-        && !leftNode.toString().equals(rightNode.toString()))
-        || (!leftNode.toString().equalsIgnoreCase(rightNode.toString()))) {
-        return false;
-      }
-
-    }
-
-    for (int i = 0; i < leftNode.getChildCount(); i++) {
-      if (!equalNodes(leftNode.getChild(i), rightNode.getChild(i))) {
-        return false;
-      }
+      return leftNodeType == rightNodeType
+        && (leftNodeType != BSLParser.STRING || leftNode.toString().equals(rightNode.toString()))
+        && leftNode.toString().equalsIgnoreCase(rightNode.toString());
     }
 
     return true;
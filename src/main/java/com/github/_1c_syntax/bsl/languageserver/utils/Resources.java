@@ -42,7 +42,7 @@ public class Resources {
   public String getResourceString(Language language, Class<?> clazz, String key) {
     String languageCode = language.getLanguageCode();
     Locale locale = Locale.forLanguageTag(languageCode);
-    return ResourceBundle.getBundle(clazz.getName(), locale, new UTF8Control()).getString(key).intern();
+    return StringInterner.intern(ResourceBundle.getBundle(clazz.getName(), locale, new UTF8Control()).getString(key));
   }
   /**
    * @param language Язык получения ресурсной строки.
@@ -52,6 +52,6 @@ public class Resources {
    * @return Содержимое ресурса.
    */
   public String getResourceString(Language language, Class<?> clazz, String key, Object... args) {
-    return String.format(getResourceString(language, clazz, key), args).intern();
+    return StringInterner.intern(String.format(getResourceString(language, clazz, key), args));
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ограниченный по размеру пул строк для устранения дубликатов.
+ * <p>
+ * В отличие от {@link String#intern()} не использует пул строк JVM. После заполнения пула новые строки
+ * возвращаются как есть, уже добавленные продолжают переиспользоваться.
+ */
+@UtilityClass
+public class StringInterner {
+
+  private static final int MAX_SIZE = 100_000;
+  private static final Map<String, String> POOL = new ConcurrentHashMap<>();
+
+  /**
+   * @param value строка
+   * @return ранее сохраненная равная строка, либо переданная строка
+   */
+  public String intern(String value) {
+    String pooled = POOL.get(value);
+    if (pooled != null) {
+      return pooled;
+    }
+    if (POOL.size() >= MAX_SIZE) {
+      return value;
+    }
+
+    pooled = POOL.putIfAbsent(value, value);
+    return pooled == null ? value : pooled;
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import lombok.experimental.UtilityClass;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.TextEdit;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Вспомогательные методы для работы с правками текста.
+ */
+@UtilityClass
+public class TextEdits {
+
+  /**
+   * Применяет непересекающиеся правки к тексту.
+   *
+   * @param text  исходный текст
+   * @param edits правки в произвольном порядке
+   * @return текст с примененными правками
+   */
+  public String apply(String text, List<TextEdit> edits) {
+    if (edits.isEmpty()) {
+      return text;
+    }
+
+    List<Integer> lineOffsets = new ArrayList<>();
+    lineOffsets.add(0);
+    for (var i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n') {
+        lineOffsets.add(i + 1);
+      }
+    }
+
+    List<TextEdit> sortedEdits = new ArrayList<>(edits);
+    sortedEdits.sort(Comparator
+      .comparing((TextEdit edit) -> edit.getRange().getStart().getLine())
+      .thenComparing(edit -> edit.getRange().getStart().getCharacter()));
+
+    var builder = new StringBuilder(text.length());
+    var offset = 0;
+    for (TextEdit edit : sortedEdits) {
+      int start = toOffset(text, lineOffsets, edit.getRange().getStart());
+      int end = toOffset(text, lineOffsets, edit.getRange().getEnd());
+      builder.append(text, offset, start);
+      builder.append(edit.getNewText());
+      offset = end;
+    }
+    builder.append(text, offset, text.length());
+
+    return builder.toString();
+  }
+
+  private int toOffset(String text, List<Integer> lineOffsets, Position position) {
+    if (position.getLine() >= lineOffsets.size()) {
+      return text.length();
+    }
+    return Math.min(lineOffsets.get(position.getLine()) + position.getCharacter(), text.length());
+  }
+}
@@ -31,13 +31,17 @@ import org.antlr.v4.runtime.tree.TerminalNode;
 import org.antlr.v4.runtime.tree.Tree;
 
 import javax.annotation.CheckForNull;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -62,7 +66,13 @@ public final class Trees {
    */
 
   public static Collection<ParseTree> findAllRuleNodes(ParseTree t, int ruleIndex) {
-    return org.antlr.v4.runtime.tree.Trees.findAllRuleNodes(t, ruleIndex);
+    List<ParseTree> nodes = new ArrayList<>();
+    forEachDescendant(t, (ParseTree node) -> {
+      if (node instanceof ParserRuleContext && ((ParserRuleContext) node).getRuleIndex() == ruleIndex) {
+        nodes.add(node);
+      }
+    });
+    return nodes;
   }
 
   public static List<Tree> getChildren(Tree t) {
@@ -70,22 +80,89 @@ public final class Trees {
   }
 
   public static Collection<ParseTree> findAllTokenNodes(ParseTree t, int ttype) {
-    return org.antlr.v4.runtime.tree.Trees.findAllTokenNodes(t, ttype);
+    List<ParseTree> nodes = new ArrayList<>();
+    forEachDescendant(t, (ParseTree node) -> {
+      if (node instanceof TerminalNode && ((TerminalNode) node).getSymbol().getType() == ttype) {
+        nodes.add(node);
+      }
+    });
+    return nodes;
   }
 
   public static List<ParseTree> getDescendants(ParseTree t) {
     List<ParseTree> nodes = new ArrayList<>(t.getChildCount());
-    flatten(t, nodes);
+    forEachDescendant(t, nodes::add);
     return nodes;
   }
 
-  private static void flatten(ParseTree t, List<ParseTree> flatList) {
-    flatList.add(t);
+  /**
+   * Примитивы обхода дерева.
+   * Обход выполняется без рекурсии с явным стеком, поэтому глубина дерева ограничена только памятью.
+   */
+
+  /**
+   * Выполняет прямой обход поддерева (включая корень)
+   *
+   * @param t      - корень поддерева
+   * @param action - действие, выполняемое для каждой ноды
+   */
+  public static void forEachDescendant(ParseTree t, Consumer<ParseTree> action) {
+    Deque<ParseTree> stack = new ArrayDeque<>();
+    stack.push(t);
+    while (!stack.isEmpty()) {
+      ParseTree node = stack.pop();
+      action.accept(node);
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        stack.push(node.getChild(i));
+      }
+    }
+  }
+
+  /**
+   * Выполняет прямой обход поддерева (включая корень) до первой ноды, удовлетворяющей условию
+   *
+   * @param t         - корень поддерева
+   * @param predicate - условие поиска
+   * @return первая в порядке прямого обхода нода, удовлетворяющая условию
+   */
+  public static Optional<ParseTree> findFirstDescendant(ParseTree t, Predicate<ParseTree> predicate) {
+    Deque<ParseTree> stack = new ArrayDeque<>();
+    stack.push(t);
+    while (!stack.isEmpty()) {
+      ParseTree node = stack.pop();
+      if (predicate.test(node)) {
+        return Optional.of(node);
+      }
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        stack.push(node.getChild(i));
+      }
+    }
+    return Optional.empty();
+  }
 
-    int n = t.getChildCount();
-    for (int i = 0; i < n; i++) {
-      flatten(t.getChild(i), flatList);
+  /**
+   * Формирует битовую маску типов правил для быстрой проверки принадлежности
+   *
+   * @param ruleIndexes - BSLParser.RULE_*
+   * @return битовая маска, в которой установлены биты переданных типов
+   */
+  public static BitSet ruleIndexMask(Integer... ruleIndexes) {
+    BitSet mask = new BitSet();
+    for (Integer ruleIndex : ruleIndexes) {
+      if (ruleIndex >= 0) {
+        mask.set(ruleIndex);
+      }
     }
+    return mask;
+  }
+
+  /**
+   * @param node - нода дерева
+   * @param mask - битовая маска типов правил (см. {@link #ruleIndexMask(Integer...)})
+   * @return true - если нода является правилом одного из типов маски
+   */
+  public static boolean isRuleOf(ParseTree node, BitSet mask) {
+    return node instanceof ParserRuleContext && mask.get(((ParserRuleContext) node).getRuleIndex());
   }
 
   /**
@@ -103,14 +180,14 @@ public final class Trees {
   private static List<ParseTree> getDescendantsWithFilter(ParseTree parent, ParseTree tnc, int ruleindex) {
     List<ParseTree> descendants;
     if (getRuleIndex(tnc) == ruleindex) {
-      descendants = new ArrayList<>(org.antlr.v4.runtime.tree.Trees.findAllRuleNodes(parent, ruleindex));
+      descendants = new ArrayList<>(findAllRuleNodes(parent, ruleindex));
     } else {
-      descendants = org.antlr.v4.runtime.tree.Trees.getDescendants(parent)
-        .stream()
-        .filter(node -> node instanceof BSLParserRuleContext)
-        .filter(node -> (node.equals(tnc)
-          || getRuleIndex(node) == ruleindex))
-        .collect(Collectors.toList());
+      descendants = new ArrayList<>();
+      forEachDescendant(parent, (ParseTree node) -> {
+        if (node instanceof BSLParserRuleContext && (node.equals(tnc) || getRuleIndex(node) == ruleindex)) {
+          descendants.add(node);
+        }
+      });
     }
     return descendants;
   }
@@ -123,13 +200,10 @@ public final class Trees {
   @CheckForNull
   public static ParserRuleContext getAncestorByRuleIndex(ParserRuleContext element, int type) {
     ParserRuleContext parent = element.getParent();
-    if (parent == null) {
-      return null;
+    while (parent != null && parent.getRuleIndex() != type) {
+      parent = parent.getParent();
     }
-    if (parent.getRuleIndex() == type) {
-      return parent;
-    }
-    return getAncestorByRuleIndex(parent, type);
+    return parent;
   }
 
   /**
@@ -211,54 +285,46 @@ public final class Trees {
   }
 
   /**
-   * Рекурсивно находит самого верхнего родителя текущей ноды
+   * Находит самого верхнего родителя текущей ноды
    */
   public static BSLParserRuleContext getRootParent(BSLParserRuleContext tnc) {
-    if (tnc.getParent() != null) {
-      return getRootParent((BSLParserRuleContext) tnc.getParent());
+    BSLParserRuleContext root = tnc;
+    while (root.getParent() != null) {
+      root = (BSLParserRuleContext) root.getParent();
     }
-
-    return tnc;
+    return root;
   }
 
   /**
-   * Рекурсивно находит самого верхнего родителя текущей ноды нужного типа
+   * Находит ближайшего родителя текущей ноды нужного типа
    *
    * @param tnc       - нода, для которой ищем родителя
    * @param ruleindex - BSLParser.RULE_*
    * @return tnc - если родитель не найден, вернет null
    */
+  @CheckForNull
   public static BSLParserRuleContext getRootParent(BSLParserRuleContext tnc, int ruleindex) {
-    final var parent = tnc.getParent();
-    if (parent == null) {
-      return null;
-    }
-
-    if (getRuleIndex(parent) == ruleindex) {
-      return (BSLParserRuleContext) parent;
-    } else {
-      return getRootParent((BSLParserRuleContext) parent, ruleindex);
+    var parent = tnc.getParent();
+    while (parent != null && getRuleIndex(parent) != ruleindex) {
+      parent = parent.getParent();
     }
+    return (BSLParserRuleContext) parent;
   }
 
   /**
-   * Рекурсивно находит самого верхнего родителя текущей ноды одного из нужных типов
+   * Находит ближайшего родителя текущей ноды одного из нужных типов
    *
    * @param tnc       - нода, для которой ищем родителя
    * @param indexes - Collection of BSLParser.RULE_*
    * @return tnc - если родитель не найден, вернет null
    */
+  @CheckForNull
   public static BSLParserRuleContext getRootParent(BSLParserRuleContext tnc, Collection<Integer> indexes) {
-    final var parent = tnc.getParent();
-    if (parent == null) {
-      return null;
-    }
-
-    if (indexes.contains(getRuleIndex(parent))) {
-      return (BSLParserRuleContext) parent;
-    } else {
-      return getRootParent((BSLParserRuleContext) parent, indexes);
+    var parent = tnc.getParent();
+    while (parent != null && !indexes.contains(getRuleIndex(parent))) {
+      parent = parent.getParent();
     }
+    return (BSLParserRuleContext) parent;
   }
 
   /**
@@ -280,16 +346,13 @@ public final class Trees {
    */
   public static Collection<ParserRuleContext> findAllRuleNodes(ParseTree t, Integer... index) {
     List<ParserRuleContext> nodes = new ArrayList<>();
-    List<Integer> indexes = Arrays.asList(index);
+    BitSet mask = ruleIndexMask(index);
 
-    if (t instanceof ParserRuleContext
-      && indexes.contains(((ParserRuleContext) t).getRuleIndex())) {
-      nodes.add((ParserRuleContext) t);
-    }
-
-    IntStream.range(0, t.getChildCount())
-      .mapToObj(i -> findAllRuleNodes(t.getChild(i), index))
-      .forEachOrdered(nodes::addAll);
+    forEachDescendant(t, (ParseTree node) -> {
+      if (isRuleOf(node, mask)) {
+        nodes.add((ParserRuleContext) node);
+      }
+    });
 
     return nodes;
   }
@@ -298,31 +361,16 @@ public final class Trees {
    * Проверяет наличие дочерней ноды с указанным типом
    */
   public static boolean nodeContains(ParseTree t, Integer... index) {
-    Set<Integer> indexes = new HashSet<>(Arrays.asList(index));
-
-    if (t instanceof ParserRuleContext
-      && indexes.contains(((ParserRuleContext) t).getRuleIndex())) {
-      return true;
-    }
-
-    return IntStream.range(0, t.getChildCount())
-      .anyMatch(i -> nodeContains(t.getChild(i), index));
+    BitSet mask = ruleIndexMask(index);
+    return findFirstDescendant(t, node -> isRuleOf(node, mask)).isPresent();
   }
 
   /**
    * Проверяет наличие дочерней ноды с указанным типом исключая переданную
    */
   public static boolean nodeContains(ParseTree t, ParseTree exclude, Integer... index) {
-    Set<Integer> indexes = new HashSet<>(Arrays.asList(index));
-
-    if (t instanceof ParserRuleContext
-      && !t.equals(exclude)
-      && indexes.contains(((ParserRuleContext) t).getRuleIndex())) {
-      return true;
-    }
-
-    return IntStream.range(0, t.getChildCount())
-      .anyMatch(i -> nodeContains(t.getChild(i), exclude, index));
+    BitSet mask = ruleIndexMask(index);
+    return findFirstDescendant(t, node -> !node.equals(exclude) && isRuleOf(node, mask)).isPresent();
   }
 
   /**
@@ -366,23 +414,23 @@ public final class Trees {
 
   private static void fillCommentsCollection(List<Token> tokens, Token currentToken, List<Token> lines) {
 
-    int index = currentToken.getTokenIndex();
+    Deque<Token> comments = new ArrayDeque<>();
+    Token token = currentToken;
 
-    if (index == 0) {
-      return;
-    }
+    while (token.getTokenIndex() > 0) {
+      Token previousToken = tokens.get(token.getTokenIndex() - 1);
 
-    Token previousToken = tokens.get(index - 1);
+      if (abortSearchComments(previousToken, token)) {
+        break;
+      }
 
-    if (abortSearchComments(previousToken, currentToken)) {
-      return;
+      if (previousToken.getType() == BSLParser.LINE_COMMENT) {
+        comments.push(previousToken);
+      }
+      token = previousToken;
     }
 
-    fillCommentsCollection(tokens, previousToken, lines);
-    int type = previousToken.getType();
-    if (type == BSLParser.LINE_COMMENT) {
-      lines.add(previousToken);
-    }
+    lines.addAll(comments);
   }
 
   private static boolean abortSearchComments(Token previousToken, Token currentToken) {
@@ -402,14 +450,12 @@ public final class Trees {
       return false;
     }
 
-    BSLParserRuleContext ruleContext = (BSLParserRuleContext) tnc;
-
-    if (ruleContext.exception != null) {
-      return true;
+    if (!recursive) {
+      return ((BSLParserRuleContext) tnc).exception != null;
     }
 
-    return recursive
-      && ruleContext.children != null
-      && ruleContext.children.stream().anyMatch(Trees::treeContainsErrors);
+    return findFirstDescendant(tnc, (ParseTree node) ->
+      node instanceof BSLParserRuleContext && ((BSLParserRuleContext) node).exception != null
+    ).isPresent();
   }
 }
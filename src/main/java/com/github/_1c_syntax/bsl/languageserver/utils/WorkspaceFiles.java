@@ -0,0 +1,296 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.files.FilesOptions;
+import com.github._1c_syntax.utils.Absolute;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Результат однократного обхода каталога рабочей области.
+ * <p>
+ * Каталоги обходятся параллельно средствами NIO. Результат содержит исходные файлы (bsl, os) с размерами
+ * и найденные файлы описания конфигурации. Один и тот же результат используется для поиска корня конфигурации,
+ * заполнения контекста и анализа, поэтому дерево каталогов не обходится повторно.
+ * <p>
+ * Шаблоны отбора сопоставляются с путем относительно корня обхода. Шаблон, начинающийся с <code>&#42;&#42;/</code>,
+ * совпадает и с путями в самом корне: <code>&#42;&#42;/.git</code> исключает как {@code .git}, так и {@code src/.git}.
+ */
+@Slf4j
+@Value
+public class WorkspaceFiles {
+
+  private static final Pattern CONFIGURATION_FILE_PATTERN = Pattern.compile("Configuration\\.(xml|mdo)$");
+  private static final List<String> SOURCE_FILE_EXTENSIONS = List.of(".bsl", ".os");
+  private static final String ANY_DIRECTORY_PREFIX = "**/";
+
+  /**
+   * Корневой каталог обхода
+   */
+  Path root;
+  /**
+   * Исходные файлы, упорядоченные по пути
+   */
+  List<WorkspaceFile> sourceFiles;
+  /**
+   * Файлы описания конфигурации, упорядоченные по глубине вложенности и пути
+   */
+  List<Path> configurationFiles;
+
+  /**
+   * Файл рабочей области
+   */
+  @Value
+  public static class WorkspaceFile {
+    Path path;
+    long size;
+
+    public File toFile() {
+      return path.toFile();
+    }
+  }
+
+  /**
+   * Обойти каталог без отбора файлов.
+   *
+   * @param root корневой каталог
+   * @return результат обхода
+   */
+  public static WorkspaceFiles scan(Path root) {
+    return scan(root, new FilesOptions());
+  }
+
+  /**
+   * Обойти каталог с учетом шаблонов включения и исключения файлов.
+   *
+   * @param root    корневой каталог
+   * @param options настройки отбора файлов
+   * @return результат обхода
+   */
+  public static WorkspaceFiles scan(Path root, FilesOptions options) {
+    Path absoluteRoot = Absolute.path(root);
+    var scan = new Scan(absoluteRoot, matchers(options.getInclude()), matchers(options.getExclude()));
+    ForkJoinPool.commonPool().invoke(scan.new DirectoryTask(absoluteRoot));
+
+    List<WorkspaceFile> sourceFiles = new ArrayList<>(scan.sourceFiles);
+    sourceFiles.sort(Comparator.comparing(WorkspaceFile::getPath));
+
+    List<Path> configurationFiles = new ArrayList<>(scan.configurationFiles);
+    configurationFiles.sort(Comparator.comparingInt(Path::getNameCount).thenComparing(Comparator.<Path>naturalOrder()));
+
+    return new WorkspaceFiles(
+      absoluteRoot,
+      Collections.unmodifiableList(sourceFiles),
+      Collections.unmodifiableList(configurationFiles)
+    );
+  }
+
+  /**
+   * @return исходные файлы рабочей области
+   */
+  public List<File> getFiles() {
+    return sourceFiles.stream()
+      .map(WorkspaceFile::toFile)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @param directory каталог внутри корня обхода
+   * @return исходные файлы, расположенные в указанном каталоге
+   */
+  public List<File> getFiles(Path directory) {
+    Path absoluteDirectory = Absolute.path(directory);
+    return sourceFiles.stream()
+      .filter(workspaceFile -> workspaceFile.getPath().startsWith(absoluteDirectory))
+      .map(WorkspaceFile::toFile)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Исходные файлы каталога в порядке разбора: сначала самые большие.
+   * <p>
+   * При параллельном разборе крупные файлы начинают обрабатываться первыми, а не оказываются в конце очереди,
+   * где один поток дорабатывал бы их, пока остальные простаивают.
+   *
+   * @param directory каталог внутри корня обхода
+   * @return исходные файлы, расположенные в указанном каталоге, по убыванию размера
+   */
+  public List<File> getFilesLargestFirst(Path directory) {
+    Path absoluteDirectory = Absolute.path(directory);
+    return sourceFiles.stream()
+      .filter(workspaceFile -> workspaceFile.getPath().startsWith(absoluteDirectory))
+      .sorted(Comparator.comparingLong(WorkspaceFile::getSize).reversed())
+      .map(WorkspaceFile::toFile)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @param directory каталог внутри корня обхода
+   * @return файлы описания конфигурации, расположенные в указанном каталоге
+   */
+  public List<Path> getConfigurationFiles(Path directory) {
+    Path absoluteDirectory = Absolute.path(directory);
+    return configurationFiles.stream()
+      .filter(path -> path.startsWith(absoluteDirectory))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @param directory каталог
+   * @return {@code true}, если каталог находится внутри корня обхода
+   */
+  public boolean covers(Path directory) {
+    return Absolute.path(directory).startsWith(root);
+  }
+
+  private static List<PathMatcher> matchers(Collection<String> patterns) {
+    var fileSystem = FileSystems.getDefault();
+    return patterns.stream()
+      .flatMap(WorkspaceFiles::withRootPattern)
+      .map(pattern -> fileSystem.getPathMatcher("glob:" + pattern))
+      .collect(Collectors.toList());
+  }
+
+  private static Stream<String> withRootPattern(String pattern) {
+    // в glob "**/" требует хотя бы одного каталога перед остатком шаблона, поэтому для совпадения в корне
+    // добавляется шаблон без этого префикса
+    if (pattern.startsWith(ANY_DIRECTORY_PREFIX) && pattern.length() > ANY_DIRECTORY_PREFIX.length()) {
+      return Stream.of(pattern, pattern.substring(ANY_DIRECTORY_PREFIX.length()));
+    }
+    return Stream.of(pattern);
+  }
+
+  private static boolean isSourceFile(Path path) {
+    var fileName = path.getFileName().toString();
+    return SOURCE_FILE_EXTENSIONS.stream().anyMatch(fileName::endsWith);
+  }
+
+  private static final class Scan {
+    private final Path root;
+    private final List<PathMatcher> include;
+    private final List<PathMatcher> exclude;
+    private final Queue<WorkspaceFile> sourceFiles = new ConcurrentLinkedQueue<>();
+    private final Queue<Path> configurationFiles = new ConcurrentLinkedQueue<>();
+
+    private Scan(Path root, List<PathMatcher> include, List<PathMatcher> exclude) {
+      this.root = root;
+      this.include = include;
+      this.exclude = exclude;
+    }
+
+    private boolean isExcluded(Path path) {
+      var relativePath = root.relativize(path);
+      return exclude.stream().anyMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    private boolean isIncluded(Path path) {
+      if (include.isEmpty()) {
+        return true;
+      }
+      var relativePath = root.relativize(path);
+      return include.stream().anyMatch(matcher -> matcher.matches(relativePath));
+    }
+
+    private void visitFile(Path path, BasicFileAttributes attributes) {
+      if (isExcluded(path)) {
+        return;
+      }
+      if (CONFIGURATION_FILE_PATTERN.matcher(path.getFileName().toString()).find()) {
+        configurationFiles.add(path);
+      }
+      if (isSourceFile(path) && isIncluded(path)) {
+        sourceFiles.add(new WorkspaceFile(path, attributes.size()));
+      }
+    }
+
+    /**
+     * Обход одного каталога. Вложенные каталоги обходятся отдельными задачами.
+     */
+    private final class DirectoryTask extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      private final transient Path directory;
+
+      private DirectoryTask(Path directory) {
+        this.directory = directory;
+      }
+
+      @Override
+      protected void compute() {
+        List<DirectoryTask> subtasks = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+          entries.forEach(entry -> visitEntry(entry, subtasks));
+        } catch (IOException | DirectoryIteratorException e) {
+          LOGGER.error("Can't read directory {}", directory, e);
+        }
+
+        invokeAll(subtasks);
+      }
+
+      private void visitEntry(Path entry, List<DirectoryTask> subtasks) {
+        try {
+          // символические ссылки на каталоги не обходятся, чтобы исключить зацикливание
+          var attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (attributes.isSymbolicLink()) {
+            attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+            if (attributes.isRegularFile()) {
+              visitFile(entry, attributes);
+            }
+          } else if (attributes.isDirectory()) {
+            if (!isExcluded(entry)) {
+              subtasks.add(new DirectoryTask(entry));
+            }
+          } else if (attributes.isRegularFile()) {
+            visitFile(entry, attributes);
+          }
+        } catch (IOException e) {
+          LOGGER.warn("Can't read attributes of {}", entry, e);
+        }
+      }
+    }
+  }
+}
@@ -31,12 +31,15 @@ import org.eclipse.lsp4j.DidChangeTextDocumentParams;
 import org.eclipse.lsp4j.DidCloseTextDocumentParams;
 import org.eclipse.lsp4j.DidOpenTextDocumentParams;
 import org.eclipse.lsp4j.DidSaveTextDocumentParams;
+import org.eclipse.lsp4j.DocumentOnTypeFormattingParams;
+import org.eclipse.lsp4j.FormattingOptions;
 import org.eclipse.lsp4j.Hover;
 import org.eclipse.lsp4j.HoverParams;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.TextDocumentItem;
+import org.eclipse.lsp4j.TextEdit;
 import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.junit.jupiter.api.Test;
@@ -181,9 +184,19 @@ class BSLTextDocumentServiceTest {
   }
 
   @Test
-  void onTypeFormatting() {
-    Throwable thrown = catchThrowable(() -> textDocumentService.onTypeFormatting(null));
-    assertThat(thrown).isInstanceOf(UnsupportedOperationException.class);
+  void onTypeFormatting() throws ExecutionException, InterruptedException {
+    // given
+    DocumentOnTypeFormattingParams params = new DocumentOnTypeFormattingParams();
+    params.setTextDocument(new TextDocumentIdentifier("file:///fake/notOpened.bsl"));
+    params.setOptions(new FormattingOptions(4, true));
+    params.setPosition(new Position(0, 0));
+    params.setCh("\n");
+
+    // when
+    List<? extends TextEdit> edits = textDocumentService.onTypeFormatting(params).get();
+
+    // then
+    assertThat(edits).isNull();
   }
 
   @Test
@@ -0,0 +1,91 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FormatCommandTest {
+
+  private static final long OLD_MODIFIED_TIME = 1_000_000_000_000L;
+
+  @TempDir
+  Path srcDir;
+
+  @Test
+  void testCheckAndFormat() throws IOException {
+    // given
+    File file = srcDir.resolve("module.bsl").toFile();
+    FileUtils.copyFile(new File("./src/test/resources/providers/format.bsl"), file);
+    String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+
+    // when
+    int checkExitCode = execute("--check");
+
+    // then
+    assertThat(checkExitCode).isEqualTo(1);
+    assertThat(FileUtils.readFileToString(file, StandardCharsets.UTF_8)).isEqualTo(content);
+
+    // when
+    int formatExitCode = execute("--threads", "2");
+
+    // then
+    assertThat(formatExitCode).isZero();
+    assertThat(FileUtils.readFileToString(file, StandardCharsets.UTF_8)).isNotEqualTo(content);
+    assertThat(execute("--check")).isZero();
+  }
+
+  @Test
+  void testFormattedFileIsNotRewritten() throws IOException {
+    // given
+    File file = srcDir.resolve("module.bsl").toFile();
+    FileUtils.copyFile(new File("./src/test/resources/providers/format.bsl"), file);
+    execute();
+    assertThat(file.setLastModified(OLD_MODIFIED_TIME)).isTrue();
+
+    // when
+    int exitCode = execute();
+
+    // then
+    assertThat(exitCode).isZero();
+    assertThat(file.lastModified()).isEqualTo(OLD_MODIFIED_TIME);
+  }
+
+  private int execute(String... options) {
+    String[] args = new String[options.length + 3];
+    args[0] = "--srcDir";
+    args[1] = srcDir.toString();
+    args[2] = "--silent";
+    System.arraycopy(options, 0, args, 3, options.length);
+
+    return new CommandLine(new FormatCommand()).execute(args);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ComputationCoalescerTest {
+
+  @Test
+  void testSameComputationIsShared() throws InterruptedException, ExecutionException {
+    // given
+    var coalescer = new ComputationCoalescer();
+    var documentContext = getDocumentContext();
+    var computations = new AtomicInteger();
+    var latch = new CountDownLatch(1);
+
+    // when
+    CompletableFuture<Integer> first = coalescer.submit(documentContext, "test", () -> {
+      await(latch);
+      return computations.incrementAndGet();
+    });
+    CompletableFuture<Integer> second = coalescer.submit(documentContext, "test", computations::incrementAndGet);
+    latch.countDown();
+
+    // then
+    assertThat(first.get()).isEqualTo(1);
+    assertThat(second.get()).isEqualTo(1);
+    assertThat(computations).hasValue(1);
+  }
+
+  @Test
+  void testNewVersionIsNotShared() throws InterruptedException, ExecutionException {
+    // given
+    var coalescer = new ComputationCoalescer();
+    var documentContext = getDocumentContext();
+    var latch = new CountDownLatch(1);
+
+    // when
+    CompletableFuture<String> first = coalescer.submit(documentContext, "test", () -> {
+      await(latch);
+      return "old";
+    });
+    var newDocumentContext = documentContext.withContent("Процедура Тест2()\nКонецПроцедуры");
+    CompletableFuture<String> second = coalescer.submit(newDocumentContext, "test", () -> "new");
+    latch.countDown();
+
+    // then
+    assertThat(first.get()).isEqualTo("old");
+    assertThat(second.get()).isEqualTo("new");
+  }
+
+  @Test
+  void testReopenedDocumentIsNotShared() throws InterruptedException, ExecutionException {
+    // given
+    var coalescer = new ComputationCoalescer();
+    var documentContext = getDocumentContext();
+    var latch = new CountDownLatch(1);
+
+    // when
+    CompletableFuture<String> first = coalescer.submit(documentContext, "test", () -> {
+      await(latch);
+      return "closed";
+    });
+    var reopenedDocumentContext = new DocumentContext(
+      documentContext.getUri(),
+      documentContext.getContent(),
+      documentContext.getServerContext()
+    );
+    CompletableFuture<String> second = coalescer.submit(reopenedDocumentContext, "test", () -> "reopened");
+    latch.countDown();
+
+    // then
+    assertThat(reopenedDocumentContext.getVersion()).isEqualTo(documentContext.getVersion());
+    assertThat(first.get()).isEqualTo("closed");
+    assertThat(second.get()).isEqualTo("reopened");
+  }
+
+  @Test
+  void testDependenciesCompleteFirst() throws InterruptedException, ExecutionException {
+    // given
+    var coalescer = new ComputationCoalescer();
+    var documentContext = getDocumentContext();
+    var dependencyDone = new AtomicInteger();
+
+    // when
+    CompletableFuture<Integer> dependency = coalescer.submit(documentContext, "dependency", () -> {
+      sleep();
+      return dependencyDone.incrementAndGet();
+    });
+    CompletableFuture<Integer> dependent = coalescer.submit(
+      documentContext,
+      "dependent",
+      List.of(dependency),
+      dependencyDone::get
+    );
+
+    // then
+    assertThat(dependent.get()).isEqualTo(1);
+    assertThat(coalescer.getInFlightCount()).isZero();
+  }
+
+  @Test
+  void testCancelDoesNotAffectOtherCallers() throws InterruptedException, ExecutionException {
+    // given
+    var coalescer = new ComputationCoalescer();
+    var documentContext = getDocumentContext();
+    var latch = new CountDownLatch(1);
+
+    // when
+    CompletableFuture<String> first = coalescer.submit(documentContext, "test", () -> {
+      await(latch);
+      return "value";
+    });
+    CompletableFuture<String> second = coalescer.submit(documentContext, "test", () -> "other");
+    first.cancel(true);
+    latch.countDown();
+
+    // then
+    assertThat(second.get()).isEqualTo("value");
+  }
+
+  private static DocumentContext getDocumentContext() {
+    return new DocumentContext(
+      new File("./src/test/resources/context/coalescer.bsl").toURI(),
+      "Процедура Тест()\nКонецПроцедуры",
+      new ServerContext()
+    );
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
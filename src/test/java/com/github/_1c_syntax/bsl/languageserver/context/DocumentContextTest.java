@@ -49,21 +49,38 @@ class DocumentContextTest {
 
     File file = new File("./src/test/resources/context/DocumentContextRebuildSecondTest.bsl");
     String fileContent = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
-    documentContext.rebuild(fileContent);
-    assertThat(documentContext.getTokens()).hasSize(16);
+    DocumentContext rebuiltDocumentContext = documentContext.getServerContext()
+      .addDocument(documentContext.getUri(), fileContent);
+
+    assertThat(rebuiltDocumentContext.getTokens()).hasSize(16);
+    assertThat(rebuiltDocumentContext.getVersion()).isGreaterThan(documentContext.getVersion());
+    assertThat(documentContext.getServerContext().getDocument(documentContext.getUri()))
+      .isSameAs(rebuiltDocumentContext);
+
+    // предыдущий снимок не изменяется
+    assertThat(documentContext.getTokens()).hasSize(39);
   }
 
   @Test
-  void testClearASTData() throws IllegalAccessException {
+  void testWithoutContent() throws IllegalAccessException {
     // given
     DocumentContext documentContext = getDocumentContext();
+    var symbolTree = documentContext.getSymbolTree();
 
     // when
-    documentContext.clearSecondaryData();
+    DocumentContext strippedDocumentContext = documentContext.withoutContent();
 
     // then
-    final Object tokenizer = FieldUtils.readField(documentContext, "tokenizer", true);
+    final Object tokenizer = FieldUtils.readField(strippedDocumentContext, "tokenizer", true);
     assertThat(tokenizer).isNull();
+    assertThat(strippedDocumentContext.hasContent()).isFalse();
+    assertThat(strippedDocumentContext.getSymbolTree()).isSameAs(symbolTree);
+    assertThat(strippedDocumentContext.getVersion()).isGreaterThan(documentContext.getVersion());
+
+    // исходный снимок не изменяется
+    assertThat(documentContext.hasContent()).isTrue();
+    assertThat(FieldUtils.readField(documentContext, "tokenizer", true)).isNotNull();
+    assertThat(documentContext.getTokens()).isNotEmpty();
   }
 
   @Test
@@ -0,0 +1,116 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdentifierTableTest {
+
+  @Test
+  void testIdsAreCaseInsensitive() {
+
+    // given
+    var identifierTable = new IdentifierTable();
+
+    // when
+    int id = identifierTable.getId("ОбщегоНазначения");
+    int otherId = identifierTable.getId("Сообщить");
+
+    // then
+    assertThat(id).isNotEqualTo(IdentifierTable.UNKNOWN_ID);
+    assertThat(otherId).isNotEqualTo(id);
+    assertThat(identifierTable.getId("ОБЩЕГОНАЗНАЧЕНИЯ")).isEqualTo(id);
+    assertThat(identifierTable.findId("общегоназначения")).isEqualTo(id);
+    assertThat(identifierTable.matches(id, "ОбщегоНазначения")).isTrue();
+    assertThat(identifierTable.matches(id, "Сообщить")).isFalse();
+    assertThat(identifierTable.size()).isEqualTo(2);
+  }
+
+  @Test
+  void testFindIdDoesNotRegister() {
+
+    // given
+    var identifierTable = new IdentifierTable();
+
+    // when
+    int id = identifierTable.findId("Неизвестный");
+
+    // then
+    assertThat(id).isEqualTo(IdentifierTable.UNKNOWN_ID);
+    assertThat(identifierTable.matches(IdentifierTable.UNKNOWN_ID, "Неизвестный")).isFalse();
+    assertThat(identifierTable.size()).isZero();
+  }
+
+  @Test
+  void testClear() {
+
+    // given
+    var identifierTable = new IdentifierTable();
+    int id = identifierTable.getId("Сообщить");
+
+    // when
+    identifierTable.clear();
+
+    // then
+    assertThat(identifierTable.size()).isZero();
+    assertThat(identifierTable.findId("Сообщить")).isEqualTo(IdentifierTable.UNKNOWN_ID);
+    assertThat(identifierTable.getId("Сообщить")).isNotEqualTo(id);
+  }
+
+  @Test
+  void testCompactRemovesUnusedIdentifiers() {
+
+    // given
+    var identifierTable = new IdentifierTable(Integer.MAX_VALUE);
+    URI uri = URI.create("file:///fake-uri.bsl");
+    int retainedId = identifierTable.getId("Сообщить");
+    int unusedId = identifierTable.getId("Сооб");
+    identifierTable.retain(uri, new int[]{retainedId});
+
+    // when
+    identifierTable.compact();
+
+    // then
+    // к идентификатору обращались после предыдущего уплотнения
+    assertThat(identifierTable.findId("Сооб")).isEqualTo(unusedId);
+
+    // when
+    identifierTable.compact();
+
+    // then
+    assertThat(identifierTable.findId("Сооб")).isEqualTo(IdentifierTable.UNKNOWN_ID);
+    assertThat(identifierTable.findId("Сообщить")).isEqualTo(retainedId);
+    assertThat(identifierTable.size()).isEqualTo(1);
+
+    // when
+    identifierTable.release(uri);
+    identifierTable.compact();
+
+    // then
+    assertThat(identifierTable.size()).isZero();
+    assertThat(identifierTable.getId("Сообщить")).isNotEqualTo(retainedId);
+  }
+}
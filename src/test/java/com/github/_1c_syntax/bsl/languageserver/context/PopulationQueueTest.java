@@ -0,0 +1,68 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import com.github._1c_syntax.utils.Absolute;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopulationQueueTest {
+
+  @Test
+  void testPrioritizedFilesPolledFirst() {
+    // given
+    var first = new File("first.bsl");
+    var second = new File("second.bsl");
+    var third = new File("third.bsl");
+    var queue = new PopulationQueue(List.of(first, second, third));
+
+    // when
+    queue.prioritize(Absolute.uri(third.toURI()));
+
+    // then
+    assertThat(queue.poll()).isEqualTo(third);
+    assertThat(queue.poll()).isEqualTo(first);
+    assertThat(queue.poll()).isEqualTo(second);
+    assertThat(queue.poll()).isNull();
+  }
+
+  @Test
+  void testPolledFileNotPrioritizedAgain() {
+    // given
+    var file = new File("module.bsl");
+    var queue = new PopulationQueue(List.of(file));
+    var uri = Absolute.uri(file.toURI());
+
+    // when
+    queue.poll();
+    queue.prioritize(uri);
+
+    // then
+    assertThat(queue.poll()).isNull();
+    assertThat(queue.markRoot(uri)).isTrue();
+    assertThat(queue.markRoot(uri)).isFalse();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderResultCacheTest {
+
+  private static final ProviderResultCache.Key<List<String>> KEY = ProviderResultCache.Key.create("test");
+
+  @Test
+  void testHitOnSameVersion() {
+    // given
+    var cache = new ProviderResultCache(() -> 1);
+    var computations = new AtomicInteger();
+
+    // when
+    List<String> first = cache.getOrCompute(KEY, () -> List.of("value" + computations.incrementAndGet()));
+    List<String> second = cache.getOrCompute(KEY, () -> List.of("value" + computations.incrementAndGet()));
+
+    // then
+    assertThat(second).isSameAs(first).containsExactly("value1");
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testMissOnVersionOrStampChange() {
+    // given
+    var version = new AtomicInteger();
+    var cache = new ProviderResultCache(version::get);
+    var computations = new AtomicInteger();
+
+    // when
+    cache.getOrCompute(KEY, "a", () -> List.of("value" + computations.incrementAndGet()));
+    version.incrementAndGet();
+    List<String> afterVersionChange = cache.getOrCompute(KEY, "a", () -> List.of("value" + computations.incrementAndGet()));
+    List<String> afterStampChange = cache.getOrCompute(KEY, "b", () -> List.of("value" + computations.incrementAndGet()));
+
+    // then
+    assertThat(afterVersionChange).containsExactly("value2");
+    assertThat(afterStampChange).containsExactly("value3");
+    assertThat(cache.getHitCount()).isZero();
+    assertThat(cache.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  void testSnapshotWithoutContentHasOwnCache() {
+    // given
+    var documentContext = new DocumentContext(
+      new File("./src/test/resources/providers/foldingRange.bsl").toURI(),
+      "Процедура Тест()\nКонецПроцедуры",
+      new ServerContext()
+    );
+    var cache = documentContext.getProviderResultCache();
+    cache.getOrCompute(KEY, () -> List.of("old"));
+
+    // when
+    var strippedDocumentContext = documentContext.withoutContent();
+    List<String> value = strippedDocumentContext.getProviderResultCache().getOrCompute(KEY, () -> List.of("new"));
+
+    // then
+    assertThat(value).containsExactly("new");
+    assertThat(cache.getOrCompute(KEY, () -> List.of("other"))).containsExactly("old");
+    assertThat(cache.getMissCount()).isEqualTo(1);
+  }
+}
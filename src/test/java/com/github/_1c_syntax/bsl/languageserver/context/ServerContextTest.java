@@ -126,6 +126,58 @@ public class ServerContextTest {
     assertThat(serverContext.getDocuments()).hasSizeGreaterThan(0);
   }
 
+  @Test
+  void testDuplicateCodeIndexIsFilledDuringPopulation() {
+    // given
+    Path path = Absolute.path(PATH_TO_METADATA);
+    ServerContext serverContext = new ServerContext(path);
+    serverContext.enableDuplicateCodeIndex();
+
+    // when
+    serverContext.populateContext();
+
+    // then
+    var index = serverContext.getDuplicateCodeIndex();
+    assertThat(serverContext.getDocuments()).isNotEmpty();
+    assertThat(serverContext.getDocuments().keySet()).allMatch(index::contains);
+  }
+
+  @Test
+  void testDuplicateCodeIndexIsFilledInBackgroundWhenEnabledLater() {
+    // given
+    Path path = Absolute.path(PATH_TO_METADATA);
+    ServerContext serverContext = new ServerContext(path);
+    serverContext.populateContext();
+
+    // when
+    var index = serverContext.getDuplicateCodeIndex();
+    var filledIndex = serverContext.enableDuplicateCodeIndex().join();
+
+    // then
+    assertThat(filledIndex).isSameAs(index);
+    assertThat(serverContext.getDocuments()).isNotEmpty();
+    assertThat(serverContext.getDocuments().keySet()).allMatch(index::contains);
+    assertThat(serverContext.getDuplicateCodeIndex()).isSameAs(index);
+  }
+
+  @Test
+  void testPopulateContextKeepsOpenedDocument() throws IOException {
+    // given
+    Path path = Absolute.path(PATH_TO_METADATA);
+    ServerContext serverContext = new ServerContext(path);
+    DocumentContext documentContext = addDocumentContext(serverContext, PATH_TO_MODULE_FILE);
+
+    // when
+    serverContext.populateContext();
+
+    // then
+    assertThat(serverContext.getDocument(documentContext.getUri())).isSameAs(documentContext);
+    assertThat(serverContext.getDocument("CommonModule.ПервыйОбщийМодуль", ModuleType.CommonModule))
+      .isPresent()
+      .get()
+      .isSameAs(documentContext);
+  }
+
   private DocumentContext addDocumentContext(ServerContext serverContext, String path) throws IOException {
     var file = new File(PATH_TO_METADATA, path);
     var uri = Absolute.uri(file);
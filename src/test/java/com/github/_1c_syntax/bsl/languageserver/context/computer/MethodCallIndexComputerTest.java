@@ -0,0 +1,86 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import com.github._1c_syntax.utils.CaseInsensitivePattern;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContextFromFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MethodCallIndexComputerTest {
+
+  @Test
+  void testMethodCallIndex() {
+
+    // given
+    String filePath = "./src/test/resources/context/computer/MethodCallIndexComputerTest.bsl";
+    final DocumentContext documentContext = getDocumentContextFromFile(filePath);
+
+    // when
+    Computer<MethodCallIndex> methodCallIndexComputer = new MethodCallIndexComputer(documentContext);
+    MethodCallIndex methodCallIndex = methodCallIndexComputer.compute();
+
+    // then
+    assertThat(methodCallIndex.getGlobalMethodNames())
+      .containsExactlyInAnyOrder("СООБЩИТЬ", "НАЙТИ", "ТЕКУЩАЯДАТА");
+    assertThat(methodCallIndex.getMethodNames())
+      .containsExactlyInAnyOrder("ЗАПИСАТЬ", "ДОБАВИТЬ");
+
+    assertThat(methodCallIndex.getGlobalMethodCalls("сообщить"))
+      .extracting(methodCall -> methodCall.getStart().getLine())
+      .containsExactly(3, 4);
+    assertThat(methodCallIndex.getMethodCalls("Записать"))
+      .extracting(methodCall -> methodCall.getStart().getLine())
+      .containsExactly(5, 6);
+    assertThat(methodCallIndex.getGlobalMethodCalls("Предупреждение")).isEmpty();
+  }
+
+  @Test
+  void testMethodCallsAreOrderedByPosition() {
+
+    // given
+    String filePath = "./src/test/resources/context/computer/MethodCallIndexComputerTest.bsl";
+    final DocumentContext documentContext = getDocumentContextFromFile(filePath);
+
+    // when
+    MethodCallIndex methodCallIndex = documentContext.getMethodCallIndex();
+    List<String> byNames = methodCallIndex.getGlobalMethodCalls(List.of("ТекущаяДата", "Найти", "Сообщить"))
+      .stream()
+      .map(methodCall -> methodCall.methodName().getText())
+      .collect(Collectors.toList());
+    List<BSLParser.GlobalMethodCallContext> byPattern = methodCallIndex.getGlobalMethodCalls(
+      CaseInsensitivePattern.compile("(найти|текущаядата)")
+    );
+
+    // then
+    assertThat(byNames).containsExactly("Сообщить", "СООБЩИТЬ", "Найти", "ТекущаяДата");
+    assertThat(byPattern)
+      .extracting(methodCall -> methodCall.methodName().getText())
+      .containsExactly("Найти", "ТекущаяДата");
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.utils.Trees;
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContextFromFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParseTreeIndexComputerTest {
+
+  private static final String FILE_PATH = "./src/test/resources/context/computer/CyclomaticComplexityComputerTest.bsl";
+
+  @Test
+  void testWholeFileQueries() {
+
+    // given
+    final DocumentContext documentContext = getDocumentContextFromFile(FILE_PATH);
+    var ast = documentContext.getAst();
+
+    // when
+    Computer<ParseTreeIndex> parseTreeIndexComputer = new ParseTreeIndexComputer(documentContext);
+    ParseTreeIndex parseTreeIndex = parseTreeIndexComputer.compute();
+
+    // then
+    assertThat(parseTreeIndex.getDescendants()).containsExactlyElementsOf(Trees.getDescendants(ast));
+    assertThat(parseTreeIndex.findAllRuleNodes(BSLParser.RULE_statement))
+      .isNotEmpty()
+      .containsExactlyElementsOf(Trees.findAllRuleNodes(ast, BSLParser.RULE_statement));
+    assertThat(parseTreeIndex.findAllTokenNodes(BSLLexer.IDENTIFIER))
+      .isNotEmpty()
+      .containsExactlyElementsOf(Trees.findAllTokenNodes(ast, BSLLexer.IDENTIFIER));
+    assertThat(parseTreeIndex.findAllRuleNodes(ast, BSLParser.RULE_sub, BSLParser.RULE_statement))
+      .containsExactlyElementsOf(Trees.findAllRuleNodes(ast, BSLParser.RULE_sub, BSLParser.RULE_statement));
+    assertThat(parseTreeIndex.findAllRuleNodes(BSLParser.RULE_use)).isEmpty();
+  }
+
+  @Test
+  void testSubtreeQueries() {
+
+    // given
+    final DocumentContext documentContext = getDocumentContextFromFile(FILE_PATH);
+    var ast = documentContext.getAst();
+    List<ParseTree> subs = new ArrayList<>(Trees.findAllRuleNodes(ast, BSLParser.RULE_sub));
+
+    // when
+    ParseTreeIndex parseTreeIndex = documentContext.getParseTreeIndex();
+
+    // then
+    assertThat(subs).isNotEmpty();
+    for (ParseTree sub : subs) {
+      assertThat(parseTreeIndex.getDescendants(sub)).containsExactlyElementsOf(Trees.getDescendants(sub));
+      assertThat(parseTreeIndex.findAllRuleNodes(sub, BSLParser.RULE_statement))
+        .containsExactlyElementsOf(Trees.findAllRuleNodes(sub, BSLParser.RULE_statement));
+      assertThat(parseTreeIndex.findAllTokenNodes(sub, BSLLexer.IDENTIFIER))
+        .containsExactlyElementsOf(Trees.findAllTokenNodes(sub, BSLLexer.IDENTIFIER));
+      assertThat(parseTreeIndex.nodeContains(sub, BSLParser.RULE_statement))
+        .isEqualTo(Trees.nodeContains(sub, BSLParser.RULE_statement));
+      assertThat(parseTreeIndex.nodeContains(sub, BSLParser.RULE_use)).isFalse();
+    }
+  }
+
+  @Test
+  void testPreviousAndNextNode() {
+
+    // given
+    final DocumentContext documentContext = getDocumentContextFromFile(FILE_PATH);
+    var ast = documentContext.getAst();
+    var statements = Trees.findAllRuleNodes(ast, BSLParser.RULE_statement);
+    var expressions = Trees.findAllRuleNodes(ast, BSLParser.RULE_expression);
+
+    // when
+    ParseTreeIndex parseTreeIndex = documentContext.getParseTreeIndex();
+
+    // then
+    for (ParseTree statement : statements) {
+      assertThat(parseTreeIndex.getPreviousNode(ast, statement, BSLParser.RULE_statement))
+        .isSameAs(Trees.getPreviousNode(ast, statement, BSLParser.RULE_statement));
+      assertThat(parseTreeIndex.getNextNode(ast, statement, BSLParser.RULE_statement))
+        .isSameAs(Trees.getNextNode(ast, statement, BSLParser.RULE_statement));
+    }
+    for (ParseTree expression : expressions) {
+      assertThat(parseTreeIndex.getPreviousNode(ast, expression, BSLParser.RULE_statement))
+        .isSameAs(Trees.getPreviousNode(ast, expression, BSLParser.RULE_statement));
+      assertThat(parseTreeIndex.getNextNode(ast, expression, BSLParser.RULE_globalMethodCall))
+        .isSameAs(Trees.getNextNode(ast, expression, BSLParser.RULE_globalMethodCall));
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import com.github._1c_syntax.bsl.languageserver.utils.Trees;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StructuralHashComputerTest {
+
+  @Test
+  void testStructuralHashes() {
+
+    // given
+    var documentContext = TestUtils.getDocumentContext(
+      "А = Б + 1;\n" +
+        "а = б + 1;\n" +
+        "А = Б + 2;\n" +
+        "А = \"Строка\";\n" +
+        "А = \"строка\";\n" +
+        "А = \"Строка\";\n"
+    );
+    List<ParseTree> statements = new ArrayList<>(
+      Trees.findAllRuleNodes(documentContext.getAst(), BSLParser.RULE_statement)
+    );
+
+    // when
+    Computer<StructuralHashes> structuralHashComputer = new StructuralHashComputer(documentContext);
+    StructuralHashes structuralHashes = structuralHashComputer.compute();
+
+    // then
+    assertThat(statements).hasSize(6);
+    assertThat(structuralHashes.mayBeEqual(statements.get(0), statements.get(1))).isTrue();
+    assertThat(structuralHashes.mayBeEqual(statements.get(0), statements.get(2))).isFalse();
+    assertThat(structuralHashes.mayBeEqual(statements.get(3), statements.get(4))).isFalse();
+    assertThat(structuralHashes.mayBeEqual(statements.get(3), statements.get(5))).isTrue();
+  }
+
+  @Test
+  void testHashOfDetachedNode() {
+
+    // given
+    var documentContext = TestUtils.getDocumentContext("А = Б + 1;\n");
+    var otherDocumentContext = TestUtils.getDocumentContext("а = б + 1;\n");
+    var statement = Trees.findAllRuleNodes(documentContext.getAst(), BSLParser.RULE_statement).iterator().next();
+    var otherStatement = Trees.findAllRuleNodes(otherDocumentContext.getAst(), BSLParser.RULE_statement)
+      .iterator().next();
+
+    // when
+    StructuralHashes structuralHashes = documentContext.getStructuralHashes();
+
+    // then
+    assertThat(structuralHashes.getHash(otherStatement)).isEqualTo(structuralHashes.getHash(statement));
+  }
+
+}
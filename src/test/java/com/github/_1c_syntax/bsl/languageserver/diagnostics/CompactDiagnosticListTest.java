@@ -0,0 +1,73 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactDiagnosticListTest {
+
+  @Test
+  void testMaterializedDiagnosticsEqualSource() {
+    // given
+    Diagnostic first = new Diagnostic(Ranges.create(1, 2, 3, 4), "message", DiagnosticSeverity.Warning, "bsl-ls");
+    first.setCode(new DiagnosticCode("FirstDiagnostic"));
+    Diagnostic second = new Diagnostic(Ranges.create(5, 0, 5, 10), "message", DiagnosticSeverity.Error, "bsl-ls");
+    second.setCode(new DiagnosticCode("SecondDiagnostic"));
+    Diagnostic withoutCode = new Diagnostic(Ranges.create(0, 0, 0, 1), "other message");
+
+    // when
+    List<Diagnostic> diagnostics = CompactDiagnosticList.of(List.of(first, second, withoutCode));
+
+    // then
+    assertThat(diagnostics)
+      .hasSize(3)
+      .containsExactly(first, second, withoutCode);
+    assertThat(diagnostics.get(0).getCode()).isInstanceOf(DiagnosticCode.class);
+    assertThat(diagnostics.get(2).getSeverity()).isNull();
+  }
+
+  @Test
+  void testDiagnosticWithRelatedInformationKeptAsIs() {
+    // given
+    Diagnostic diagnostic = new Diagnostic(Ranges.create(1, 0, 1, 5), "message");
+    diagnostic.setCode(new DiagnosticCode("Diagnostic"));
+    diagnostic.setRelatedInformation(List.of(
+      new DiagnosticRelatedInformation(new Location("file:///fake.bsl", Ranges.create(2, 0, 2, 1)), "related")
+    ));
+
+    // when
+    List<Diagnostic> diagnostics = CompactDiagnosticList.of(List.of(diagnostic));
+
+    // then
+    assertThat(diagnostics.get(0)).isSameAs(diagnostic);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import com.github._1c_syntax.utils.Absolute;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateCodeDiagnosticTest extends AbstractDiagnosticTest<DuplicateCodeDiagnostic> {
+  DuplicateCodeDiagnosticTest() {
+    super(DuplicateCodeDiagnostic.class);
+  }
+
+  @Test
+  void test() {
+
+    // when
+    List<Diagnostic> diagnostics = getDiagnostics();
+
+    // then
+    assertThat(diagnostics).hasSize(2);
+
+    Diagnostic first = diagnostics.get(0);
+    assertThat(first.getRange().getStart().getLine()).isLessThan(5);
+    assertThat(first.getRange().getEnd().getLine()).isBetween(24, 28);
+    assertThat(first.getRelatedInformation())
+      .hasSize(2)
+      .extracting(information -> information.getLocation().getRange().getStart().getLine())
+      .containsExactly(first.getRange().getStart().getLine(), first.getRange().getStart().getLine() + 30);
+
+    Diagnostic second = diagnostics.get(1);
+    assertThat(second.getRange().getStart().getLine()).isBetween(30, 34);
+    assertThat(second.getRange().getEnd().getLine()).isBetween(54, 58);
+  }
+
+  @Test
+  void testCopyInOtherDocument() {
+
+    // given
+    var serverContext = new ServerContext();
+    String text = getText();
+    URI copyUri = Absolute.uri("file:///fake-uri-copy.bsl");
+    String copyText = text.substring(text.indexOf("Процедура ЗаполнитьРеквизитыВторой"));
+    TestUtils.getDocumentContext(copyUri, copyText, serverContext);
+    DocumentContext documentContext = TestUtils.getDocumentContext(text, serverContext);
+    serverContext.enableDuplicateCodeIndex().join();
+
+    // when
+    List<Diagnostic> diagnostics = getDiagnostics(documentContext);
+
+    // then
+    assertThat(diagnostics).hasSize(2);
+    assertThat(diagnostics.get(0).getRelatedInformation())
+      .hasSize(3)
+      .extracting(DiagnosticRelatedInformation::getLocation)
+      .anyMatch(location -> location.getUri().equals(copyUri.toString()));
+
+    // when
+    serverContext.removeDocument(copyUri);
+    diagnostics = getDiagnostics(documentContext);
+
+    // then
+    assertThat(diagnostics.get(0).getRelatedInformation()).hasSize(2);
+  }
+}
@@ -78,4 +78,20 @@ class TypoDiagnosticTest extends AbstractDiagnosticTest<TypoDiagnostic> {
       .hasRange(1, 13, 1, 21)
       .hasRange(8, 13, 8, 18);
   }
+
+  @Test
+  void testCachedWordsGiveSameDiagnostics() {
+    // given
+    Map<String, Object> configuration = diagnosticInstance.getInfo().getDefaultConfiguration();
+    diagnosticInstance.configure(configuration);
+    TypoDiagnostic.clearWordStatusCache();
+
+    // when
+    List<Diagnostic> uncachedDiagnostics = getDiagnostics();
+    List<Diagnostic> cachedDiagnostics = getDiagnostics();
+
+    // then
+    assertThat(uncachedDiagnostics).hasSize(3);
+    assertThat(cachedDiagnostics).containsExactlyInAnyOrderElementsOf(uncachedDiagnostics);
+  }
 }
@@ -0,0 +1,88 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics.typo;
+
+import org.junit.jupiter.api.Test;
+import org.languagetool.language.AmericanEnglish;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JLanguageToolPoolTest {
+
+  @Test
+  void testPoolIsBounded() {
+    // given
+    var pool = new JLanguageToolPool(new AmericanEnglish(), 1);
+
+    // when
+    var firstEntry = pool.checkOut();
+
+    // then
+    assertThat(pool.getStatistics().getInUse()).isEqualTo(1);
+    assertThat(pool.getStatistics().getAvailable()).isZero();
+
+    // when
+    pool.checkIn(firstEntry);
+    var secondEntry = pool.checkOut();
+
+    // then
+    assertThat(secondEntry).isSameAs(firstEntry);
+    assertThat(pool.getStatistics().getCreated()).isEqualTo(1);
+  }
+
+  @Test
+  void testCheckOutWaitsForCheckIn() {
+    // given
+    var pool = new JLanguageToolPool(new AmericanEnglish(), 1);
+    var firstEntry = pool.checkOut();
+
+    // when
+    var secondEntry = CompletableFuture.supplyAsync(pool::checkOut);
+
+    // then
+    assertThat(secondEntry).isNotDone();
+
+    // when
+    pool.checkIn(firstEntry);
+
+    // then
+    assertThat(secondEntry.join()).isSameAs(firstEntry);
+    assertThat(pool.getStatistics().getCreated()).isEqualTo(1);
+  }
+
+  @Test
+  void testWarmUp() {
+    // given
+    var pool = new JLanguageToolPool(new AmericanEnglish(), 2);
+
+    // when
+    pool.warmUp(1).join();
+
+    // then
+    var statistics = pool.getStatistics();
+    assertThat(statistics.getCreated()).isEqualTo(1);
+    assertThat(statistics.getAvailable()).isEqualTo(1);
+    assertThat(statistics.getInUse()).isZero();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics.typo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WordStatusCacheTest {
+
+  @Test
+  void testKeysAreSeparated() {
+    // given
+    var cache = new WordStatusCache(10);
+    var firstKey = WordStatusCache.getKey("ru", "");
+    var secondKey = WordStatusCache.getKey("ru", "Варинаты");
+
+    // when
+    cache.put(firstKey, "Варинаты", WordStatus.MISSPELLED);
+
+    // then
+    assertThat(cache.get(firstKey, "Варинаты")).isEqualTo(WordStatus.MISSPELLED);
+    assertThat(cache.get(secondKey, "Варинаты")).isNull();
+  }
+
+  @Test
+  void testMaxSize() {
+    // given
+    var cache = new WordStatusCache(2);
+    var key = WordStatusCache.getKey("en", "");
+
+    // when
+    cache.put(key, "first", WordStatus.VALID);
+    cache.put(key, "first", WordStatus.VALID);
+    cache.put(key, "second", WordStatus.VALID);
+    cache.get(key, "first");
+    cache.put(key, "third", WordStatus.VALID);
+
+    // then
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(key, "first")).isEqualTo(WordStatus.VALID);
+    assertThat(cache.get(key, "second")).isNull();
+    assertThat(cache.get(key, "third")).isEqualTo(WordStatus.VALID);
+  }
+
+  @Test
+  void testSegmentedCacheIsBoundedAndConcurrent() {
+    // given
+    int maxSize = 64 * 1024;
+    var cache = new WordStatusCache(maxSize);
+    var key = WordStatusCache.getKey("en", "");
+
+    // when
+    IntStream.range(0, maxSize * 2).parallel()
+      .forEach(i -> cache.put(key, "word" + i, WordStatus.VALID));
+
+    // then
+    assertThat(cache.size()).isLessThanOrEqualTo(maxSize);
+    assertThat(cache.size()).isGreaterThan(maxSize / 2);
+  }
+
+  @Test
+  void testKeyUsesFullWordsToIgnore() {
+    // "Aa" и "BB" имеют одинаковый хеш-код
+    assertThat(WordStatusCache.getKey("en", "Aa")).isNotEqualTo(WordStatusCache.getKey("en", "BB"));
+  }
+
+  @Test
+  void testSaveAndLoad(@TempDir Path tempDir) {
+    // given
+    var cache = new WordStatusCache(10);
+    var key = WordStatusCache.getKey("en", "");
+    cache.put(key, "word", WordStatus.VALID);
+    cache.put(key, "wrod", WordStatus.MISSPELLED);
+    File file = tempDir.resolve("typo-cache.json").toFile();
+
+    // when
+    cache.save(file);
+    var loadedCache = new WordStatusCache(10);
+    loadedCache.load(file);
+
+    // then
+    assertThat(loadedCache.size()).isEqualTo(2);
+    assertThat(loadedCache.get(key, "word")).isEqualTo(WordStatus.VALID);
+    assertThat(loadedCache.get(key, "wrod")).isEqualTo(WordStatus.MISSPELLED);
+  }
+}
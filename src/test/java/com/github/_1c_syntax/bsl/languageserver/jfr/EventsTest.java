@@ -0,0 +1,77 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.jfr;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventsTest {
+
+  @Test
+  void testDocumentEventsAreRecorded() throws IOException {
+
+    // given
+    List<RecordedEvent> events;
+    Path dump = Files.createTempFile("bsl-ls", ".jfr");
+
+    // when
+    try (Recording recording = new Recording()) {
+      recording.enable(DocumentParseEvent.NAME).withoutThreshold();
+      recording.enable(ComputerEvent.NAME).withoutThreshold();
+      recording.start();
+
+      DocumentContext documentContext = TestUtils.getDocumentContext("Процедура Тест()\nКонецПроцедуры");
+      documentContext.getSymbolTree();
+
+      recording.stop();
+      recording.dump(dump);
+    }
+    events = RecordingFile.readAllEvents(dump);
+    Files.deleteIfExists(dump);
+
+    // then
+    List<String> eventNames = events.stream()
+      .map(event -> event.getEventType().getName())
+      .collect(Collectors.toList());
+
+    assertThat(eventNames)
+      .contains(DocumentParseEvent.NAME)
+      .contains(ComputerEvent.NAME);
+
+    assertThat(events)
+      .filteredOn(event -> event.getEventType().getName().equals(ComputerEvent.NAME))
+      .extracting(event -> event.getString("computer"))
+      .contains("SymbolTreeComputer", "MethodSymbolComputer");
+  }
+}
@@ -29,6 +29,7 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCode;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticInfo;
 import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionContext;
 import org.eclipse.lsp4j.CodeActionKind;
@@ -80,7 +81,7 @@ class CodeActionProviderTest {
 
     codeActionContext.setDiagnostics(diagnostics);
 
-    params.setRange(new Range());
+    params.setRange(Ranges.create(0, 0, documentContext.getContentList().length, 0));
     params.setTextDocument(textDocumentIdentifier);
     params.setContext(codeActionContext);
 
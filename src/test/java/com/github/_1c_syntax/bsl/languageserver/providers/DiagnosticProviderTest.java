@@ -25,12 +25,21 @@ import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConf
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
 import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.services.LanguageClient;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class DiagnosticProviderTest {
 
@@ -49,4 +58,133 @@ class DiagnosticProviderTest {
     // then
     assertThat(diagnostics.size()).isGreaterThan(0);
   }
+
+  @Test
+  void testPublishOnlyChangedDiagnostics() {
+    // given
+    DiagnosticSupplier diagnosticSupplier = new DiagnosticSupplier(LanguageServerConfiguration.create());
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider(diagnosticSupplier);
+    final DocumentContext documentContext
+      = TestUtils.getDocumentContextFromFile("./src/test/resources/providers/diagnosticProvider.bsl");
+    LanguageClient client = mock(LanguageClient.class);
+
+    // when
+    diagnosticProvider.publishEmptyDiagnosticList(client, documentContext);
+
+    // then
+    verify(client, never()).publishDiagnostics(any());
+
+    // when
+    diagnosticProvider.computeAndPublishDiagnostics(client, documentContext);
+    diagnosticProvider.computeAndPublishDiagnostics(client, documentContext);
+
+    // then
+    verify(client, times(1)).publishDiagnostics(any());
+
+    // when
+    diagnosticProvider.publishEmptyDiagnosticList(client, documentContext);
+    diagnosticProvider.publishEmptyDiagnosticList(client, documentContext);
+
+    // then
+    verify(client, times(2)).publishDiagnostics(any());
+  }
+
+  @Test
+  void testDocumentDiagnosticsInRange() {
+    // given
+    var wide = new Diagnostic(Ranges.create(0, 0, 10, 0), "wide");
+    var first = new Diagnostic(Ranges.create(1, 0, 1, 5), "first");
+    var second = new Diagnostic(Ranges.create(3, 0, 3, 5), "second");
+    var third = new Diagnostic(Ranges.create(5, 0, 5, 5), "third");
+    var documentDiagnostics = new DocumentDiagnostics(0, List.of(third, second, first, wide));
+
+    // when
+    var diagnosticsInRange = documentDiagnostics.getDiagnostics(Ranges.create(3, 2, 5, 0));
+
+    // then
+    assertThat(diagnosticsInRange).containsExactly(wide, second, third);
+    assertThat(documentDiagnostics.getDiagnostics(Ranges.create(12, 0, 12, 0))).isEmpty();
+    assertThat(documentDiagnostics.getDiagnostics(Ranges.create(2, 0, 2, 0))).containsExactly(wide);
+  }
+
+  @Test
+  void testPublishDiagnosticsWithSameFingerprint() {
+    // given
+    DiagnosticSupplier diagnosticSupplier = new DiagnosticSupplier(LanguageServerConfiguration.create());
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider(diagnosticSupplier);
+    LanguageClient client = mock(LanguageClient.class);
+    String uri = "file:///fake-uri.bsl";
+    // "Aa" и "BB" имеют одинаковый хеш-код, поэтому отпечатки списков совпадают
+    var first = new Diagnostic(Ranges.create(0, 0, 0, 1), "Aa");
+    var second = new Diagnostic(Ranges.create(0, 0, 0, 1), "BB");
+
+    // when
+    diagnosticProvider.publishDiagnostics(client, new PublishDiagnosticsParams(uri, List.of(first)));
+    boolean sent = diagnosticProvider.publishDiagnostics(client, new PublishDiagnosticsParams(uri, List.of(second)));
+
+    // then
+    assertThat(first.hashCode()).isEqualTo(second.hashCode());
+    assertThat(sent).isTrue();
+    verify(client, times(2)).publishDiagnostics(any());
+  }
+
+  @Test
+  void testComputedDiagnosticsBoundToDocumentVersion() {
+    // given
+    DiagnosticSupplier diagnosticSupplier = new DiagnosticSupplier(LanguageServerConfiguration.create());
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider(diagnosticSupplier);
+    final DocumentContext documentContext
+      = TestUtils.getDocumentContextFromFile("./src/test/resources/providers/diagnosticProvider.bsl");
+
+    // when
+    final List<Diagnostic> diagnostics = diagnosticProvider.computeDiagnostics(documentContext);
+    DocumentDiagnostics computedDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext);
+
+    // then
+    assertThat(computedDiagnostics.getVersion()).isEqualTo(documentContext.getVersion());
+    assertThat(computedDiagnostics.getDiagnostics()).isEqualTo(diagnostics);
+    diagnostics.forEach(diagnostic -> {
+      assertThat(computedDiagnostics.contains(diagnostic)).isTrue();
+      assertThat(computedDiagnostics.getDiagnostics(diagnostic.getRange())).contains(diagnostic);
+      assertThat(computedDiagnostics.getDiagnostics(diagnostic.getCode())).contains(diagnostic);
+    });
+
+    // when
+    DocumentContext changedDocumentContext = documentContext.withContent(documentContext.getContent());
+
+    // then
+    assertThat(diagnosticProvider.getComputedDiagnostics(changedDocumentContext).isEmpty()).isTrue();
+  }
+
+  @Test
+  void testDocumentDiagnosticsSortedByRange() {
+    // given
+    Diagnostic second = new Diagnostic(Ranges.create(2, 0, 2, 5), "second");
+    second.setCode("B");
+    Diagnostic first = new Diagnostic(Ranges.create(1, 4, 1, 8), "first");
+    first.setCode("A");
+    Diagnostic third = new Diagnostic(Ranges.create(2, 0, 3, 1), "third");
+    third.setCode("A");
+
+    // when
+    DocumentDiagnostics documentDiagnostics = new DocumentDiagnostics(1, List.of(third, second, first));
+
+    // then
+    assertThat(documentDiagnostics.getDiagnostics()).containsExactly(first, second, third);
+    assertThat(documentDiagnostics.getDiagnostics(Either.forLeft("A"))).containsExactly(first, third);
+    assertThat(documentDiagnostics.getDiagnostics(Either.forLeft("C"))).isEmpty();
+  }
+
+  @Test
+  void testDocumentDiagnosticsSequenceGrowsWithEachComputation() {
+    // given
+    Diagnostic diagnostic = new Diagnostic(Ranges.create(1, 0, 1, 5), "diagnostic");
+    DocumentDiagnostics documentDiagnostics = new DocumentDiagnostics(1, List.of(diagnostic));
+
+    // when
+    DocumentDiagnostics recomputedDiagnostics = new DocumentDiagnostics(1, List.of(diagnostic));
+
+    // then
+    assertThat(recomputedDiagnostics.getSequence()).isGreaterThan(documentDiagnostics.getSequence());
+  }
 }
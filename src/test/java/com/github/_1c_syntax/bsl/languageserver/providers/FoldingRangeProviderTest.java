@@ -72,6 +72,26 @@ class FoldingRangeProviderTest {
 
   }
 
+  @Test
+  void testFoldingRangeIsCachedPerSnapshot() {
+
+    // given
+    DocumentContext documentContext = TestUtils.getDocumentContextFromFile("./src/test/resources/providers/foldingRange.bsl");
+    List<FoldingRange> foldingRanges = FoldingRangeProvider.getFoldingRange(documentContext);
+
+    // when
+    List<FoldingRange> cachedFoldingRanges = FoldingRangeProvider.getFoldingRange(documentContext);
+    DocumentContext nextSnapshot = documentContext.withContent(documentContext.getContent());
+    List<FoldingRange> nextSnapshotFoldingRanges = FoldingRangeProvider.getFoldingRange(nextSnapshot);
+
+    // then
+    assertThat(cachedFoldingRanges).isSameAs(foldingRanges);
+    assertThat(documentContext.getProviderResultCache().getHitCount()).isEqualTo(1);
+    assertThat(nextSnapshotFoldingRanges)
+      .isNotSameAs(foldingRanges)
+      .isEqualTo(foldingRanges);
+  }
+
   @Test
   void testFoldingRangeParseError() {
 
@@ -81,4 +101,24 @@ class FoldingRangeProviderTest {
     assertThat(foldingRanges).hasSize(0);
 
   }
+
+  @Test
+  void testFoldingRangeCachedByVersion() {
+    // given
+    DocumentContext documentContext = TestUtils.getDocumentContextFromFile("./src/test/resources/providers/foldingRange.bsl");
+    String content = documentContext.getContent();
+
+    // when
+    List<FoldingRange> firstFoldingRanges = FoldingRangeProvider.getFoldingRange(documentContext);
+    List<FoldingRange> secondFoldingRanges = FoldingRangeProvider.getFoldingRange(documentContext);
+
+    DocumentContext rebuiltDocumentContext = documentContext.withContent(content);
+    List<FoldingRange> rebuiltFoldingRanges = FoldingRangeProvider.getFoldingRange(rebuiltDocumentContext);
+
+    // then
+    assertThat(secondFoldingRanges).isSameAs(firstFoldingRanges);
+    assertThat(rebuiltFoldingRanges)
+      .isNotSameAs(firstFoldingRanges)
+      .hasSameSizeAs(firstFoldingRanges);
+  }
 }
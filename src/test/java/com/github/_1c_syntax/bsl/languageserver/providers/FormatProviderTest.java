@@ -24,10 +24,13 @@ package com.github._1c_syntax.bsl.languageserver.providers;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.languageserver.utils.TextEdits;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.lsp4j.DocumentFormattingParams;
+import org.eclipse.lsp4j.DocumentOnTypeFormattingParams;
 import org.eclipse.lsp4j.DocumentRangeFormattingParams;
 import org.eclipse.lsp4j.FormattingOptions;
+import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.TextDocumentIdentifier;
 import org.eclipse.lsp4j.TextDocumentItem;
 import org.eclipse.lsp4j.TextEdit;
@@ -38,7 +41,6 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.StringJoiner;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -57,16 +59,6 @@ class FormatProviderTest {
 
     String fileContent = FileUtils.readFileToString(getTestFile(), StandardCharsets.UTF_8);
     String formattedFileContent = FileUtils.readFileToString(getFormattedTestFile(), StandardCharsets.UTF_8);
-    String[] strings = formattedFileContent.split("\n");
-    StringJoiner joiner = new StringJoiner("\n");
-    for (int i = 0; i < strings.length; i++) {
-      if (i < startLine || i > endLine) {
-        continue;
-      }
-      joiner.add(strings[i]);
-    }
-
-    formattedFileContent = joiner.toString();
 
     DocumentContext documentContext = new DocumentContext(
       URI.create(params.getTextDocument().getUri()),
@@ -78,10 +70,16 @@ class FormatProviderTest {
     List<TextEdit> textEdits = FormatProvider.getRangeFormatting(params, documentContext);
 
     // then
-    assertThat(textEdits).hasSize(1);
-
-    TextEdit textEdit = textEdits.get(0);
-    assertThat(textEdit.getNewText()).isEqualTo(formattedFileContent);
+    assertThat(textEdits)
+      .isNotEmpty()
+      .allMatch(textEdit -> textEdit.getRange().getStart().getLine() >= startLine)
+      .allMatch(textEdit -> textEdit.getRange().getEnd().getLine() <= endLine);
+
+    // строки диапазона, включая последнюю, совпадают с эталоном, остальные строки не меняются
+    String[] expectedStrings = fileContent.split("\n", -1);
+    String[] formattedStrings = formattedFileContent.split("\n", -1);
+    System.arraycopy(formattedStrings, startLine, expectedStrings, startLine, endLine - startLine + 1);
+    assertThat(TextEdits.apply(fileContent, textEdits)).isEqualTo(String.join("\n", expectedStrings));
   }
 
   @Test
@@ -103,11 +101,96 @@ class FormatProviderTest {
     List<TextEdit> textEdits = FormatProvider.getFormatting(params, documentContext);
 
     // then
-    assertThat(textEdits).hasSize(1);
+    assertThat(textEdits)
+      .hasSizeGreaterThan(1)
+      .allMatch(textEdit -> textEdit.getNewText().isBlank() || textEdit.getNewText().startsWith("//"));
+
+    assertThat(TextEdits.apply(fileContent, textEdits)).isEqualTo(formattedFileContent);
+  }
+
+  @Test
+  void testFormatFormattedText() throws IOException {
+    // given
+    DocumentFormattingParams params = new DocumentFormattingParams();
+    params.setTextDocument(getTextDocumentIdentifier());
+    params.setOptions(new FormattingOptions(4, true));
 
-    TextEdit textEdit = textEdits.get(0);
-    assertThat(textEdit.getNewText()).isEqualTo(formattedFileContent);
+    String formattedFileContent = FileUtils.readFileToString(getFormattedTestFile(), StandardCharsets.UTF_8);
 
+    DocumentContext documentContext = new DocumentContext(
+      URI.create(params.getTextDocument().getUri()),
+      formattedFileContent, new ServerContext()
+    );
+
+    // when
+    List<TextEdit> textEdits = FormatProvider.getFormatting(params, documentContext);
+
+    // then
+    assertThat(textEdits).isEmpty();
+  }
+
+  @Test
+  void testOnTypeFormattingNewLine() {
+    // given
+    String content = "Процедура Тест()\n"
+      + "    Если Истина Тогда\n"
+      + "    А = 1;\n"
+      + "КонецЕсли\n"
+      + "\n";
+    DocumentContext documentContext = new DocumentContext(
+      URI.create("file:///fake/onType.bsl"),
+      content,
+      new ServerContext()
+    );
+
+    DocumentOnTypeFormattingParams params = new DocumentOnTypeFormattingParams();
+    params.setTextDocument(new TextDocumentIdentifier(documentContext.getUri().toString()));
+    params.setOptions(new FormattingOptions(4, true));
+    params.setPosition(new Position(4, 0));
+    params.setCh("\n");
+
+    // when
+    List<TextEdit> textEdits = FormatProvider.getOnTypeFormatting(params, documentContext);
+
+    // then
+    assertThat(textEdits).hasSize(2);
+    assertThat(textEdits.get(0).getRange()).isEqualTo(Ranges.create(3, 0, 3, 0));
+    assertThat(textEdits.get(0).getNewText()).isEqualTo("    ");
+    assertThat(textEdits.get(1).getRange()).isEqualTo(Ranges.create(4, 0, 4, 0));
+    assertThat(textEdits.get(1).getNewText()).isEqualTo("    ");
+  }
+
+  @Test
+  void testOnTypeFormattingSemicolon() {
+    // given
+    String content = "Процедура Тест()\n"
+      + "    Если Истина Тогда\n"
+      + "    А = 1;\n"
+      + "        Б = 2;\n"
+      + "    КонецЕсли;\n"
+      + "КонецПроцедуры\n";
+    DocumentContext documentContext = new DocumentContext(
+      URI.create("file:///fake/onType.bsl"),
+      content,
+      new ServerContext()
+    );
+
+    DocumentOnTypeFormattingParams params = new DocumentOnTypeFormattingParams();
+    params.setTextDocument(new TextDocumentIdentifier(documentContext.getUri().toString()));
+    params.setOptions(new FormattingOptions(4, true));
+    params.setCh(";");
+
+    // when
+    params.setPosition(new Position(2, 10));
+    List<TextEdit> misalignedLineEdits = FormatProvider.getOnTypeFormatting(params, documentContext);
+    params.setPosition(new Position(3, 14));
+    List<TextEdit> alignedLineEdits = FormatProvider.getOnTypeFormatting(params, documentContext);
+
+    // then
+    assertThat(misalignedLineEdits).hasSize(1);
+    assertThat(misalignedLineEdits.get(0).getRange()).isEqualTo(Ranges.create(2, 0, 2, 4));
+    assertThat(misalignedLineEdits.get(0).getNewText()).isEqualTo("        ");
+    assertThat(alignedLineEdits).isEmpty();
   }
 
   private File getTestFile() {
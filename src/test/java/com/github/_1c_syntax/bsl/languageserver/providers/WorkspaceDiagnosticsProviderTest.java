@@ -0,0 +1,166 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticSupplier;
+import com.github._1c_syntax.utils.Absolute;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WorkspaceDiagnosticsProviderTest {
+
+  private static final File DIAGNOSTIC_PROVIDER_FILE = new File("./src/test/resources/providers/diagnosticProvider.bsl");
+  private static final File FORMAT_FILE = new File("./src/test/resources/providers/format.bsl");
+
+  @Test
+  void testComputeAndPublishDiagnostics() throws ExecutionException, InterruptedException {
+    // given
+    var context = new ServerContext();
+    context.populateContext(List.of(DIAGNOSTIC_PROVIDER_FILE, FORMAT_FILE));
+    var client = mock(LanguageClient.class);
+    var provider = getProvider(context);
+
+    // when
+    provider.computeAndPublishDiagnostics(client, false).get();
+
+    // then
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(client, atLeastOnce()).publishDiagnostics(captor.capture());
+    assertThat(captor.getAllValues())
+      .extracting(PublishDiagnosticsParams::getUri)
+      .contains(Absolute.uri(DIAGNOSTIC_PROVIDER_FILE.toURI()).toString());
+    assertThat(captor.getAllValues())
+      .allMatch(params -> !params.getDiagnostics().isEmpty());
+
+    // клиент без поддержки индикатора прогресса не получает запросов и уведомлений о ходе расчета
+    verify(client, never()).createProgress(any());
+    verify(client, never()).notifyProgress(any());
+  }
+
+  @Test
+  void testProgressIsReportedWhenSupported() throws ExecutionException, InterruptedException {
+    // given
+    var context = new ServerContext();
+    context.populateContext(List.of(DIAGNOSTIC_PROVIDER_FILE));
+    var client = mock(LanguageClient.class);
+    when(client.createProgress(any())).thenReturn(CompletableFuture.completedFuture(null));
+    var provider = getProvider(context);
+
+    // when
+    provider.computeAndPublishDiagnostics(client, true).get();
+
+    // then
+    verify(client).createProgress(any());
+    verify(client, atLeastOnce()).notifyProgress(any());
+  }
+
+  @Test
+  void testDocumentChangedDuringComputationIsNotPublished() throws ExecutionException, InterruptedException {
+    // given
+    var context = new ServerContext();
+    context.populateContext(List.of(DIAGNOSTIC_PROVIDER_FILE));
+    var client = mock(LanguageClient.class);
+    var diagnosticSupplier = new DiagnosticSupplier(LanguageServerConfiguration.create());
+    var diagnosticProvider = spy(new DiagnosticProvider(diagnosticSupplier));
+    // документ открывается в редакторе, пока идет расчет
+    doAnswer(invocation -> {
+      var diagnostics = invocation.callRealMethod();
+      context.addDocument(DIAGNOSTIC_PROVIDER_FILE.toURI(), "");
+      return diagnostics;
+    }).when(diagnosticProvider).computeDetachedDiagnostics(any());
+    var provider = new WorkspaceDiagnosticsProvider(context, diagnosticProvider, () -> false);
+
+    // when
+    provider.computeAndPublishDiagnostics(client, false).get();
+
+    // then
+    verify(client, never()).publishDiagnostics(any());
+  }
+
+  @Test
+  void testOpenedDocumentIsSkipped() throws ExecutionException, InterruptedException, IOException {
+    // given
+    var context = new ServerContext();
+    context.populateContext(List.of(DIAGNOSTIC_PROVIDER_FILE));
+    context.addDocument(
+      DIAGNOSTIC_PROVIDER_FILE.toURI(),
+      FileUtils.readFileToString(DIAGNOSTIC_PROVIDER_FILE, StandardCharsets.UTF_8)
+    );
+    var client = mock(LanguageClient.class);
+    var provider = getProvider(context);
+
+    // when
+    provider.computeAndPublishDiagnostics(client, false).get();
+
+    // then
+    verify(client, never()).publishDiagnostics(any());
+  }
+
+  @Test
+  void testClosedDocumentIsRecomputedFromDisk() throws ExecutionException, InterruptedException {
+    // given
+    var context = new ServerContext();
+    context.populateContext(List.of(DIAGNOSTIC_PROVIDER_FILE));
+    var uri = Absolute.uri(DIAGNOSTIC_PROVIDER_FILE.toURI());
+    var documentContext = context.addDocument(uri, "");
+    context.releaseContent(documentContext);
+    var client = mock(LanguageClient.class);
+    var provider = getProvider(context);
+
+    // when
+    provider.computeAndPublishDiagnostics(client, uri).get();
+
+    // then
+    var captor = ArgumentCaptor.forClass(PublishDiagnosticsParams.class);
+    verify(client).publishDiagnostics(captor.capture());
+    assertThat(captor.getValue().getUri()).isEqualTo(uri.toString());
+    assertThat(captor.getValue().getDiagnostics()).isNotEmpty();
+  }
+
+  private static WorkspaceDiagnosticsProvider getProvider(ServerContext context) {
+    var diagnosticSupplier = new DiagnosticSupplier(LanguageServerConfiguration.create());
+    var diagnosticProvider = new DiagnosticProvider(diagnosticSupplier);
+    return new WorkspaceDiagnosticsProvider(context, diagnosticProvider, () -> false);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.recognizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AhoCorasickMatcherTest {
+
+  @Test
+  void testCountMatches() {
+    // given
+    var matcher = new AhoCorasickMatcher(List.of("КонецЕсли;", "Если", "?(", ");"));
+
+    // when-then
+    assertThat(matcher.countMatches("Какой-то текст")).isZero();
+    assertThat(matcher.countMatches("КонецЕсли;")).isEqualTo(2);
+    assertThat(matcher.countMatches("А = ?(Б, 1, 2);")).isEqualTo(2);
+    assertThat(matcher.countMatches("Если Если Если")).isEqualTo(3);
+  }
+
+  @Test
+  void testWhitespacesAreSkipped() {
+    // given
+    var matcher = new AhoCorasickMatcher(List.of("КонецЕсли;"));
+
+    // when-then
+    assertThat(matcher.countMatches("Конец Если ;")).isEqualTo(1);
+    assertThat(matcher.countMatches("\tКонецЕсли\n;")).isEqualTo(1);
+  }
+
+  @Test
+  void testDuplicatedPatterns() {
+    // given
+    var matcher = new AhoCorasickMatcher(List.of("ПЕРВЫЕ", "ПЕРВЫЕ", ""));
+
+    // when-then
+    assertThat(matcher.countMatches("ВЫБРАТЬ ПЕРВЫЕ 1")).isEqualTo(2);
+  }
+
+}
@@ -64,14 +64,12 @@ public class CodeActionAssert extends AbstractAssert<CodeActionAssert, CodeActio
     // check that actual value we want to make assertions on is not null.
     isNotNull();
 
-    // saving original state
-    String cachedContent = documentContext.getContent();
-
-    // apply edits from quick fix
+    // apply edits from quick fix to a new snapshot of the document
     final List<TextEdit> textEdits = getTextEdits();
 
+    DocumentContext fixedDocumentContext = documentContext;
     String[] contentList = documentContext.getContentList();
-    textEdits.forEach(textEdit -> {
+    for (TextEdit textEdit : textEdits) {
       final String newText = textEdit.getNewText();
       final Range range = textEdit.getRange();
 
@@ -84,7 +82,7 @@ public class CodeActionAssert extends AbstractAssert<CodeActionAssert, CodeActio
         endChar = start.getCharacter() - 1;
       }
       Range startRange = Ranges.create(startLine, startChar, endLine, endChar);
-      final String startText = documentContext.getText(startRange);
+      final String startText = fixedDocumentContext.getText(startRange);
 
       final Position end = range.getEnd();
       startLine = end.getLine();
@@ -93,22 +91,19 @@ public class CodeActionAssert extends AbstractAssert<CodeActionAssert, CodeActio
       endChar = max(contentList[endLine].length() - 1, 0);
 
       Range endRange = Ranges.create(startLine, startChar, endLine, endChar);
-      final String endText = documentContext.getText(endRange);
+      final String endText = fixedDocumentContext.getText(endRange);
 
       // TODO: does not work for several textedits changing content length (missed semicolon ie.)
       String content = startText + newText + endText;
-      documentContext.rebuild(content);
-    });
+      fixedDocumentContext = fixedDocumentContext.withContent(content);
+    }
 
     // get diagnostics from fixed document
-    final List<Diagnostic> diagnostics = bslDiagnostic.getDiagnostics(documentContext);
+    final List<Diagnostic> diagnostics = bslDiagnostic.getDiagnostics(fixedDocumentContext);
 
     // check if expected diagnostic is not present in new diagnostic list
     Assertions.assertThat(diagnostics).doesNotContain(diagnostic);
 
-    // returning to original state
-    documentContext.rebuild(cachedContent);
-
     return this;
   }
 
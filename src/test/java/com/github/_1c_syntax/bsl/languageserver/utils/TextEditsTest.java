@@ -0,0 +1,62 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import org.eclipse.lsp4j.TextEdit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextEditsTest {
+
+  @Test
+  void testApply() {
+    // given
+    String text = "Если  А Тогда\nБ = 1;\nКонецЕсли;";
+    List<TextEdit> edits = List.of(
+      new TextEdit(Ranges.create(1, 6, 2, 0), "\n"),
+      new TextEdit(Ranges.create(1, 0, 1, 0), "    "),
+      new TextEdit(Ranges.create(0, 4, 0, 6), " ")
+    );
+
+    // when
+    String result = TextEdits.apply(text, edits);
+
+    // then
+    assertThat(result).isEqualTo("Если А Тогда\n    Б = 1;\nКонецЕсли;");
+  }
+
+  @Test
+  void testApplyWithoutEdits() {
+    // given
+    String text = "А = 1;";
+
+    // when
+    String result = TextEdits.apply(text, Collections.emptyList());
+
+    // then
+    assertThat(result).isSameAs(text);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TreesTest {
+
+  private static final int DEPTH = 100_000;
+
+  @Test
+  void testDeepTreeTraversal() {
+
+    // given
+    BSLParser.ExpressionContext root = createDeepTree();
+    BSLParserRuleContext leaf = root;
+    while (leaf.getChildCount() > 0) {
+      leaf = (BSLParserRuleContext) leaf.getChild(0);
+    }
+
+    // when-then
+    assertThat(Trees.getDescendants(root)).hasSize(DEPTH + 1);
+    assertThat(Trees.findAllRuleNodes(root, BSLParser.RULE_expression)).hasSize(DEPTH);
+    assertThat(Trees.findAllRuleNodes(root, BSLParser.RULE_member, BSLParser.RULE_statement)).hasSize(1);
+    assertThat(Trees.nodeContains(root, BSLParser.RULE_member)).isTrue();
+    assertThat(Trees.nodeContains(root, BSLParser.RULE_statement)).isFalse();
+    assertThat(Trees.treeContainsErrors(root)).isFalse();
+    assertThat(Trees.getRootParent(leaf)).isSameAs(root);
+    assertThat(Trees.getRootParent(leaf, BSLParser.RULE_statement)).isNull();
+    assertThat(Trees.getAncestorByRuleIndex(leaf, BSLParser.RULE_expression)).isNotNull();
+    assertThat(DiagnosticHelper.equalNodes(root, createDeepTree())).isTrue();
+  }
+
+  private static BSLParser.ExpressionContext createDeepTree() {
+    var root = new BSLParser.ExpressionContext(null, 0);
+    ParserRuleContext current = root;
+    for (int i = 1; i < DEPTH; i++) {
+      var child = new BSLParser.ExpressionContext(current, 0);
+      current.addChild(child);
+      current = child;
+    }
+    current.addChild(new BSLParser.MemberContext(current, 0));
+    return root;
+  }
+
+}
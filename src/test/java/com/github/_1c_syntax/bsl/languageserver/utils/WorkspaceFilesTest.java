@@ -0,0 +1,117 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2020
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.files.FilesOptions;
+import com.github._1c_syntax.utils.Absolute;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceFilesTest {
+
+  private static final String PATH_TO_METADATA = "src/test/resources/metadata";
+
+  @Test
+  void testScan() {
+    // given
+    Path root = Absolute.path(PATH_TO_METADATA);
+
+    // when
+    var workspaceFiles = WorkspaceFiles.scan(root);
+
+    // then
+    assertThat(workspaceFiles.getSourceFiles())
+      .isNotEmpty()
+      .allMatch(workspaceFile -> workspaceFile.getPath().toString().endsWith(".bsl"))
+      .allMatch(workspaceFile -> workspaceFile.getSize() == workspaceFile.toFile().length());
+    assertThat(workspaceFiles.getFiles()).hasSameSizeAs(workspaceFiles.getSourceFiles());
+    assertThat(workspaceFiles.getConfigurationFiles())
+      .first()
+      .isEqualTo(root.resolve("Configuration.xml"));
+  }
+
+  @Test
+  void testScanWithExclude() {
+    // given
+    Path root = Absolute.path(PATH_TO_METADATA);
+    var options = new FilesOptions(List.of(), List.of("CommonModules"));
+
+    // when
+    var workspaceFiles = WorkspaceFiles.scan(root, options);
+
+    // then
+    assertThat(workspaceFiles.getSourceFiles())
+      .isNotEmpty()
+      .noneMatch(workspaceFile -> workspaceFile.getPath().startsWith(root.resolve("CommonModules")));
+  }
+
+  @Test
+  void testScanWithAnyDirectoryExcludeMatchesAtRoot() {
+    // given
+    Path root = Absolute.path(PATH_TO_METADATA);
+    var options = new FilesOptions(List.of(), List.of("**/CommonModules"));
+
+    // when
+    var workspaceFiles = WorkspaceFiles.scan(root, options);
+
+    // then
+    assertThat(workspaceFiles.getSourceFiles())
+      .isNotEmpty()
+      .noneMatch(workspaceFile -> workspaceFile.getPath().startsWith(root.resolve("CommonModules")));
+  }
+
+  @Test
+  void testGetFilesLargestFirst() {
+    // given
+    Path root = Absolute.path(PATH_TO_METADATA);
+    var workspaceFiles = WorkspaceFiles.scan(root);
+
+    // when
+    var files = workspaceFiles.getFilesLargestFirst(root);
+
+    // then
+    assertThat(files)
+      .hasSameSizeAs(workspaceFiles.getSourceFiles())
+      .isSortedAccordingTo(Comparator.comparingLong(File::length).reversed());
+  }
+
+  @Test
+  void testScanWithInclude() {
+    // given
+    Path root = Absolute.path(PATH_TO_METADATA);
+    var options = new FilesOptions(List.of("Catalogs/**"), List.of());
+
+    // when
+    var workspaceFiles = WorkspaceFiles.scan(root, options);
+
+    // then
+    assertThat(workspaceFiles.getFiles(root.resolve("Catalogs")))
+      .isNotEmpty()
+      .hasSameSizeAs(workspaceFiles.getSourceFiles());
+  }
+}